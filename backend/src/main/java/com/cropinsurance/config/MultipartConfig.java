@@ -0,0 +1,44 @@
+package com.cropinsurance.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.multipart.MultipartResolver;
+import org.springframework.web.multipart.support.StandardServletMultipartResolver;
+import org.springframework.web.servlet.DispatcherServlet;
+
+/**
+ * Multipart Configuration - Leaves claim uploads to the streaming ClaimUploadReceiver.
+ *
+ * Replaces Spring Boot's resolver with one that does not resolve POST /api/claims, so the
+ * servlet container never parses (and spools to temp files) that request body; every other
+ * multipart request is handled as before.
+ */
+@Configuration
+public class MultipartConfig {
+
+    private static final String CLAIMS_PATH = "/api/claims";
+
+    @Value("${claims.upload.streaming:true}")
+    private boolean streamClaimUploads;
+
+    @Bean(name = DispatcherServlet.MULTIPART_RESOLVER_BEAN_NAME)
+    public MultipartResolver multipartResolver() {
+        return new StandardServletMultipartResolver() {
+            @Override
+            public boolean isMultipart(HttpServletRequest request) {
+                if (streamClaimUploads && isClaimUpload(request)) {
+                    return false;
+                }
+                return super.isMultipart(request);
+            }
+        };
+    }
+
+    private static boolean isClaimUpload(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return "POST".equals(request.getMethod())
+                && (path.equals(CLAIMS_PATH) || path.equals(CLAIMS_PATH + "/"));
+    }
+}
@@ -1,6 +1,7 @@
 package com.cropinsurance.controller;
 
 import com.cropinsurance.dto.response.ApiResponse;
+import com.cropinsurance.dto.response.ClaimAssessmentJobResponse;
 import com.cropinsurance.dto.response.ClaimResponse;
 import com.cropinsurance.service.AdminService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -8,11 +9,15 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/admin")
@@ -33,4 +38,30 @@ public class AdminController {
     public ResponseEntity<ApiResponse<List<ClaimResponse>>> getAllClaims() {
         return ResponseEntity.ok(ApiResponse.success(adminService.getAllClaims()));
     }
+
+    @GetMapping("/claims/assessment/stats")
+    @Operation(summary = "Get claim assessment queue statistics")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getClaimAssessmentStats() {
+        return ResponseEntity.ok(ApiResponse.success(adminService.getClaimAssessmentStats()));
+    }
+
+    @GetMapping("/claims/images/stats")
+    @Operation(summary = "Get claim image store statistics")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getClaimImageStats() {
+        return ResponseEntity.ok(ApiResponse.success(adminService.getClaimImageStats()));
+    }
+
+    @GetMapping("/claims/assessment/dead")
+    @Operation(summary = "Get claim assessment jobs that ran out of attempts")
+    public ResponseEntity<ApiResponse<List<ClaimAssessmentJobResponse>>> getDeadAssessmentJobs(
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(ApiResponse.success(adminService.getDeadAssessmentJobs(limit)));
+    }
+
+    @PostMapping("/claims/{claimId}/assessment/retry")
+    @Operation(summary = "Retry the assessment of a claim whose job is dead")
+    public ResponseEntity<ApiResponse<Void>> retryAssessment(@PathVariable UUID claimId) {
+        adminService.retryAssessment(claimId);
+        return ResponseEntity.ok(ApiResponse.success(null, "Assessment queued again"));
+    }
 }
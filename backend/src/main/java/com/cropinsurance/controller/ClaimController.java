@@ -3,20 +3,26 @@ package com.cropinsurance.controller;
 import com.cropinsurance.dto.request.ClaimRequest;
 import com.cropinsurance.dto.response.ApiResponse;
 import com.cropinsurance.dto.response.ClaimResponse;
+import com.cropinsurance.exception.BadRequestException;
 import com.cropinsurance.service.ClaimService;
+import com.cropinsurance.upload.ClaimUpload;
+import com.cropinsurance.upload.ClaimUploadReceiver;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
+import org.springframework.web.util.WebUtils;
 
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Function;
 
 /**
  * Claim Controller
@@ -30,26 +36,28 @@ import java.util.UUID;
 public class ClaimController {
 
     private final ClaimService claimService;
+    private final ClaimUploadReceiver claimUploadReceiver;
 
     /**
-     * File a new claim with images
+     * File a new claim with images (form fields insuranceId, latitude, longitude and 'images' parts).
+     * The body is streamed straight to storage unless claims.upload.streaming is off.
      */
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @Operation(summary = "File a new insurance claim with photos")
     public ResponseEntity<ApiResponse<ClaimResponse>> fileClaim(
             @AuthenticationPrincipal String userId,
-            @RequestParam("insuranceId") UUID insuranceId,
-            @RequestParam("latitude") BigDecimal latitude,
-            @RequestParam("longitude") BigDecimal longitude,
-            @RequestParam("images") List<MultipartFile> images) {
+            HttpServletRequest httpRequest) {
+        UUID farmerId = UUID.fromString(userId);
+        ClaimResponse response;
 
-        ClaimRequest request = ClaimRequest.builder()
-                .insuranceId(insuranceId)
-                .latitude(latitude)
-                .longitude(longitude)
-                .build();
-
-        ClaimResponse response = claimService.fileClaim(UUID.fromString(userId), request, images);
+        MultipartHttpServletRequest multipart = WebUtils.getNativeRequest(httpRequest, MultipartHttpServletRequest.class);
+        if (multipart != null) {
+            response = claimService.fileClaim(farmerId, toClaimRequest(multipart::getParameter),
+                    multipart.getFiles(ClaimUploadReceiver.IMAGES_PART));
+        } else {
+            ClaimUpload upload = claimUploadReceiver.receive(httpRequest);
+            response = claimService.fileClaim(farmerId, toClaimRequest(upload::field), upload);
+        }
         return ResponseEntity.ok(ApiResponse.success(response, "Claim filed successfully. Processing..."));
     }
 
@@ -75,4 +83,24 @@ public class ClaimController {
         ClaimResponse claim = claimService.getClaimById(UUID.fromString(userId), claimId);
         return ResponseEntity.ok(ApiResponse.success(claim));
     }
+
+    private static ClaimRequest toClaimRequest(Function<String, String> fields) {
+        try {
+            return ClaimRequest.builder()
+                    .insuranceId(UUID.fromString(required(fields, "insuranceId")))
+                    .latitude(new BigDecimal(required(fields, "latitude")))
+                    .longitude(new BigDecimal(required(fields, "longitude")))
+                    .build();
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid claim form field: " + e.getMessage());
+        }
+    }
+
+    private static String required(Function<String, String> fields, String name) {
+        String value = fields.apply(name);
+        if (value == null || value.isBlank()) {
+            throw new BadRequestException("Required field '" + name + "' is missing");
+        }
+        return value.trim();
+    }
 }
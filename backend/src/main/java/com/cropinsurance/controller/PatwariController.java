@@ -15,6 +15,7 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -76,6 +77,27 @@ public class PatwariController {
         return ResponseEntity.ok(ApiResponse.success(sensors));
     }
 
+    /**
+     * Deactivate a sensor
+     */
+    @PostMapping("/sensors/{sensorCode}/deactivate")
+    @Operation(summary = "Deactivate a sensor so its readings are rejected")
+    public ResponseEntity<ApiResponse<Sensor>> deactivateSensor(@PathVariable String sensorCode) {
+        Sensor sensor = patwariService.deactivateSensor(sensorCode);
+        return ResponseEntity.ok(ApiResponse.success(sensor, "Sensor deactivated"));
+    }
+
+    /**
+     * Issue a new gateway ingest key for a sensor
+     */
+    @PostMapping("/sensors/{sensorCode}/ingest-key")
+    @Operation(summary = "Issue a new ingest key for the sensor gateway")
+    public ResponseEntity<ApiResponse<Map<String, String>>> rotateIngestKey(@PathVariable String sensorCode) {
+        String ingestKey = patwariService.rotateIngestKey(sensorCode);
+        return ResponseEntity.ok(ApiResponse.success(
+                Map.of("sensorCode", sensorCode, "ingestKey", ingestKey), "Ingest key issued"));
+    }
+
     /**
      * Get patwari dashboard stats
      */
@@ -2,17 +2,29 @@ package com.cropinsurance.controller;
 
 import com.cropinsurance.dto.request.SensorReadingRequest;
 import com.cropinsurance.dto.response.ApiResponse;
+import com.cropinsurance.dto.response.SensorAggregateResponse;
+import com.cropinsurance.dto.response.SensorReadingResult;
 import com.cropinsurance.entity.Sensor;
+import com.cropinsurance.entity.SensorAlert;
 import com.cropinsurance.entity.SensorReading;
+import com.cropinsurance.ingest.MqttSensorListener;
+import com.cropinsurance.ingest.SensorGateway;
 import com.cropinsurance.service.SensorService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Sensor Controller
@@ -25,6 +37,8 @@ import java.util.List;
 public class SensorController {
 
     private final SensorService sensorService;
+    private final SensorGateway sensorGateway;
+    private final MqttSensorListener mqttSensorListener;
 
     /**
      * Record sensor reading (from simulator or real sensor)
@@ -32,11 +46,35 @@ public class SensorController {
     @PostMapping("/reading")
     @Operation(summary = "Record a sensor reading")
     public ResponseEntity<ApiResponse<SensorReading>> recordReading(
-            @Valid @RequestBody SensorReadingRequest request) {
-        SensorReading reading = sensorService.recordReading(request);
+            @Valid @RequestBody SensorReadingRequest request, HttpServletRequest httpRequest) {
+        SensorReading reading = sensorService.recordReading(request, httpRequest.getRemoteAddr());
         return ResponseEntity.ok(ApiResponse.success(reading, "Reading recorded successfully"));
     }
 
+    /**
+     * Record a batch of readings (from field gateways).
+     * Each item is validated on its own, so partial failures are reported per item.
+     */
+    @PostMapping("/readings/batch")
+    @Operation(summary = "Record a batch of sensor readings")
+    public ResponseEntity<ApiResponse<List<SensorReadingResult>>> recordReadings(
+            @RequestBody List<SensorReadingRequest> requests, HttpServletRequest httpRequest) {
+        List<SensorReadingResult> results = sensorService.recordReadings(requests, httpRequest.getRemoteAddr());
+        long accepted = results.stream().filter(SensorReadingResult::isSuccess).count();
+        return ResponseEntity.ok(ApiResponse.success(results,
+                String.format("%d of %d readings recorded", accepted, results.size())));
+    }
+
+    /**
+     * Record readings sent as a compact binary frame (low-bandwidth field sensors)
+     */
+    @PostMapping(value = "/readings/binary", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @Operation(summary = "Record sensor readings from a binary frame")
+    public ResponseEntity<ApiResponse<Integer>> recordFrame(@RequestBody byte[] body, HttpServletRequest httpRequest) {
+        int recorded = sensorService.recordFrame(body, httpRequest.getRemoteAddr());
+        return ResponseEntity.ok(ApiResponse.success(recorded, recorded + " readings recorded"));
+    }
+
     /**
      * Get latest readings for a sensor
      */
@@ -49,6 +87,94 @@ public class SensorController {
         return ResponseEntity.ok(ApiResponse.success(readings));
     }
 
+    /**
+     * Get readings of a sensor in a time range (includes compressed history).
+     * Streamed as { success, data: { readings, nextCursor } }; pass nextCursor as 'after'
+     * to continue. Without a limit the whole range is exported in one response.
+     */
+    @GetMapping(value = "/{sensorCode}/readings/range", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Get readings of a sensor between two times (keyset paginated, streamed)")
+    public ResponseEntity<StreamingResponseBody> getReadingsBetween(
+            @PathVariable String sensorCode,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit) {
+        StreamingResponseBody body = sensorService.streamReadingsBetween(sensorCode, from, to, after, limit);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * Live stream of new readings (Server-Sent Events), replaces polling /readings
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream new readings of one or more sensors")
+    public SseEmitter streamReadings(@RequestParam List<String> codes) {
+        return sensorService.streamReadings(codes);
+    }
+
+    /**
+     * Get anomaly alerts for a sensor
+     */
+    @GetMapping("/{sensorCode}/alerts")
+    @Operation(summary = "Get recent anomaly alerts for a sensor")
+    public ResponseEntity<ApiResponse<List<SensorAlert>>> getAlerts(
+            @PathVariable String sensorCode,
+            @RequestParam(defaultValue = "20") int limit) {
+        List<SensorAlert> alerts = sensorService.getAlerts(sensorCode, limit);
+        return ResponseEntity.ok(ApiResponse.success(alerts));
+    }
+
+    /**
+     * Get hourly or daily aggregates for a sensor
+     */
+    @GetMapping("/{sensorCode}/aggregates")
+    @Operation(summary = "Get hourly or daily min/max/mean/sum for a sensor")
+    public ResponseEntity<ApiResponse<List<SensorAggregateResponse>>> getAggregates(
+            @PathVariable String sensorCode,
+            @RequestParam(defaultValue = "hour") String bucket,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        List<SensorAggregateResponse> aggregates = sensorService.getAggregates(sensorCode, bucket, from, to);
+        return ResponseEntity.ok(ApiResponse.success(aggregates));
+    }
+
+    /**
+     * Get ingestion pipeline statistics
+     */
+    @GetMapping("/ingest/stats")
+    @Operation(summary = "Get sensor ingestion statistics")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getIngestStats() {
+        return ResponseEntity.ok(ApiResponse.success(sensorService.getIngestStats()));
+    }
+
+    /**
+     * Get fleet health: how many sensors are reporting, stale or offline
+     */
+    @GetMapping("/health")
+    @Operation(summary = "Get sensor fleet health counts")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getFleetHealth() {
+        return ResponseEntity.ok(ApiResponse.success(sensorService.getFleetHealth()));
+    }
+
+    /**
+     * Get UDP/TCP gateway throughput and drop counters
+     */
+    @GetMapping("/gateway/stats")
+    @Operation(summary = "Get sensor gateway statistics")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getGatewayStats() {
+        return ResponseEntity.ok(ApiResponse.success(sensorGateway.getStats()));
+    }
+
+    /**
+     * Get MQTT listener statistics
+     */
+    @GetMapping("/mqtt/stats")
+    @Operation(summary = "Get MQTT listener statistics")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getMqttStats() {
+        return ResponseEntity.ok(ApiResponse.success(mqttSensorListener.getStats()));
+    }
+
     /**
      * Get sensor by code
      */
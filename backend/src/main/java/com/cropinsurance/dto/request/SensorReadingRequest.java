@@ -2,12 +2,14 @@ package com.cropinsurance.dto.request;
 
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 
 /**
  * Sensor Reading Request - From simulator or real sensor
@@ -31,4 +33,11 @@ public class SensorReadingRequest {
     private BigDecimal temperature;
 
     private BigDecimal rainfall;
+
+    // Device clock; when set the reading is stored with this time instead of the arrival time
+    private Instant recordedAt;
+
+    // Device sequence number (with recordedAt): a retried reading is stored only once
+    @PositiveOrZero(message = "Sequence must not be negative")
+    private Long sequence;
 }
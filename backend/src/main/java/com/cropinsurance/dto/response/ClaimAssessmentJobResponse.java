@@ -0,0 +1,28 @@
+package com.cropinsurance.dto.response;
+
+import com.cropinsurance.entity.enums.ClaimAssessmentJobStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Claim Assessment Job Response - State of a claim's assessment job, for admin review
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClaimAssessmentJobResponse {
+    private String claimId;
+    private ClaimAssessmentJobStatus status;
+    private int attempts;
+    private LocalDateTime runAt;
+    private String lockedBy;
+    private LocalDateTime leaseUntil;
+    private String lastError;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
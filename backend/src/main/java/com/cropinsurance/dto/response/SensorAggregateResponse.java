@@ -0,0 +1,39 @@
+package com.cropinsurance.dto.response;
+
+import com.cropinsurance.entity.enums.RollupBucket;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Sensor Aggregate Response - Min/max/mean/sum of sensor metrics over one time bucket
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SensorAggregateResponse {
+    private RollupBucket bucket;
+    private LocalDateTime bucketStart;
+    private int readingCount;
+
+    private MetricSummary soilMoisture;
+    private MetricSummary humidity;
+    private MetricSummary temperature;
+    private MetricSummary rainfall;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class MetricSummary {
+        private BigDecimal min;
+        private BigDecimal max;
+        private BigDecimal mean;
+        private BigDecimal sum;
+    }
+}
@@ -0,0 +1,62 @@
+package com.cropinsurance.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Sensor Reading Result - Per-item outcome of a batch ingestion
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SensorReadingResult {
+    private int index;
+    private String sensorCode;
+    private boolean success;
+    private boolean duplicate; // Already stored (device retry); success so the device stops resending
+    private boolean retryable; // Rejected for now (rate limit, full queue); the same reading can succeed later
+    private boolean commitPending; // Accepted and queued, but not committed within the commit timeout; do not resend
+    private String readingId;
+    private String error;
+
+    public static SensorReadingResult accepted(int index, String sensorCode, String readingId) {
+        return SensorReadingResult.builder()
+                .index(index)
+                .sensorCode(sensorCode)
+                .success(true)
+                .readingId(readingId)
+                .build();
+    }
+
+    public static SensorReadingResult duplicate(int index, String sensorCode, String readingId) {
+        return SensorReadingResult.builder()
+                .index(index)
+                .sensorCode(sensorCode)
+                .success(true)
+                .duplicate(true)
+                .readingId(readingId)
+                .build();
+    }
+
+    public static SensorReadingResult throttled(int index, String sensorCode, String error) {
+        return SensorReadingResult.builder()
+                .index(index)
+                .sensorCode(sensorCode)
+                .success(false)
+                .retryable(true)
+                .error(error)
+                .build();
+    }
+
+    public static SensorReadingResult rejected(int index, String sensorCode, String error) {
+        return SensorReadingResult.builder()
+                .index(index)
+                .sensorCode(sensorCode)
+                .success(false)
+                .error(error)
+                .build();
+    }
+}
@@ -30,6 +30,15 @@ public class ClaimImage {
     @Column(name = "image_path", nullable = false)
     private String imagePath;
 
+    @Column(name = "sha256", length = 64)
+    private String sha256;  // Hex SHA-256 of the file, computed while it was written
+
+    @Column(name = "size_bytes")
+    private Long sizeBytes;
+
+    @Column(name = "reused")
+    private Boolean reused;  // Same bytes were already filed (this or another claim) when uploaded
+
     @Column(name = "latitude", nullable = false, precision = 10, scale = 8)
     private BigDecimal latitude;
 
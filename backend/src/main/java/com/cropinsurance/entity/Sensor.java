@@ -1,8 +1,10 @@
 package com.cropinsurance.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -34,6 +36,15 @@ public class Sensor {
     @Builder.Default
     private Boolean isActive = true;
 
+    // Shared secret for the binary gateway (HMAC-SHA256, base64)
+    @JsonIgnore
+    @Column(name = "ingest_key", length = 64)
+    private String ingestKey;
+
+    // Rate limit class (sensor.rate-limit.sensor-classes), null = default
+    @Column(name = "sensor_class", length = 30)
+    private String sensorClass;
+
     @Column(name = "last_reading_at")
     private LocalDateTime lastReadingAt;
 
@@ -41,6 +52,11 @@ public class Sensor {
     @Column(name = "installed_at")
     private LocalDateTime installedAt;
 
+    // Bumped on every change made through JPA; other nodes' code caches refresh from it
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
     // Sensor readings
     @OneToMany(mappedBy = "sensor", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @Builder.Default
@@ -0,0 +1,56 @@
+package com.cropinsurance.entity;
+
+import com.cropinsurance.entity.enums.SensorAlertType;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Sensor Alert Entity - Anomaly detected in a sensor's readings
+ */
+@Entity
+@Table(name = "sensor_alerts")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SensorAlert {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "sensor_id", nullable = false)
+    private Sensor sensor;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false, length = 30)
+    private SensorAlertType type;
+
+    @Column(name = "metric", length = 20)
+    private String metric;
+
+    @Column(name = "value", precision = 7, scale = 2)
+    private BigDecimal value;
+
+    // Recent (EWMA) level of the metric when the alert fired
+    @Column(name = "expected", precision = 7, scale = 2)
+    private BigDecimal expected;
+
+    @Column(name = "message", nullable = false, columnDefinition = "TEXT")
+    private String message;
+
+    @Column(name = "detected_at", nullable = false)
+    private LocalDateTime detectedAt;
+
+    @CreationTimestamp
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+}
@@ -2,7 +2,6 @@ package com.cropinsurance.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
-import org.hibernate.annotations.CreationTimestamp;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -39,7 +38,9 @@ public class SensorReading {
     @Column(name = "rainfall", precision = 5, scale = 2)
     private BigDecimal rainfall;  // mm
 
-    @CreationTimestamp
-    @Column(name = "recorded_at")
-    private LocalDateTime recordedAt;
+    @Column(name = "recorded_at", nullable = false)
+    private LocalDateTime recordedAt;  // Device time when reported, otherwise arrival time
+
+    @Column(name = "seq")
+    private Long sequence;  // Device sequence number, null when the sensor does not number readings
 }
@@ -0,0 +1,11 @@
+package com.cropinsurance.entity.enums;
+
+/**
+ * Claim Assessment Job Status - Lifecycle of a row in claim_assessment_jobs
+ */
+public enum ClaimAssessmentJobStatus {
+    PENDING, // Waiting for a worker (new, or retrying after a backoff)
+    RUNNING, // Leased by a worker until lease_until
+    DONE, // Claim assessed
+    DEAD // Out of attempts; needs an admin retry
+}
@@ -8,5 +8,6 @@ public enum NotificationType {
     INSURANCE,
     CLAIM,
     VERIFICATION,
-    PAYMENT
+    PAYMENT,
+    SENSOR
 }
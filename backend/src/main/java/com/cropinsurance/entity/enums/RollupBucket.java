@@ -0,0 +1,25 @@
+package com.cropinsurance.entity.enums;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Rollup Bucket - Time bucket of sensor reading aggregates
+ */
+public enum RollupBucket {
+    HOUR(ChronoUnit.HOURS),
+    DAY(ChronoUnit.DAYS);
+
+    private final ChronoUnit unit;
+
+    RollupBucket(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    /**
+     * Start of the bucket containing the given time
+     */
+    public LocalDateTime start(LocalDateTime time) {
+        return time.truncatedTo(unit);
+    }
+}
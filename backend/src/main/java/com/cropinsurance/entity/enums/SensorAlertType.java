@@ -0,0 +1,11 @@
+package com.cropinsurance.entity.enums;
+
+/**
+ * Sensor Alert Type - Anomalies flagged by the streaming detector
+ */
+public enum SensorAlertType {
+    MOISTURE_COLLAPSE, // Soil moisture fell far below its recent level
+    HEAT_SPIKE, // Temperature jumped far above its recent level
+    OUTLIER, // Any other metric far from its recent level
+    STUCK // Sensor keeps reporting exactly the same values
+}
@@ -0,0 +1,621 @@
+package com.cropinsurance.ingest;
+
+import com.cropinsurance.dto.request.SensorReadingRequest;
+import com.cropinsurance.dto.response.SensorReadingResult;
+import com.cropinsurance.service.SensorService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * MQTT Sensor Listener - Optional embedded MQTT 3.1.1 front-end for sensor telemetry.
+ *
+ * Sensors connect with their code as username and their ingest key as password, and publish
+ * JSON readings ({"soilMoisture":..,"humidity":..,"temperature":..,"rainfall":..}) to
+ * sensors/{code}/readings. Publishes are queued and written in batches through SensorService;
+ * QoS 1 PUBACKs are sent only once the batch is committed, in the order the publishes arrived.
+ * If a batch cannot be written, or a reading is refused for now (rate limit of the sensor or of
+ * the client address, full late reading lane), the connection gets no further PUBACKs and is
+ * closed so that the client redelivers after reconnecting.
+ *
+ * This is an ingestion endpoint, not a general broker: subscriptions are refused, retained
+ * messages are ignored and QoS 2 is not supported.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MqttSensorListener {
+
+    private static final Pattern READINGS_TOPIC = Pattern.compile("sensors/([^/+#]+)/readings");
+    private static final int MAX_PACKET_BYTES = 64 * 1024;
+
+    private static final int CONNECT = 1;
+    private static final int PUBLISH = 3;
+    private static final int PUBACK = 4;
+    private static final int SUBSCRIBE = 8;
+    private static final int UNSUBSCRIBE = 10;
+    private static final int PINGREQ = 12;
+    private static final int DISCONNECT = 14;
+
+    private static final int CONNACK_ACCEPTED = 0;
+    private static final int CONNACK_BAD_PROTOCOL = 1;
+    private static final int CONNACK_BAD_CREDENTIALS = 4;
+
+    private final SensorService sensorService;
+    private final SensorCodeCache sensorCodeCache;
+    private final SensorRateLimiter sensorRateLimiter;
+    private final ObjectMapper objectMapper;
+
+    @Value("${sensor.mqtt.enabled:false}")
+    private boolean enabled;
+
+    @Value("${sensor.mqtt.host:0.0.0.0}")
+    private String host;
+
+    @Value("${sensor.mqtt.port:1883}")
+    private int port;
+
+    @Value("${sensor.mqtt.require-auth:true}")
+    private boolean requireAuth;
+
+    @Value("${sensor.mqtt.max-connections:20000}")
+    private int maxConnections;
+
+    @Value("${sensor.mqtt.batch-size:500}")
+    private int batchSize;
+
+    @Value("${sensor.mqtt.queue-capacity:50000}")
+    private int queueCapacity;
+
+    private Selector selector;
+    private Thread selectorThread;
+    private Thread batcherThread;
+    private volatile boolean running;
+
+    private ArrayBlockingQueue<PendingPublish> pending;
+    private final Queue<Connection> writable = new ConcurrentLinkedQueue<>();
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder publishesReceived = new LongAdder();
+    private final LongAdder readingsAccepted = new LongAdder();
+    private final LongAdder readingsRejected = new LongAdder();
+    private final LongAdder invalidPayloads = new LongAdder();
+    private final LongAdder authFailures = new LongAdder();
+    private final LongAdder overloadDisconnects = new LongAdder();
+    private final LongAdder throttledDisconnects = new LongAdder();
+    private final LongAdder writeFailures = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        pending = new ArrayBlockingQueue<>(queueCapacity);
+        selector = Selector.open();
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(host, port), 1024);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+
+        running = true;
+        selectorThread = new Thread(this::runSelector, "sensor-mqtt");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+        batcherThread = new Thread(this::runBatcher, "sensor-mqtt-batcher");
+        batcherThread.setDaemon(true);
+        batcherThread.start();
+        log.info("📡 MQTT sensor listener on port {} (auth {})", port, requireAuth ? "required" : "disabled");
+    }
+
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        batcherThread.interrupt();
+        batcherThread.join(TimeUnit.SECONDS.toMillis(30));
+        for (SelectionKey key : selector.keys()) {
+            key.channel().close();
+        }
+        selector.close();
+    }
+
+    /**
+     * Listener statistics for monitoring
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("connections", connections.size());
+        stats.put("queuedPublishes", pending != null ? pending.size() : 0);
+        stats.put("publishesReceived", publishesReceived.sum());
+        stats.put("readingsAccepted", readingsAccepted.sum());
+        stats.put("readingsRejected", readingsRejected.sum());
+        stats.put("invalidPayloads", invalidPayloads.sum());
+        stats.put("authFailures", authFailures.sum());
+        stats.put("overloadDisconnects", overloadDisconnects.sum());
+        stats.put("throttledDisconnects", throttledDisconnects.sum());
+        stats.put("writeFailures", writeFailures.sum());
+        stats.put("batches", batches.sum());
+        return stats;
+    }
+
+    private void runSelector() {
+        long lastIdleCheck = System.nanoTime();
+        try {
+            while (running) {
+                selector.select(1000);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept((ServerSocketChannel) key.channel());
+                        continue;
+                    }
+                    Connection connection = (Connection) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            read(connection);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            flush(connection);
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        log.debug("Closing MQTT connection: {}", e.getMessage());
+                        close(connection);
+                    }
+                }
+
+                Connection connection;
+                while ((connection = writable.poll()) != null) {
+                    flush(connection);
+                }
+
+                if (System.nanoTime() - lastIdleCheck > TimeUnit.SECONDS.toNanos(1)) {
+                    closeIdleConnections();
+                    lastIdleCheck = System.nanoTime();
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (running) {
+                log.error("MQTT sensor listener failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void accept(ServerSocketChannel server) throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        if (connections.size() >= maxConnections) {
+            channel.close();
+            return;
+        }
+        channel.configureBlocking(false);
+        Connection connection = new Connection(channel, host(channel.getRemoteAddress()));
+        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+        connections.add(connection);
+    }
+
+    private void read(Connection c) throws IOException {
+        int read = c.channel.read(c.in);
+        if (read < 0) {
+            close(c);
+            return;
+        }
+        c.lastActivityNanos = System.nanoTime();
+
+        c.in.flip();
+        while (c.in.remaining() >= 2) {
+            int start = c.in.position();
+            int header = c.in.get() & 0xFF;
+            int length = readRemainingLength(c.in);
+            if (length < 0 || c.in.remaining() < length) {
+                c.in.position(start);
+                break;
+            }
+            ByteBuffer body = c.in.slice(c.in.position(), length);
+            c.in.position(c.in.position() + length);
+            try {
+                handlePacket(c, header, body);
+            } catch (BufferUnderflowException e) {
+                throw new MqttProtocolException("malformed packet");
+            }
+            if (c.closed) {
+                return;
+            }
+        }
+        c.in.compact();
+
+        if (!c.in.hasRemaining()) {
+            // A packet larger than the buffer is still arriving
+            if (c.in.capacity() >= MAX_PACKET_BYTES + 5) {
+                throw new MqttProtocolException("packet too large");
+            }
+            ByteBuffer larger = ByteBuffer.allocate(Math.min(c.in.capacity() * 4, MAX_PACKET_BYTES + 5));
+            c.in.flip();
+            larger.put(c.in);
+            c.in = larger;
+        }
+    }
+
+    private void handlePacket(Connection c, int header, ByteBuffer body) throws IOException {
+        int type = header >>> 4;
+        if (!c.connected && type != CONNECT) {
+            throw new MqttProtocolException("expected CONNECT");
+        }
+        switch (type) {
+            case CONNECT -> handleConnect(c, body);
+            case PUBLISH -> handlePublish(c, header, body);
+            case PUBACK -> {
+                // We never publish to clients
+            }
+            case SUBSCRIBE -> {
+                int packetId = Short.toUnsignedInt(body.getShort());
+                int topics = 0;
+                while (body.hasRemaining()) {
+                    readString(body);
+                    body.get();
+                    topics++;
+                }
+                ByteBuffer suback = ByteBuffer.allocate(4 + topics);
+                suback.put((byte) 0x90).put((byte) (2 + topics)).putShort((short) packetId);
+                for (int i = 0; i < topics; i++) {
+                    suback.put((byte) 0x80); // Failure: this listener does not deliver messages
+                }
+                send(c, suback.flip());
+            }
+            case UNSUBSCRIBE -> send(c, ByteBuffer.allocate(4)
+                    .put((byte) 0xB0).put((byte) 2).putShort(body.getShort()).flip());
+            case PINGREQ -> send(c, ByteBuffer.wrap(new byte[]{(byte) 0xD0, 0}));
+            case DISCONNECT -> close(c);
+            default -> throw new MqttProtocolException("unsupported packet type " + type);
+        }
+    }
+
+    private void handleConnect(Connection c, ByteBuffer body) throws IOException {
+        if (c.connected) {
+            throw new MqttProtocolException("duplicate CONNECT");
+        }
+        String protocol = readString(body);
+        int level = body.get() & 0xFF;
+        if (!"MQTT".equals(protocol) || level != 4) {
+            connack(c, CONNACK_BAD_PROTOCOL);
+            return;
+        }
+        int flags = body.get() & 0xFF;
+        c.keepAliveSeconds = Short.toUnsignedInt(body.getShort());
+        readString(body); // Client identifier
+        if ((flags & 0x04) != 0) {
+            readString(body); // Will topic
+            readBytes(body); // Will message
+        }
+        String username = (flags & 0x80) != 0 ? readString(body) : null;
+        byte[] password = (flags & 0x40) != 0 ? readBytes(body) : null;
+
+        if (requireAuth) {
+            SensorRef sensor = username != null ? sensorCodeCache.find(username).orElse(null) : null;
+            if (sensor == null || !sensor.active() || !matchesIngestKey(sensor, password)) {
+                authFailures.increment();
+                connack(c, CONNACK_BAD_CREDENTIALS);
+                return;
+            }
+            c.sensorCode = sensor.uniqueCode();
+        }
+        c.connected = true;
+        connack(c, CONNACK_ACCEPTED);
+    }
+
+    private void handlePublish(Connection c, int header, ByteBuffer body) throws IOException {
+        int qos = (header >> 1) & 0x03;
+        if (qos > 1) {
+            throw new MqttProtocolException("QoS " + qos + " is not supported");
+        }
+        String topic = readString(body);
+        int packetId = qos == 1 ? Short.toUnsignedInt(body.getShort()) : 0;
+        byte[] payload = new byte[body.remaining()];
+        body.get(payload);
+        publishesReceived.increment();
+
+        SensorReadingRequest request = null;
+        Matcher matcher = READINGS_TOPIC.matcher(topic);
+        if (matcher.matches()) {
+            String sensorCode = matcher.group(1);
+            if (requireAuth && !sensorCode.equals(c.sensorCode)) {
+                authFailures.increment();
+                throw new MqttProtocolException("publish to another sensor's topic");
+            }
+            try {
+                request = objectMapper.readValue(payload, SensorReadingRequest.class);
+                request.setSensorCode(sensorCode);
+            } catch (IOException e) {
+                invalidPayloads.increment();
+            }
+        } else {
+            invalidPayloads.increment();
+        }
+
+        // Invalid publishes are queued too, so that PUBACKs keep the order of the publishes
+        if (!pending.offer(new PendingPublish(c, packetId, request))) {
+            overloadDisconnects.increment();
+            throw new MqttProtocolException("ingest queue full");
+        }
+    }
+
+    private boolean matchesIngestKey(SensorRef sensor, byte[] password) {
+        if (sensor.ingestKey() == null || password == null) {
+            return false;
+        }
+        try {
+            byte[] key = Base64.getDecoder().decode(password);
+            return MessageDigest.isEqual(key, sensor.ingestKey());
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private void connack(Connection c, int returnCode) {
+        send(c, ByteBuffer.wrap(new byte[]{0x20, 2, 0, (byte) returnCode}));
+        if (returnCode != CONNACK_ACCEPTED) {
+            c.closing = true;
+        }
+    }
+
+    private void closeIdleConnections() {
+        long now = System.nanoTime();
+        for (Connection c : connections) {
+            // Keep alive of 0 disables the check; the spec allows one and a half intervals
+            long allowedNanos = TimeUnit.SECONDS.toNanos(c.keepAliveSeconds) * 3 / 2;
+            if (c.keepAliveSeconds > 0 && now - c.lastActivityNanos > allowedNanos) {
+                close(c);
+            }
+        }
+    }
+
+    /**
+     * Queue an outgoing packet; may be called from any thread
+     */
+    private void send(Connection c, ByteBuffer packet) {
+        c.out.add(packet);
+        writable.add(c);
+        if (Thread.currentThread() != selectorThread) {
+            selector.wakeup();
+        }
+    }
+
+    private void flush(Connection c) {
+        if (c.closed) {
+            return;
+        }
+        try {
+            ByteBuffer packet;
+            while ((packet = c.out.peek()) != null) {
+                c.channel.write(packet);
+                if (packet.hasRemaining()) {
+                    break;
+                }
+                c.out.poll();
+            }
+            if (c.out.isEmpty()) {
+                if (c.closing) {
+                    close(c);
+                    return;
+                }
+                c.key.interestOps(SelectionKey.OP_READ);
+            } else {
+                c.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+        } catch (IOException e) {
+            close(c);
+        }
+    }
+
+    /**
+     * Close a connection once its queued writes are out, so that its client redelivers unacknowledged publishes
+     */
+    private void refuse(Connection c) {
+        c.closing = true;
+        writable.add(c);
+    }
+
+    private static String host(SocketAddress address) {
+        return address instanceof InetSocketAddress inet ? inet.getAddress().getHostAddress() : String.valueOf(address);
+    }
+
+    private void close(Connection c) {
+        if (c.closed) {
+            return;
+        }
+        c.closed = true;
+        connections.remove(c);
+        c.key.cancel();
+        try {
+            c.channel.close();
+        } catch (IOException ignored) {
+            // Nothing left to release
+        }
+    }
+
+    private void runBatcher() {
+        List<PendingPublish> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                PendingPublish first = pending.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                pending.drainTo(batch, batchSize - 1);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<PendingPublish> batch) {
+        List<SensorReadingRequest> requests = new ArrayList<>(batch.size());
+        List<PendingPublish> written = new ArrayList<>(batch.size());
+        Set<PendingPublish> refused = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (PendingPublish publish : batch) {
+            if (publish.request() == null || publish.connection().closing || publish.connection().closed) {
+                continue;
+            }
+            if (sensorRateLimiter.tryAcquireGateway(publish.connection().source, 1)) {
+                requests.add(publish.request());
+                written.add(publish);
+            } else {
+                refused.add(publish);
+            }
+        }
+
+        try {
+            if (!requests.isEmpty()) {
+                // The client address limit was taken per publish above
+                List<SensorReadingResult> results = sensorService.recordReadings(requests, true, null);
+                for (int i = 0; i < results.size(); i++) {
+                    SensorReadingResult result = results.get(i);
+                    if (result.isSuccess()) {
+                        readingsAccepted.increment();
+                    } else {
+                        readingsRejected.increment();
+                        if (result.isRetryable()) {
+                            refused.add(written.get(i));
+                        }
+                    }
+                }
+            }
+            batches.increment();
+        } catch (RuntimeException e) {
+            // Nothing is acknowledged; closing makes the clients redeliver after reconnecting
+            writeFailures.increment();
+            log.warn("MQTT batch of {} readings failed: {}", requests.size(), e.getMessage());
+            batch.forEach(publish -> refuse(publish.connection()));
+            selector.wakeup();
+            return;
+        }
+
+        // Readings that cannot succeed (unknown sensor, invalid values) are acknowledged. A refused
+        // reading is not, and neither is anything after it on that connection, as PUBACKs go out in order.
+        for (PendingPublish publish : batch) {
+            Connection c = publish.connection();
+            if (c.closing || c.closed) {
+                continue;
+            }
+            if (refused.contains(publish)) {
+                throttledDisconnects.increment();
+                refuse(c);
+            } else if (publish.packetId() > 0) {
+                send(c, ByteBuffer.allocate(4)
+                        .put((byte) 0x40).put((byte) 2).putShort((short) publish.packetId()).flip());
+            }
+        }
+        if (!refused.isEmpty()) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Variable-length remaining length; -1 when more bytes are needed
+     */
+    private static int readRemainingLength(ByteBuffer buffer) throws MqttProtocolException {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int b = buffer.get() & 0xFF;
+            value |= (b & 0x7F) << (7 * i);
+            if ((b & 0x80) == 0) {
+                if (value > MAX_PACKET_BYTES) {
+                    throw new MqttProtocolException("packet too large");
+                }
+                return value;
+            }
+        }
+        throw new MqttProtocolException("malformed remaining length");
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        return new String(readBytes(buffer), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private record PendingPublish(Connection connection, int packetId, SensorReadingRequest request) {
+    }
+
+    private static final class Connection {
+        private final SocketChannel channel;
+        private final String source;
+        private final Queue<ByteBuffer> out = new ConcurrentLinkedQueue<>();
+        private SelectionKey key;
+        private ByteBuffer in = ByteBuffer.allocate(4096);
+        private boolean connected;
+        private String sensorCode;
+        private int keepAliveSeconds;
+        private long lastActivityNanos = System.nanoTime();
+        private volatile boolean closing;
+        private volatile boolean closed;
+
+        private Connection(SocketChannel channel, String source) {
+            this.channel = channel;
+            this.source = source;
+        }
+    }
+
+    private static final class MqttProtocolException extends IOException {
+        private MqttProtocolException(String message) {
+            super(message);
+        }
+    }
+}
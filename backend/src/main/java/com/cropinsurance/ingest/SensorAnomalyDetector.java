@@ -0,0 +1,358 @@
+package com.cropinsurance.ingest;
+
+import com.cropinsurance.entity.SensorAlert;
+import com.cropinsurance.entity.enums.NotificationType;
+import com.cropinsurance.entity.enums.SensorAlertType;
+import com.cropinsurance.repository.LandRepository;
+import com.cropinsurance.repository.SensorAlertRepository;
+import com.cropinsurance.repository.SensorRepository;
+import com.cropinsurance.service.NotificationService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sensor Anomaly Detector - Streaming per-sensor statistics over committed readings.
+ *
+ * For soil moisture, humidity and temperature it keeps an EWMA mean and variance and the
+ * previous value, in primitive arrays indexed by the sensor's dense ordinal, so the state is
+ * O(1) per sensor and evaluating a reading allocates nothing unless an alert fires. It flags:
+ * <ul>
+ *   <li>MOISTURE_COLLAPSE - soil moisture far below its EWMA, or falling faster than allowed</li>
+ *   <li>HEAT_SPIKE - temperature far above its EWMA</li>
+ *   <li>OUTLIER - any other metric more than the z-score threshold away from its EWMA</li>
+ *   <li>STUCK - the same values reported many times in a row</li>
+ * </ul>
+ * Alerts are queued and written to sensor_alerts by a scheduled flush, optionally also
+ * notifying the farmer whose land carries the sensor.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SensorAnomalyDetector {
+
+    private static final int SOIL_MOISTURE = 0;
+    private static final int HUMIDITY = 1;
+    private static final int TEMPERATURE = 2;
+    private static final int METRICS = 3;
+    private static final String[] METRIC_NAMES = {"soilMoisture", "humidity", "temperature"};
+    private static final String[] METRIC_LABELS = {"Soil moisture", "Humidity", "Temperature"};
+
+    private static final int TYPES = SensorAlertType.values().length;
+    private static final int STRIPES = 64;
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private final SensorCodeCache sensorCodeCache;
+    private final SensorAlertRepository sensorAlertRepository;
+    private final SensorRepository sensorRepository;
+    private final LandRepository landRepository;
+    private final NotificationService notificationService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${sensor.anomaly.enabled:true}")
+    private boolean enabled;
+
+    @Value("${sensor.anomaly.alpha:0.1}")
+    private double alpha;
+
+    @Value("${sensor.anomaly.warmup-readings:20}")
+    private int warmupReadings;
+
+    @Value("${sensor.anomaly.z-threshold:4.0}")
+    private double zThreshold;
+
+    @Value("${sensor.anomaly.min-std-dev:0.5}")
+    private double minStdDev;
+
+    @Value("${sensor.anomaly.moisture-drop-per-hour:20}")
+    private double moistureDropPerHour;
+
+    @Value("${sensor.anomaly.moisture-min-drop:10}")
+    private double moistureMinDrop;
+
+    @Value("${sensor.anomaly.stuck-readings:30}")
+    private int stuckReadings;
+
+    @Value("${sensor.anomaly.cooldown-minutes:60}")
+    private long cooldownMinutes;
+
+    @Value("${sensor.anomaly.notify-farmer:false}")
+    private boolean notifyFarmer;
+
+    private final Object[] locks = newLocks();
+    private volatile State state = new State(1024);
+
+    private final ArrayBlockingQueue<PendingAlert> pendingAlerts = new ArrayBlockingQueue<>(10_000);
+    private final LongAdder evaluatedCount = new LongAdder();
+    private final LongAdder outOfOrderCount = new LongAdder();
+    private final LongAdder droppedAlertCount = new LongAdder();
+    private final LongAdder[] alertCounts = newCounters();
+
+    /**
+     * Evaluate a committed reading against its sensor's statistics and update them
+     */
+    public void evaluate(SensorSample sample) {
+        if (!enabled) {
+            return;
+        }
+        UUID sensorId = sample.sensorId();
+        int ordinal = sensorCodeCache.ordinalOf(sensorId);
+        if (ordinal >= state.capacity) {
+            grow(ordinal);
+        }
+        LocalDateTime recordedAt = sample.recordedAt();
+        long time = recordedAt.toEpochSecond(ZONE.getRules().getOffset(recordedAt)) * 1000;
+
+        synchronized (locks[ordinal & (STRIPES - 1)]) {
+            State s = state;
+            int base = ordinal * METRICS;
+            int n = s.count[ordinal];
+            if (n > 0 && time < s.lastTime[ordinal]) {
+                // Older than what the statistics already hold; rates and streaks would go backwards
+                outOfOrderCount.increment();
+                return;
+            }
+            double hours = n > 0 ? Math.max(time - s.lastTime[ordinal], 60_000) / 3_600_000.0 : 0;
+            boolean unchanged = n > 0;
+
+            for (int m = 0; m < METRICS; m++) {
+                int value = sample.value(m);
+                if (value == SensorSample.MISSING) {
+                    unchanged = false;
+                    continue;
+                }
+                double x = value / 100.0;
+                int i = base + m;
+
+                if (n == 0) {
+                    s.mean[i] = x;
+                    s.variance[i] = 0;
+                    s.last[i] = x;
+                    continue;
+                }
+                unchanged &= x == s.last[i];
+
+                if (n >= warmupReadings) {
+                    double z = (x - s.mean[i]) / Math.max(Math.sqrt(s.variance[i]), minStdDev);
+                    double drop = s.last[i] - x;
+                    if (m == SOIL_MOISTURE && (z < -zThreshold
+                            || (drop >= moistureMinDrop && drop / hours >= moistureDropPerHour))) {
+                        raise(s, ordinal, sensorId, SensorAlertType.MOISTURE_COLLAPSE, m, x, s.mean[i], time, recordedAt);
+                    } else if (m == TEMPERATURE && z > zThreshold) {
+                        raise(s, ordinal, sensorId, SensorAlertType.HEAT_SPIKE, m, x, s.mean[i], time, recordedAt);
+                    } else if (Math.abs(z) > zThreshold) {
+                        raise(s, ordinal, sensorId, SensorAlertType.OUTLIER, m, x, s.mean[i], time, recordedAt);
+                    }
+                }
+
+                // Incremental EWMA mean and variance
+                double diff = x - s.mean[i];
+                double increment = alpha * diff;
+                s.mean[i] += increment;
+                s.variance[i] = (1 - alpha) * (s.variance[i] + diff * increment);
+                s.last[i] = x;
+            }
+
+            s.sameCount[ordinal] = unchanged ? s.sameCount[ordinal] + 1 : 0;
+            if (s.sameCount[ordinal] == stuckReadings) {
+                raise(s, ordinal, sensorId, SensorAlertType.STUCK, -1, 0, 0, time, recordedAt);
+            }
+            s.count[ordinal] = n == Integer.MAX_VALUE ? n : n + 1;
+            s.lastTime[ordinal] = Math.max(time, s.lastTime[ordinal]);
+        }
+        evaluatedCount.increment();
+    }
+
+    /**
+     * Persist queued alerts and notify farmers
+     */
+    @Scheduled(fixedDelayString = "${sensor.anomaly.flush-interval-ms:5000}")
+    public void flush() {
+        if (pendingAlerts.isEmpty()) {
+            return;
+        }
+        List<PendingAlert> batch = new ArrayList<>(pendingAlerts.size());
+        pendingAlerts.drainTo(batch);
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> sensorAlertRepository.saveAll(batch.stream()
+                    .map(alert -> SensorAlert.builder()
+                            .sensor(sensorRepository.getReferenceById(alert.sensorId()))
+                            .type(alert.type())
+                            .metric(alert.metric())
+                            .value(alert.value())
+                            .expected(alert.expected())
+                            .message(alert.message())
+                            .detectedAt(alert.detectedAt())
+                            .build())
+                    .toList()));
+        } catch (RuntimeException e) {
+            log.error("Failed to store {} sensor alerts: {}", batch.size(), e.getMessage());
+            droppedAlertCount.add(batch.size());
+            return;
+        }
+
+        for (PendingAlert alert : batch) {
+            log.info("🚨 Sensor alert {}: {}", alert.type(), alert.message());
+            if (notifyFarmer) {
+                notify(alert);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * Detector statistics for monitoring
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("evaluated", evaluatedCount.sum());
+        stats.put("skippedOutOfOrder", outOfOrderCount.sum());
+        for (SensorAlertType type : SensorAlertType.values()) {
+            stats.put(type.name(), alertCounts[type.ordinal()].sum());
+        }
+        stats.put("pendingAlerts", pendingAlerts.size());
+        stats.put("droppedAlerts", droppedAlertCount.sum());
+        return stats;
+    }
+
+    private void raise(State s, int ordinal, UUID sensorId, SensorAlertType type, int metric,
+                       double value, double expected, long time, LocalDateTime recordedAt) {
+        int slot = ordinal * TYPES + type.ordinal();
+        if (s.lastAlert[slot] != 0 && time - s.lastAlert[slot] < cooldownMinutes * 60_000) {
+            return;
+        }
+        s.lastAlert[slot] = time;
+        alertCounts[type.ordinal()].increment();
+
+        PendingAlert alert = metric < 0
+                ? new PendingAlert(sensorId, type, null, null, null,
+                        String.format("Sensor has reported identical values %d times in a row", stuckReadings),
+                        recordedAt)
+                : new PendingAlert(sensorId, type, METRIC_NAMES[metric], decimal(value), decimal(expected),
+                        String.format("%s %.2f against a recent level of %.2f", METRIC_LABELS[metric], value, expected),
+                        recordedAt);
+        if (!pendingAlerts.offer(alert)) {
+            droppedAlertCount.increment();
+        }
+    }
+
+    private void notify(PendingAlert alert) {
+        try {
+            landRepository.findBySensorId(alert.sensorId()).ifPresent(land -> notificationService.sendNotification(
+                    land.getFarmer().getId(),
+                    "Field sensor alert",
+                    "Khasra " + land.getKhasraNumber() + ": " + alert.message(),
+                    NotificationType.SENSOR));
+        } catch (RuntimeException e) {
+            log.warn("Failed to notify farmer of sensor alert: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Grow the state arrays; holds every stripe so no update runs against the old arrays
+     */
+    private void grow(int ordinal) {
+        growHoldingStripes(0, ordinal);
+    }
+
+    private void growHoldingStripes(int stripe, int ordinal) {
+        if (stripe < STRIPES) {
+            synchronized (locks[stripe]) {
+                growHoldingStripes(stripe + 1, ordinal);
+            }
+            return;
+        }
+        State current = state;
+        if (ordinal < current.capacity) {
+            return;
+        }
+        state = current.copy(Math.max(current.capacity * 2, ordinal + 1));
+    }
+
+    private static BigDecimal decimal(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private static Object[] newLocks() {
+        Object[] locks = new Object[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        return locks;
+    }
+
+    private static LongAdder[] newCounters() {
+        LongAdder[] counters = new LongAdder[TYPES];
+        for (int i = 0; i < TYPES; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+
+    private record PendingAlert(UUID sensorId, SensorAlertType type, String metric, BigDecimal value,
+                                BigDecimal expected, String message, LocalDateTime detectedAt) {
+    }
+
+    /**
+     * Structure-of-arrays state; per-metric arrays are indexed by ordinal * METRICS + metric
+     */
+    private static final class State {
+        private final int capacity;
+        private final double[] mean;
+        private final double[] variance;
+        private final double[] last;
+        private final long[] lastTime;
+        private final int[] count;
+        private final int[] sameCount;
+        private final long[] lastAlert;
+
+        private State(int capacity) {
+            this.capacity = capacity;
+            this.mean = new double[capacity * METRICS];
+            this.variance = new double[capacity * METRICS];
+            this.last = new double[capacity * METRICS];
+            this.lastTime = new long[capacity];
+            this.count = new int[capacity];
+            this.sameCount = new int[capacity];
+            this.lastAlert = new long[capacity * TYPES];
+        }
+
+        private State(State other, int capacity) {
+            this.capacity = capacity;
+            this.mean = Arrays.copyOf(other.mean, capacity * METRICS);
+            this.variance = Arrays.copyOf(other.variance, capacity * METRICS);
+            this.last = Arrays.copyOf(other.last, capacity * METRICS);
+            this.lastTime = Arrays.copyOf(other.lastTime, capacity);
+            this.count = Arrays.copyOf(other.count, capacity);
+            this.sameCount = Arrays.copyOf(other.sameCount, capacity);
+            this.lastAlert = Arrays.copyOf(other.lastAlert, capacity * TYPES);
+        }
+
+        private State copy(int capacity) {
+            return new State(this, capacity);
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.cropinsurance.ingest;
+
+import com.cropinsurance.entity.Sensor;
+import com.cropinsurance.entity.SensorReading;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Sensor Block Codec - Gorilla-style compression of one sensor's readings for cold storage.
+ *
+ * Timestamps (microseconds, as stored by PostgreSQL) are written as delta-of-delta with
+ * variable-width buckets, so regularly spaced readings cost a few bits each. Each metric is a
+ * scaled integer (hundredths) written as the zigzag delta from the previous value of the same
+ * metric; an unchanged value costs one bit. Missing values have their own code.
+ *
+ * Version 2 also keeps each reading's device sequence, usually one bit as the previous plus one.
+ *
+ * Block layout: u8 version, u32 count, i64 first timestamp, then the bit stream. The random row
+ * ids are not kept: a numbered reading gets back the id SensorSample.idFor gave it, any other a
+ * deterministic id from sensor id, timestamp and its position among the unnumbered readings with
+ * that timestamp, so readings sharing a timestamp keep distinct ids. Version 1 blocks (no
+ * sequences) decode to the same ids as before.
+ */
+public final class SensorBlockCodec {
+
+    private static final int VERSION_UNSEQUENCED = 1;
+    private static final int VERSION = 2;
+    private static final int METRICS = 4;
+    private static final int MISSING = SensorSample.MISSING;
+
+    private SensorBlockCodec() {
+    }
+
+    /**
+     * Encode readings of one sensor; they are sorted by recorded time first
+     */
+    public static byte[] encode(List<SensorReading> readings) {
+        List<SensorReading> sorted = new ArrayList<>(readings);
+        sorted.sort((a, b) -> a.getRecordedAt().compareTo(b.getRecordedAt()));
+
+        BitWriter out = new BitWriter(16 + sorted.size() * 8);
+        out.write(VERSION, 8);
+        out.write(sorted.size(), 32);
+
+        long previousTime = 0;
+        long previousDelta = 0;
+        long previousSequence = SensorSample.NO_SEQUENCE;
+        int[] previous = new int[METRICS];
+        for (int i = 0; i < sorted.size(); i++) {
+            SensorReading reading = sorted.get(i);
+            long time = toMicros(reading.getRecordedAt());
+            if (i == 0) {
+                out.write(time, 64);
+            } else {
+                long delta = time - previousTime;
+                writeDeltaOfDelta(out, delta - previousDelta);
+                previousDelta = delta;
+            }
+            previousTime = time;
+
+            writeValue(out, reading.getSoilMoisture(), previous, 0);
+            writeValue(out, reading.getHumidity(), previous, 1);
+            writeValue(out, reading.getTemperature(), previous, 2);
+            writeValue(out, reading.getRainfall(), previous, 3);
+
+            Long sequence = reading.getSequence();
+            if (sequence != null) {
+                writeSequence(out, sequence, previousSequence);
+                previousSequence = sequence;
+            } else {
+                out.write(0b0, 1);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decode a block into readings of the given sensor, oldest first
+     */
+    public static List<SensorReading> decode(byte[] data, Sensor sensor) {
+        BitReader in = new BitReader(data);
+        int version = (int) in.read(8);
+        if (version != VERSION && version != VERSION_UNSEQUENCED) {
+            throw new IllegalStateException("Unsupported sensor block version " + version);
+        }
+        int count = (int) in.read(32);
+
+        List<SensorReading> readings = new ArrayList<>(count);
+        long time = 0;
+        long delta = 0;
+        long sequence = SensorSample.NO_SEQUENCE;
+        int sameTime = 0;
+        int[] previous = new int[METRICS];
+        int[] values = new int[METRICS];
+        for (int i = 0; i < count; i++) {
+            if (i == 0) {
+                time = in.read(64);
+            } else {
+                delta += readDeltaOfDelta(in);
+                time += delta;
+                if (delta != 0) {
+                    sameTime = 0;
+                }
+            }
+            for (int m = 0; m < METRICS; m++) {
+                values[m] = readValue(in, previous, m);
+            }
+            boolean numbered = version == VERSION && in.read(1) == 1;
+            if (numbered) {
+                sequence = readSequence(in, sequence);
+            }
+            LocalDateTime recordedAt = fromMicros(time);
+            readings.add(SensorReading.builder()
+                    .id(numbered ? SensorSample.idFor(sensor.getId(), recordedAt, sequence)
+                            : readingId(sensor.getId(), time, sameTime++))
+                    .sensor(sensor)
+                    .soilMoisture(SensorSample.toDecimal(values[0]))
+                    .humidity(SensorSample.toDecimal(values[1]))
+                    .temperature(SensorSample.toDecimal(values[2]))
+                    .rainfall(SensorSample.toDecimal(values[3]))
+                    .recordedAt(recordedAt)
+                    .sequence(numbered ? sequence : null)
+                    .build());
+        }
+        return readings;
+    }
+
+    static long toMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + time.getNano() / 1_000;
+    }
+
+    static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    /**
+     * Id of the occurrence-th unnumbered reading at a timestamp; the first keeps the version 1 id
+     */
+    private static UUID readingId(UUID sensorId, long micros, int occurrence) {
+        ByteBuffer key = ByteBuffer.allocate(occurrence == 0 ? 24 : 28)
+                .putLong(sensorId.getMostSignificantBits())
+                .putLong(sensorId.getLeastSignificantBits())
+                .putLong(micros);
+        if (occurrence > 0) {
+            key.putInt(occurrence);
+        }
+        return UUID.nameUUIDFromBytes(key.array());
+    }
+
+    // After the '1' that marks a numbered reading: '0' previous + 1, '1' 64 bits
+    private static void writeSequence(BitWriter out, long sequence, long previous) {
+        if (previous != SensorSample.NO_SEQUENCE && sequence == previous + 1) {
+            out.write(0b10, 2);
+        } else {
+            out.write(0b11, 2);
+            out.write(sequence, 64);
+        }
+    }
+
+    private static long readSequence(BitReader in, long previous) {
+        return in.read(1) == 0 ? previous + 1 : in.read(64);
+    }
+
+    // '0' same spacing, '10' 20 bits, '110' 32 bits, '111' 64 bits
+    private static void writeDeltaOfDelta(BitWriter out, long dod) {
+        if (dod == 0) {
+            out.write(0b0, 1);
+        } else if (fits(dod, 20)) {
+            out.write(0b10, 2);
+            out.write(dod, 20);
+        } else if (fits(dod, 32)) {
+            out.write(0b110, 3);
+            out.write(dod, 32);
+        } else {
+            out.write(0b111, 3);
+            out.write(dod, 64);
+        }
+    }
+
+    private static long readDeltaOfDelta(BitReader in) {
+        if (in.read(1) == 0) {
+            return 0;
+        }
+        if (in.read(1) == 0) {
+            return in.readSigned(20);
+        }
+        return in.read(1) == 0 ? in.readSigned(32) : in.read(64);
+    }
+
+    // '0' unchanged, '10' 7-bit zigzag delta, '110' 16 bits, '1110' 32 bits, '1111' missing
+    private static void writeValue(BitWriter out, BigDecimal value, int[] previous, int metric) {
+        if (value == null) {
+            out.write(0b1111, 4);
+            return;
+        }
+        int centi = SensorSample.toCenti(value);
+        long zigzag = zigzag((long) centi - previous[metric]);
+        previous[metric] = centi;
+        if (zigzag == 0) {
+            out.write(0b0, 1);
+        } else if (zigzag < (1 << 7)) {
+            out.write(0b10, 2);
+            out.write(zigzag, 7);
+        } else if (zigzag < (1 << 16)) {
+            out.write(0b110, 3);
+            out.write(zigzag, 16);
+        } else {
+            out.write(0b1110, 4);
+            out.write(zigzag, 33);
+        }
+    }
+
+    private static int readValue(BitReader in, int[] previous, int metric) {
+        long zigzag;
+        if (in.read(1) == 0) {
+            zigzag = 0;
+        } else if (in.read(1) == 0) {
+            zigzag = in.read(7);
+        } else if (in.read(1) == 0) {
+            zigzag = in.read(16);
+        } else if (in.read(1) == 0) {
+            zigzag = in.read(33);
+        } else {
+            return MISSING;
+        }
+        previous[metric] += (int) unzigzag(zigzag);
+        return previous[metric];
+    }
+
+    private static boolean fits(long value, int bits) {
+        long limit = 1L << (bits - 1);
+        return value >= -limit && value < limit;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class BitWriter {
+        private byte[] buffer;
+        private long bitLength;
+
+        private BitWriter(int initialBytes) {
+            buffer = new byte[Math.max(16, initialBytes)];
+        }
+
+        /**
+         * Append the low {@code bits} bits of value, most significant first
+         */
+        private void write(long value, int bits) {
+            for (int i = bits - 1; i >= 0; i--) {
+                int byteIndex = (int) (bitLength >>> 3);
+                if (byteIndex == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                if (((value >>> i) & 1) != 0) {
+                    buffer[byteIndex] |= (byte) (0x80 >>> (bitLength & 7));
+                }
+                bitLength++;
+            }
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buffer, (int) ((bitLength + 7) >>> 3));
+        }
+    }
+
+    private static final class BitReader {
+        private final byte[] buffer;
+        private long position;
+
+        private BitReader(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        private long read(int bits) {
+            long value = 0;
+            for (int i = 0; i < bits; i++) {
+                int bit = (buffer[(int) (position >>> 3)] >>> (7 - (position & 7))) & 1;
+                value = (value << 1) | bit;
+                position++;
+            }
+            return value;
+        }
+
+        private long readSigned(int bits) {
+            return read(bits) << (64 - bits) >> (64 - bits);
+        }
+    }
+}
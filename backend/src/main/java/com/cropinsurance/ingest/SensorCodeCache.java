@@ -0,0 +1,244 @@
+package com.cropinsurance.ingest;
+
+import com.cropinsurance.exception.BadRequestException;
+import com.cropinsurance.exception.ResourceNotFoundException;
+import com.cropinsurance.repository.SensorRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sensor Code Cache - Resolves sensor unique codes to ids without a database round trip.
+ * The fleet is almost static, so the whole code → id map is loaded at startup and kept
+ * in a ConcurrentHashMap (lock-free reads). Entries are dropped when a sensor is
+ * assigned or deactivated on this node and reloaded on the next lookup. Changes made on other
+ * nodes are picked up by a periodic refresh of the sensors whose updated_at moved, so a
+ * deactivation or key rotation takes effect everywhere within the refresh interval. Codes that
+ * are not found are remembered for a while too, so that unknown codes do not cost a query each.
+ *
+ * A lookup that read a sensor before a local change committed must not put the old entry back
+ * after the invalidation: every invalidation bumps a counter, and a loaded entry is only cached
+ * (under the map's lock for that code) when no invalidation happened since its query started.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SensorCodeCache {
+
+    private static final int MAX_UNKNOWN_CODES = 100_000;
+    // Re-read changes this far behind the newest updated_at seen: transactions still committing, clock skew
+    private static final Duration REFRESH_OVERLAP = Duration.ofMinutes(5);
+
+    private final SensorRepository sensorRepository;
+
+    @Value("${sensor.code-cache.unknown-ttl-seconds:60}")
+    private long unknownTtlSeconds;
+
+    private final ConcurrentHashMap<String, SensorRef> refsByCode = new ConcurrentHashMap<>();
+    // Unknown code -> nanoTime until which it is not looked up again
+    private final ConcurrentHashMap<String, Long> unknownCodes = new ConcurrentHashMap<>();
+
+    // Dense 0..n-1 numbering of sensors for per-sensor state kept in primitive arrays
+    private final ConcurrentHashMap<UUID, Integer> ordinals = new ConcurrentHashMap<>();
+    private final AtomicInteger nextOrdinal = new AtomicInteger();
+
+    private final AtomicLong invalidations = new AtomicLong();
+    private volatile LocalDateTime refreshedUpTo;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        long generation = invalidations.get();
+        LocalDateTime started = LocalDateTime.now();
+        List<Object[]> rows = sensorRepository.findAllRefs();
+        rows.forEach(row -> putIfCurrent(toRef(row), generation));
+        refreshedUpTo = newest(rows, started);
+        log.info("📡 Sensor code cache loaded with {} sensors", refsByCode.size());
+    }
+
+    /**
+     * Reload sensors changed (on any node) since the last refresh
+     */
+    @Scheduled(fixedDelayString = "${sensor.code-cache.refresh-interval-ms:30000}",
+            initialDelayString = "${sensor.code-cache.refresh-interval-ms:30000}")
+    public void refresh() {
+        LocalDateTime since = refreshedUpTo;
+        if (since == null) {
+            return; // Not warmed up yet
+        }
+        try {
+            long generation = invalidations.get();
+            List<Object[]> rows = sensorRepository.findRefsUpdatedSince(since.minus(REFRESH_OVERLAP));
+            rows.forEach(row -> putIfCurrent(toRef(row), generation));
+            if (invalidations.get() == generation) {
+                refreshedUpTo = newest(rows, since);
+            }
+            if (!rows.isEmpty()) {
+                log.debug("Sensor code cache refreshed {} sensors changed since {}", rows.size(), since);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Sensor code cache refresh failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Resolve a sensor code, loading it from the database on a miss
+     */
+    public Optional<SensorRef> find(String code) {
+        SensorRef ref = refsByCode.get(code);
+        if (ref != null) {
+            return Optional.of(ref);
+        }
+        if (isKnownUnknown(code)) {
+            return Optional.empty();
+        }
+        long generation = invalidations.get();
+        Optional<SensorRef> loaded = sensorRepository.findRefByUniqueCode(code).stream()
+                .findFirst()
+                .map(row -> putIfCurrent(toRef(row), generation));
+        if (loaded.isEmpty()) {
+            rememberUnknown(code);
+        }
+        return loaded;
+    }
+
+    /**
+     * Resolve a sensor code from memory only; null when it would need a database lookup
+     */
+    public SensorRef findCached(String code) {
+        return refsByCode.get(code);
+    }
+
+    /**
+     * Resolve a sensor code that must exist and be active
+     */
+    public SensorRef require(String code) {
+        SensorRef ref = find(code)
+                .orElseThrow(() -> new ResourceNotFoundException("Sensor", "code", code));
+        if (!ref.active()) {
+            throw new BadRequestException("Sensor " + code + " is inactive");
+        }
+        return ref;
+    }
+
+    /**
+     * Resolve many codes at once; misses are loaded with a single query.
+     * Unknown codes are absent from the result.
+     */
+    public Map<String, SensorRef> findAll(Collection<String> codes) {
+        Map<String, SensorRef> result = new HashMap<>();
+        List<String> misses = new ArrayList<>();
+        for (String code : codes) {
+            SensorRef ref = refsByCode.get(code);
+            if (ref != null) {
+                result.put(code, ref);
+            } else {
+                misses.add(code);
+            }
+        }
+        misses.removeIf(this::isKnownUnknown);
+        if (!misses.isEmpty()) {
+            long generation = invalidations.get();
+            sensorRepository.findRefsByUniqueCodeIn(misses).forEach(row -> {
+                SensorRef ref = putIfCurrent(toRef(row), generation);
+                result.put(ref.uniqueCode(), ref);
+            });
+            misses.stream().filter(code -> !result.containsKey(code)).forEach(this::rememberUnknown);
+        }
+        return result;
+    }
+
+    /**
+     * Drop a cached sensor once the surrounding transaction commits (immediately if there is none)
+     */
+    public void invalidate(String code) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(code);
+                }
+            });
+        } else {
+            evict(code);
+        }
+    }
+
+    public int size() {
+        return refsByCode.size();
+    }
+
+    /**
+     * Stable dense ordinal of a sensor for this process; assigned on first use
+     */
+    public int ordinalOf(UUID sensorId) {
+        Integer ordinal = ordinals.get(sensorId);
+        return ordinal != null ? ordinal : ordinals.computeIfAbsent(sensorId, id -> nextOrdinal.getAndIncrement());
+    }
+
+    private void evict(String code) {
+        // Counted first: a lookup that checks after this sees it, one that checked before has put already
+        invalidations.incrementAndGet();
+        refsByCode.remove(code);
+        unknownCodes.remove(code);
+    }
+
+    /**
+     * Cache a ref loaded by a query started at the given invalidation count, unless an invalidation
+     * happened since (the row may predate it); the ref is returned either way
+     */
+    private SensorRef putIfCurrent(SensorRef ref, long generation) {
+        refsByCode.compute(ref.uniqueCode(),
+                (code, current) -> invalidations.get() == generation ? ref : current);
+        unknownCodes.remove(ref.uniqueCode());
+        return ref;
+    }
+
+    private static LocalDateTime newest(List<Object[]> rows, LocalDateTime floor) {
+        LocalDateTime newest = floor;
+        for (Object[] row : rows) {
+            LocalDateTime updatedAt = (LocalDateTime) row[5];
+            if (updatedAt != null && updatedAt.isAfter(newest)) {
+                newest = updatedAt;
+            }
+        }
+        return newest;
+    }
+
+    private boolean isKnownUnknown(String code) {
+        Long until = unknownCodes.get(code);
+        if (until == null) {
+            return false;
+        }
+        if (until - System.nanoTime() > 0) {
+            return true;
+        }
+        unknownCodes.remove(code, until);
+        return false;
+    }
+
+    private void rememberUnknown(String code) {
+        if (unknownCodes.size() >= MAX_UNKNOWN_CODES) {
+            unknownCodes.clear(); // Flood of made-up codes: start over rather than grow
+        }
+        unknownCodes.put(code, System.nanoTime() + TimeUnit.SECONDS.toNanos(unknownTtlSeconds));
+    }
+
+    private SensorRef toRef(Object[] row) {
+        byte[] ingestKey = row[3] != null ? Base64.getDecoder().decode((String) row[3]) : null;
+        return new SensorRef((UUID) row[0], (String) row[1], !Boolean.FALSE.equals(row[2]), ingestKey, (String) row[4]);
+    }
+}
@@ -0,0 +1,132 @@
+package com.cropinsurance.ingest;
+
+import com.cropinsurance.exception.BadRequestException;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Sensor Frame Decoder - Compact binary encoding of sensor readings for low-bandwidth links.
+ *
+ * Frame layout (big-endian):
+ * <pre>
+ *   u16  magic          0x5352 ("SR")
+ *   u8   version        1
+ *   u8   code length    n (1..64)
+ *   n    sensor code    ASCII
+ *   u16  reading count  m (1..65535)
+ *   u32  first sequence version 2 only: reading i has sequence first + i
+ *   m x 12 bytes:
+ *     u32  recorded at  epoch seconds (UTC), 0 = use server time
+ *     i16  soil moisture, humidity, temperature, rainfall in hundredths; 0x8000 = missing
+ * </pre>
+ * A reading costs 12 bytes instead of roughly 120 bytes of JSON. Values outside
+ * -327.67..327.67 cannot be encoded. Version 2 numbers the readings so that a frame sent
+ * again is stored once; its readings must carry a timestamp.
+ */
+public final class SensorFrameDecoder {
+
+    public static final int MAGIC = 0x5352;
+    public static final int VERSION = 1;
+    public static final int VERSION_SEQUENCED = 2;
+    public static final int READING_BYTES = 12;
+    public static final short MISSING_VALUE = Short.MIN_VALUE;
+
+    private static final int MAX_CODE_LENGTH = 64;
+
+    private SensorFrameDecoder() {
+    }
+
+    /**
+     * Decode one frame; the whole body must be consumed
+     */
+    public static SensorFrame decode(byte[] body) {
+        if (body == null) {
+            throw invalid("empty body");
+        }
+        return decode(ByteBuffer.wrap(body));
+    }
+
+    /**
+     * Decode one frame spanning the buffer's position to its limit
+     */
+    public static SensorFrame decode(ByteBuffer frame) {
+        ByteBuffer buffer = frame.duplicate().order(ByteOrder.BIG_ENDIAN);
+        try {
+            int magic = Short.toUnsignedInt(buffer.getShort());
+            if (magic != MAGIC) {
+                throw invalid("bad magic");
+            }
+            int version = Byte.toUnsignedInt(buffer.get());
+            if (version != VERSION && version != VERSION_SEQUENCED) {
+                throw invalid("unsupported version " + version);
+            }
+
+            int codeLength = Byte.toUnsignedInt(buffer.get());
+            if (codeLength == 0 || codeLength > MAX_CODE_LENGTH) {
+                throw invalid("bad sensor code length");
+            }
+            byte[] code = new byte[codeLength];
+            buffer.get(code);
+            String sensorCode = new String(code, StandardCharsets.US_ASCII);
+
+            int count = Short.toUnsignedInt(buffer.getShort());
+            if (count == 0) {
+                throw invalid("no readings");
+            }
+            long firstSequence = version == VERSION_SEQUENCED
+                    ? Integer.toUnsignedLong(buffer.getInt()) : SensorSample.NO_SEQUENCE;
+            if (buffer.remaining() != count * READING_BYTES) {
+                throw invalid("expected " + count * READING_BYTES + " reading bytes but got " + buffer.remaining());
+            }
+
+            long[] recordedAt = new long[count];
+            short[] values = new short[count * SensorFrame.METRICS];
+            for (int i = 0; i < count; i++) {
+                recordedAt[i] = Integer.toUnsignedLong(buffer.getInt());
+                if (recordedAt[i] == 0 && firstSequence != SensorSample.NO_SEQUENCE) {
+                    throw invalid("numbered reading " + i + " has no timestamp");
+                }
+                int base = i * SensorFrame.METRICS;
+                values[base] = buffer.getShort();
+                values[base + 1] = buffer.getShort();
+                values[base + 2] = buffer.getShort();
+                values[base + 3] = buffer.getShort();
+            }
+            return new SensorFrame(sensorCode, count, firstSequence, recordedAt, values);
+        } catch (BufferUnderflowException e) {
+            throw invalid("truncated frame");
+        }
+    }
+
+    /**
+     * Convert a wire value (hundredths) to centi-units, SensorSample.MISSING when missing
+     */
+    public static int toCenti(short value) {
+        return value == MISSING_VALUE ? SensorSample.MISSING : value;
+    }
+
+    private static BadRequestException invalid(String reason) {
+        return new BadRequestException("Invalid sensor frame: " + reason);
+    }
+
+    /**
+     * Decoded frame; values are stored row-major, four metrics per reading.
+     * firstSequence is SensorSample.NO_SEQUENCE for unnumbered (version 1) frames.
+     */
+    public record SensorFrame(String sensorCode, int count, long firstSequence, long[] recordedAtEpochSeconds,
+                              short[] values) {
+
+        public static final int METRICS = 4;
+
+        public short value(int reading, int metric) {
+            return values[reading * METRICS + metric];
+        }
+
+        public long sequence(int reading) {
+            return firstSequence == SensorSample.NO_SEQUENCE ? SensorSample.NO_SEQUENCE : firstSequence + reading;
+        }
+    }
+}
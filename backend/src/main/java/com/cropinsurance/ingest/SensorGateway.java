@@ -0,0 +1,447 @@
+package com.cropinsurance.ingest;
+
+import com.cropinsurance.exception.BadRequestException;
+import com.cropinsurance.exception.TooManyRequestsException;
+import com.cropinsurance.ingest.SensorFrameDecoder.SensorFrame;
+import com.cropinsurance.service.SensorService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.security.GeneralSecurityException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sensor Gateway - Optional NIO listener accepting binary reading frames over UDP and TCP.
+ *
+ * Messages are a SensorFrameDecoder frame followed by a 16-byte tag: the first 16 bytes of
+ * HMAC-SHA256(sensor ingest key, frame). A UDP datagram carries one message; on TCP each
+ * message is prefixed with its u16 length. There is no acknowledgement, so devices that need
+ * delivery guarantees should keep using the HTTP endpoints.
+ *
+ * The tag proves who sent a frame but not that it is new, and a captured datagram can be sent
+ * again. Only numbered (version 2) frames are accepted: their readings carry device time and
+ * sequence, so a replay is dropped by the deduplication window or the unique index like any
+ * other retry instead of being stored as new readings.
+ *
+ * A single selector thread reads, decodes, authenticates and rate limits (per source address);
+ * it never waits on the database: a frame whose sensor is not cached is resolved, authenticated
+ * and rate limited on a worker instead (SensorCodeCache remembers unknown codes for a while).
+ * Accepted frames are handed to a bounded worker pool that writes through SensorService, which
+ * applies the per-sensor limit to on-time readings only. When the pool is saturated frames are
+ * dropped and counted rather than slowing down the selector. For sustained high rates enable the
+ * write-behind buffer so that workers only enqueue.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SensorGateway {
+
+    public static final int TAG_BYTES = 16;
+
+    private static final String HMAC = "HmacSHA256";
+    private static final int MAX_MESSAGE_BYTES = 0xFFFF;
+    // TCP read buffers start small and grow to the message being read, so idle connections stay cheap
+    private static final int INITIAL_STREAM_BUFFER_BYTES = 512;
+
+    private final SensorCodeCache sensorCodeCache;
+    private final SensorService sensorService;
+    private final SensorRateLimiter sensorRateLimiter;
+
+    @Value("${sensor.gateway.enabled:false}")
+    private boolean enabled;
+
+    @Value("${sensor.gateway.host:0.0.0.0}")
+    private String host;
+
+    @Value("${sensor.gateway.udp-port:9700}")
+    private int udpPort;
+
+    @Value("${sensor.gateway.tcp-port:9701}")
+    private int tcpPort;
+
+    @Value("${sensor.gateway.max-connections:10000}")
+    private int maxConnections;
+
+    @Value("${sensor.gateway.workers:4}")
+    private int workers;
+
+    @Value("${sensor.gateway.queue-capacity:10000}")
+    private int queueCapacity;
+
+    private Selector selector;
+    private Thread selectorThread;
+    private ThreadPoolExecutor workerPool;
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(SensorGateway::newMac);
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder framesReceived = new LongAdder();
+    private final LongAdder readingsAccepted = new LongAdder();
+    private final LongAdder invalidFrames = new LongAdder();
+    private final LongAdder unnumberedFrames = new LongAdder();
+    private final LongAdder authFailures = new LongAdder();
+    private final LongAdder sensorLookups = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder overloadDrops = new LongAdder();
+    private final LongAdder writeFailures = new LongAdder();
+    private final LongAdder readingsDropped = new LongAdder();
+
+    private long lastSampleNanos = System.nanoTime();
+    private long lastSampleAccepted;
+    private volatile double readingsPerSecond;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        AtomicInteger threadIndex = new AtomicInteger();
+        workerPool = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "sensor-gateway-worker-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        selector = Selector.open();
+        if (udpPort > 0) {
+            DatagramChannel udp = DatagramChannel.open();
+            udp.bind(new InetSocketAddress(host, udpPort));
+            udp.configureBlocking(false);
+            udp.register(selector, SelectionKey.OP_READ, ByteBuffer.allocate(MAX_MESSAGE_BYTES));
+        }
+        if (tcpPort > 0) {
+            ServerSocketChannel tcp = ServerSocketChannel.open();
+            tcp.bind(new InetSocketAddress(host, tcpPort), 1024);
+            tcp.configureBlocking(false);
+            tcp.register(selector, SelectionKey.OP_ACCEPT);
+        }
+
+        selectorThread = new Thread(this::runSelector, "sensor-gateway");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+        log.info("📡 Sensor gateway listening on udp/{} and tcp/{}", udpPort, tcpPort);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        if (selector == null) {
+            return;
+        }
+        for (SelectionKey key : selector.keys()) {
+            key.channel().close();
+        }
+        selector.close();
+        selectorThread.join(TimeUnit.SECONDS.toMillis(5));
+        workerPool.shutdown();
+        workerPool.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Gateway statistics for monitoring
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("connections", connections.get());
+        stats.put("queuedFrames", workerPool != null ? workerPool.getQueue().size() : 0);
+        stats.put("bytesReceived", bytesReceived.sum());
+        stats.put("framesReceived", framesReceived.sum());
+        stats.put("readingsAccepted", readingsAccepted.sum());
+        stats.put("readingsPerSecond", Math.round(readingsPerSecond));
+        stats.put("invalidFrames", invalidFrames.sum());
+        stats.put("unnumberedFrames", unnumberedFrames.sum());
+        stats.put("authFailures", authFailures.sum());
+        stats.put("sensorLookups", sensorLookups.sum());
+        stats.put("rateLimited", rateLimited.sum());
+        stats.put("overloadDrops", overloadDrops.sum());
+        stats.put("writeFailures", writeFailures.sum());
+        stats.put("readingsDropped", readingsDropped.sum());
+        return stats;
+    }
+
+    @Scheduled(fixedRate = 10000)
+    public synchronized void sampleThroughput() {
+        long now = System.nanoTime();
+        long accepted = readingsAccepted.sum();
+        readingsPerSecond = (accepted - lastSampleAccepted) * 1e9 / Math.max(1, now - lastSampleNanos);
+        lastSampleAccepted = accepted;
+        lastSampleNanos = now;
+    }
+
+    private void runSelector() {
+        try {
+            while (selector.isOpen()) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isAcceptable()) {
+                            accept((ServerSocketChannel) key.channel());
+                        } else if (key.channel() instanceof DatagramChannel udp) {
+                            readDatagrams(udp, (ByteBuffer) key.attachment());
+                        } else {
+                            readStream(key);
+                        }
+                    } catch (IOException e) {
+                        if (key.channel() instanceof SocketChannel) {
+                            close(key);
+                        } else {
+                            log.warn("Sensor gateway read failed: {}", e.getMessage());
+                        }
+                    } catch (RuntimeException e) {
+                        // A bad message must not take down the selector and with it the whole gateway
+                        log.error("Sensor gateway failed handling {}: {}", key.channel(), e.getMessage(), e);
+                        if (key.channel() instanceof SocketChannel) {
+                            close(key);
+                        }
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (selector.isOpen()) {
+                log.error("Sensor gateway selector failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void accept(ServerSocketChannel server) throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        if (connections.incrementAndGet() > maxConnections) {
+            connections.decrementAndGet();
+            channel.close();
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.register(selector, SelectionKey.OP_READ,
+                new Connection(ByteBuffer.allocate(INITIAL_STREAM_BUFFER_BYTES), host(channel.getRemoteAddress())));
+    }
+
+    private void readDatagrams(DatagramChannel udp, ByteBuffer buffer) throws IOException {
+        // Drain everything that is ready, one datagram per message
+        while (true) {
+            buffer.clear();
+            SocketAddress from = udp.receive(buffer);
+            if (from == null) {
+                return;
+            }
+            buffer.flip();
+            bytesReceived.add(buffer.remaining());
+            handle(buffer, host(from));
+        }
+    }
+
+    private void readStream(SelectionKey key) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        Connection connection = (Connection) key.attachment();
+        ByteBuffer buffer = connection.buffer;
+        int read = channel.read(buffer);
+        if (read < 0) {
+            close(key);
+            return;
+        }
+        bytesReceived.add(read);
+
+        buffer.flip();
+        while (buffer.remaining() >= 2) {
+            int length = Short.toUnsignedInt(buffer.getShort(buffer.position()));
+            if (buffer.remaining() < 2 + length) {
+                break;
+            }
+            ByteBuffer message = buffer.slice(buffer.position() + 2, length);
+            buffer.position(buffer.position() + 2 + length);
+            handle(message, connection.source);
+        }
+
+        if (!buffer.hasRemaining() && buffer.capacity() > INITIAL_STREAM_BUFFER_BYTES) {
+            // Everything consumed: give back the space a large message needed
+            connection.buffer = ByteBuffer.allocate(INITIAL_STREAM_BUFFER_BYTES);
+            return;
+        }
+        int needed = buffer.remaining() >= 2 ? 2 + Short.toUnsignedInt(buffer.getShort(buffer.position())) : 2;
+        if (needed > buffer.capacity()) {
+            connection.buffer = ByteBuffer.allocate(needed).put(buffer);
+            return;
+        }
+        buffer.compact();
+    }
+
+    /**
+     * Decode, authenticate, rate limit and hand off one message (frame + tag)
+     */
+    private void handle(ByteBuffer message, String source) {
+        framesReceived.increment();
+        if (message.remaining() <= TAG_BYTES) {
+            invalidFrames.increment();
+            return;
+        }
+        ByteBuffer frameBytes = message.slice(message.position(), message.remaining() - TAG_BYTES);
+
+        SensorFrame frame;
+        try {
+            frame = SensorFrameDecoder.decode(frameBytes);
+        } catch (BadRequestException e) {
+            invalidFrames.increment();
+            return;
+        }
+        if (frame.firstSequence() == SensorSample.NO_SEQUENCE) {
+            // Could be replayed without ever being recognised as a duplicate
+            unnumberedFrames.increment();
+            readingsDropped.add(frame.count());
+            return;
+        }
+
+        SensorRef sensor = sensorCodeCache.findCached(frame.sensorCode());
+        Runnable task;
+        if (sensor != null) {
+            if (!admit(sensor, frame, frameBytes, message, source)) {
+                return;
+            }
+            task = () -> write(sensor, frame);
+        } else {
+            // The lookup may need the database: do it all on a worker, with a copy of the message
+            ByteBuffer copy = ByteBuffer.allocate(message.remaining()).put(message.duplicate()).flip();
+            task = () -> resolveAndWrite(frame, copy, source);
+        }
+
+        try {
+            workerPool.execute(task);
+        } catch (RejectedExecutionException e) {
+            overloadDrops.increment();
+            readingsDropped.add(frame.count());
+        }
+    }
+
+    private void resolveAndWrite(SensorFrame frame, ByteBuffer message, String source) {
+        sensorLookups.increment();
+        SensorRef sensor = sensorCodeCache.find(frame.sensorCode()).orElse(null);
+        ByteBuffer frameBytes = message.slice(0, message.remaining() - TAG_BYTES);
+        if (admit(sensor, frame, frameBytes, message, source)) {
+            write(sensor, frame);
+        }
+    }
+
+    /**
+     * Authenticate the message and take the source's gateway tokens; false (and counted) when refused
+     */
+    private boolean admit(SensorRef sensor, SensorFrame frame, ByteBuffer frameBytes, ByteBuffer message,
+            String source) {
+        if (sensor == null || !sensor.active() || sensor.ingestKey() == null
+                || !verify(sensor.ingestKey(), frameBytes, message)) {
+            authFailures.increment();
+            readingsDropped.add(frame.count());
+            return false;
+        }
+
+        // The per-sensor limit applies to on-time readings only, so recordFrame takes those tokens
+        if (!sensorRateLimiter.tryAcquireGateway(source, frame.count())) {
+            rateLimited.increment();
+            readingsDropped.add(frame.count());
+            return false;
+        }
+        return true;
+    }
+
+    private boolean verify(byte[] key, ByteBuffer frameBytes, ByteBuffer message) {
+        byte[] tag;
+        try {
+            Mac mac = macs.get();
+            mac.init(new SecretKeySpec(key, HMAC));
+            mac.update(frameBytes.duplicate());
+            tag = mac.doFinal();
+        } catch (GeneralSecurityException e) {
+            return false;
+        }
+        // Constant-time comparison of the truncated tag
+        int base = message.limit() - TAG_BYTES;
+        int diff = 0;
+        for (int i = 0; i < TAG_BYTES; i++) {
+            diff |= tag[i] ^ message.get(base + i);
+        }
+        return diff == 0;
+    }
+
+    private void write(SensorRef sensor, SensorFrame frame) {
+        try {
+            readingsAccepted.add(sensorService.recordFrame(sensor, frame));
+        } catch (TooManyRequestsException e) {
+            rateLimited.increment();
+            readingsDropped.add(frame.count());
+        } catch (RuntimeException e) {
+            writeFailures.increment();
+            readingsDropped.add(frame.count());
+            log.debug("Gateway frame from {} rejected: {}", sensor.uniqueCode(), e.getMessage());
+        }
+    }
+
+    private static Mac newMac() {
+        try {
+            return Mac.getInstance(HMAC);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(HMAC + " not available", e);
+        }
+    }
+
+    private static String host(SocketAddress address) {
+        return address instanceof InetSocketAddress inet ? inet.getAddress().getHostAddress() : String.valueOf(address);
+    }
+
+    private void close(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException ignored) {
+            // Nothing left to release
+        }
+        if (key.channel() instanceof SocketChannel) {
+            connections.decrementAndGet();
+        }
+    }
+
+    /**
+     * Per-connection read buffer (in write mode between reads) and the peer address used for rate limiting
+     */
+    private static final class Connection {
+        private ByteBuffer buffer;
+        private final String source;
+
+        private Connection(ByteBuffer buffer, String source) {
+            this.buffer = buffer;
+            this.source = source;
+        }
+    }
+}
@@ -0,0 +1,491 @@
+package com.cropinsurance.ingest;
+
+import com.cropinsurance.entity.Patwari;
+import com.cropinsurance.entity.Sensor;
+import com.cropinsurance.repository.SensorRepository;
+import com.cropinsurance.repository.VerificationRepository;
+import com.cropinsurance.service.SmsService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sensor Health Monitor - Tracks which sensors are reporting, without scanning the sensors table.
+ *
+ * Per-sensor state (last reading time, health, whether a deadline is scheduled) lives in
+ * primitive arrays indexed by the sensor's dense ordinal. Deadlines sit in a min-heap of packed
+ * longs (relative deadline millis << 24 | ordinal); the sensor remembers its live entry and
+ * superseded ones are skipped when popped. Readings of a healthy sensor only bump the last
+ * reading time; the heap is not touched per reading. When a deadline pops, the sensor is
+ * re-checked and either rescheduled (it reported meanwhile), marked STALE, or marked OFFLINE.
+ * A dedicated thread pops due deadlines at least every tick, so transitions are sub-second.
+ *
+ * Sensors going OFFLINE are queued and their patwari (the one whose verification assigned the
+ * sensor) is told by SMS from a scheduled flush. The monitor only sees readings committed on its
+ * own node, so before notifying, the flush re-checks sensors.last_reading_at (written by every
+ * node) and a sensor that reported elsewhere is rescheduled instead of reported.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SensorHealthMonitor {
+
+    /**
+     * Health of a monitored sensor
+     */
+    public enum Health {
+        HEALTHY, // Reported within stale-after
+        STALE, // Silent longer than stale-after
+        OFFLINE // Silent longer than offline-after
+    }
+
+    private static final byte UNTRACKED = -1;
+    private static final Health[] HEALTH = Health.values();
+
+    private static final int ORDINAL_BITS = 24;
+    private static final long ORDINAL_MASK = (1L << ORDINAL_BITS) - 1;
+    private static final long MAX_RELATIVE_DEADLINE = (1L << (63 - ORDINAL_BITS)) - 1;
+    private static final int STRIPES = 64;
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private final SensorCodeCache sensorCodeCache;
+    private final SensorRepository sensorRepository;
+    private final VerificationRepository verificationRepository;
+    private final SmsService smsService;
+
+    @Value("${sensor.health.enabled:true}")
+    private boolean enabled;
+
+    @Value("${sensor.health.stale-after-seconds:1800}")
+    private long staleAfterSeconds;
+
+    @Value("${sensor.health.offline-after-seconds:21600}")
+    private long offlineAfterSeconds;
+
+    @Value("${sensor.health.tick-ms:250}")
+    private long tickMillis;
+
+    @Value("${sensor.health.notify-patwari:true}")
+    private boolean notifyPatwari;
+
+    private final Object[] locks = newLocks();
+    private volatile State state = new State(1024);
+
+    // Deadlines are stored relative to this instant so that they fit next to a 24-bit ordinal
+    private final long epochMillis = System.currentTimeMillis();
+    private final Object heapLock = new Object();
+    private long[] heap = new long[1024];
+    private int heapSize;
+
+    private final AtomicInteger[] counts = {new AtomicInteger(), new AtomicInteger(), new AtomicInteger()};
+    private final ArrayBlockingQueue<UUID> offlineQueue = new ArrayBlockingQueue<>(10_000);
+    private final LongAdder notifiedCount = new LongAdder();
+    private final LongAdder notifyFailures = new LongAdder();
+    private final LongAdder droppedNotifications = new LongAdder();
+
+    private Thread ticker;
+    private volatile boolean running;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        // Sensors already offline before a restart are tracked but not reported again
+        long now = System.currentTimeMillis();
+        for (Object[] row : sensorRepository.findActiveLastReadings()) {
+            UUID sensorId = (UUID) row[0];
+            int ordinal = sensorCodeCache.ordinalOf(sensorId);
+            if (ordinal > ORDINAL_MASK) {
+                continue;
+            }
+            if (ordinal >= state.capacity) {
+                grow(ordinal);
+            }
+            synchronized (locks[ordinal & (STRIPES - 1)]) {
+                State s = state;
+                s.lastSeen[ordinal] = toMillis((LocalDateTime) row[1]);
+                setId(s, ordinal, sensorId);
+                byte health = healthAt(s.lastSeen[ordinal], now);
+                transition(s, ordinal, health);
+                if (health != Health.OFFLINE.ordinal()) {
+                    arm(s, ordinal, health, now);
+                }
+            }
+        }
+
+        running = true;
+        ticker = new Thread(this::runTicker, "sensor-health");
+        ticker.setDaemon(true);
+        ticker.start();
+        log.info("🩺 Sensor health monitor tracking {} sensors ({} healthy, {} stale, {} offline)",
+                counts[0].get() + counts[1].get() + counts[2].get(),
+                counts[0].get(), counts[1].get(), counts[2].get());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (ticker == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(ticker);
+        ticker.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * Note a committed reading; O(1) unless the sensor changes health or has no deadline yet
+     */
+    public void record(UUID sensorId, LocalDateTime recordedAt) {
+        if (!enabled) {
+            return;
+        }
+        int ordinal = sensorCodeCache.ordinalOf(sensorId);
+        if (ordinal > ORDINAL_MASK) {
+            return;
+        }
+        if (ordinal >= state.capacity) {
+            grow(ordinal);
+        }
+        long time = toMillis(recordedAt);
+
+        synchronized (locks[ordinal & (STRIPES - 1)]) {
+            State s = state;
+            if (time > s.lastSeen[ordinal]) {
+                s.lastSeen[ordinal] = time;
+            }
+            byte previous = s.status[ordinal];
+            if (previous == Health.HEALTHY.ordinal() && s.scheduled[ordinal] != 0) {
+                return;
+            }
+            if (previous == UNTRACKED) {
+                setId(s, ordinal, sensorId);
+            }
+            long now = System.currentTimeMillis();
+            byte health = healthAt(s.lastSeen[ordinal], now);
+            if (previous == Health.OFFLINE.ordinal() && health != Health.OFFLINE.ordinal()) {
+                log.info("🩺 Sensor {} is reporting again", sensorId);
+            }
+            transition(s, ordinal, health);
+            // A recovered sensor needs its stale deadline instead of the pending offline one
+            if (health != Health.OFFLINE.ordinal() && (s.scheduled[ordinal] == 0 || previous != health)) {
+                arm(s, ordinal, health, now);
+            }
+        }
+    }
+
+    /**
+     * Current health of a sensor, or null when it is not monitored (never reported or inactive)
+     */
+    public Health getHealth(UUID sensorId) {
+        int ordinal = sensorCodeCache.ordinalOf(sensorId);
+        State s = state;
+        if (ordinal >= s.capacity) {
+            return null;
+        }
+        synchronized (locks[ordinal & (STRIPES - 1)]) {
+            byte status = state.status[ordinal];
+            return status == UNTRACKED ? null : HEALTH[status];
+        }
+    }
+
+    /**
+     * Fleet health counts for monitoring
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("healthy", counts[Health.HEALTHY.ordinal()].get());
+        stats.put("stale", counts[Health.STALE.ordinal()].get());
+        stats.put("offline", counts[Health.OFFLINE.ordinal()].get());
+        stats.put("staleAfterSeconds", staleAfterSeconds);
+        stats.put("offlineAfterSeconds", offlineAfterSeconds);
+        synchronized (heapLock) {
+            stats.put("scheduledDeadlines", heapSize);
+        }
+        stats.put("pendingNotifications", offlineQueue.size());
+        stats.put("patwarisNotified", notifiedCount.sum());
+        stats.put("notificationFailures", notifyFailures.sum());
+        stats.put("droppedNotifications", droppedNotifications.sum());
+        return stats;
+    }
+
+    /**
+     * Tell the assigned patwaris about sensors that went offline
+     */
+    @Scheduled(fixedDelayString = "${sensor.health.notify-interval-ms:10000}")
+    public void notifyOffline() {
+        if (offlineQueue.isEmpty()) {
+            return;
+        }
+        List<UUID> sensorIds = new ArrayList<>(offlineQueue.size());
+        offlineQueue.drainTo(sensorIds);
+
+        for (UUID sensorId : sensorIds) {
+            try {
+                Sensor sensor = sensorRepository.findById(sensorId).orElse(null);
+                if (sensor == null || !Boolean.TRUE.equals(sensor.getIsActive())) {
+                    forget(sensorId);
+                    continue;
+                }
+                // Readings committed on other ingest nodes only show up in sensors.last_reading_at
+                if (sensor.getLastReadingAt() != null) {
+                    record(sensorId, sensor.getLastReadingAt());
+                }
+                if (!notifyPatwari || getHealth(sensorId) != Health.OFFLINE) {
+                    continue;
+                }
+                String message = "Sensor " + sensor.getUniqueCode() + " has not reported since "
+                        + sensor.getLastReadingAt() + ". Please check the device. - Fasal Beema";
+                for (Patwari patwari : verificationRepository.findPatwarisByAssignedSensorId(sensorId)) {
+                    if (smsService.sendSms(patwari.getPhone(), message)) {
+                        notifiedCount.increment();
+                    } else {
+                        notifyFailures.increment();
+                    }
+                }
+            } catch (RuntimeException e) {
+                notifyFailures.increment();
+                log.error("Failed to report offline sensor {}: {}", sensorId, e.getMessage());
+            }
+        }
+    }
+
+    private void runTicker() {
+        while (running) {
+            long now = System.currentTimeMillis();
+            long entry;
+            while ((entry = pollDue(now)) != -1) {
+                check(entry, now);
+            }
+            long next = nextDeadline();
+            long sleep = next < 0 ? tickMillis : Math.min(tickMillis, Math.max(1, next - now));
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(sleep));
+        }
+    }
+
+    /**
+     * Re-evaluate a sensor whose deadline passed
+     */
+    private void check(long entry, long now) {
+        int ordinal = (int) (entry & ORDINAL_MASK);
+        synchronized (locks[ordinal & (STRIPES - 1)]) {
+            State s = state;
+            if (s.scheduled[ordinal] != entry) {
+                return; // Superseded by a later arm()
+            }
+            s.scheduled[ordinal] = 0;
+            byte previous = s.status[ordinal];
+            if (previous == UNTRACKED) {
+                return;
+            }
+            byte health = healthAt(s.lastSeen[ordinal], now);
+            transition(s, ordinal, health);
+            if (health == Health.OFFLINE.ordinal()) {
+                if (previous != health && !offlineQueue.offer(getId(s, ordinal))) {
+                    droppedNotifications.increment();
+                }
+                return;
+            }
+            arm(s, ordinal, health, now);
+        }
+    }
+
+    /**
+     * Stop monitoring a sensor (deactivated or deleted) until it reports again
+     */
+    private void forget(UUID sensorId) {
+        int ordinal = sensorCodeCache.ordinalOf(sensorId);
+        if (ordinal >= state.capacity) {
+            return;
+        }
+        synchronized (locks[ordinal & (STRIPES - 1)]) {
+            transition(state, ordinal, UNTRACKED);
+            state.scheduled[ordinal] = 0;
+        }
+    }
+
+    // Caller holds the sensor's stripe lock
+    private void transition(State s, int ordinal, byte health) {
+        byte previous = s.status[ordinal];
+        if (previous == health) {
+            return;
+        }
+        if (previous != UNTRACKED) {
+            counts[previous].decrementAndGet();
+        }
+        if (health != UNTRACKED) {
+            counts[health].incrementAndGet();
+        }
+        s.status[ordinal] = health;
+    }
+
+    // Caller holds the sensor's stripe lock
+    private void arm(State s, int ordinal, byte health, long now) {
+        long after = health == Health.HEALTHY.ordinal() ? staleAfterSeconds : offlineAfterSeconds;
+        long deadline = Math.max(s.lastSeen[ordinal] + TimeUnit.SECONDS.toMillis(after), now);
+        // Relative deadline is at least 1 ms so that no entry is 0, which marks "nothing scheduled"
+        long entry = Math.max(1, Math.min(deadline - epochMillis, MAX_RELATIVE_DEADLINE)) << ORDINAL_BITS | ordinal;
+        s.scheduled[ordinal] = entry;
+        push(entry);
+    }
+
+    private byte healthAt(long lastSeen, long now) {
+        long silence = now - lastSeen;
+        if (silence < TimeUnit.SECONDS.toMillis(staleAfterSeconds)) {
+            return (byte) Health.HEALTHY.ordinal();
+        }
+        if (silence < TimeUnit.SECONDS.toMillis(offlineAfterSeconds)) {
+            return (byte) Health.STALE.ordinal();
+        }
+        return (byte) Health.OFFLINE.ordinal();
+    }
+
+    private void push(long entry) {
+        synchronized (heapLock) {
+            if (heapSize == heap.length) {
+                heap = Arrays.copyOf(heap, heap.length * 2);
+            }
+            int i = heapSize++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heap[parent] <= entry) {
+                    break;
+                }
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = entry;
+        }
+    }
+
+    /**
+     * Remove and return the earliest entry if its deadline has passed, else -1
+     */
+    private long pollDue(long now) {
+        synchronized (heapLock) {
+            if (heapSize == 0 || (heap[0] >> ORDINAL_BITS) + epochMillis > now) {
+                return -1;
+            }
+            long top = heap[0];
+            long last = heap[--heapSize];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= heapSize) {
+                    break;
+                }
+                if (child + 1 < heapSize && heap[child + 1] < heap[child]) {
+                    child++;
+                }
+                if (last <= heap[child]) {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            if (heapSize > 0) {
+                heap[i] = last;
+            }
+            return top;
+        }
+    }
+
+    private long nextDeadline() {
+        synchronized (heapLock) {
+            return heapSize == 0 ? -1 : (heap[0] >> ORDINAL_BITS) + epochMillis;
+        }
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.toEpochSecond(ZONE.getRules().getOffset(time)) * 1000 + time.getNano() / 1_000_000;
+    }
+
+    private static void setId(State s, int ordinal, UUID sensorId) {
+        s.ids[ordinal * 2] = sensorId.getMostSignificantBits();
+        s.ids[ordinal * 2 + 1] = sensorId.getLeastSignificantBits();
+    }
+
+    private static UUID getId(State s, int ordinal) {
+        return new UUID(s.ids[ordinal * 2], s.ids[ordinal * 2 + 1]);
+    }
+
+    private void grow(int ordinal) {
+        growHoldingStripes(0, ordinal);
+    }
+
+    private void growHoldingStripes(int stripe, int ordinal) {
+        if (stripe < STRIPES) {
+            synchronized (locks[stripe]) {
+                growHoldingStripes(stripe + 1, ordinal);
+            }
+            return;
+        }
+        State current = state;
+        if (ordinal < current.capacity) {
+            return;
+        }
+        state = current.copy(Math.max(current.capacity * 2, ordinal + 1));
+    }
+
+    private static Object[] newLocks() {
+        Object[] locks = new Object[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        return locks;
+    }
+
+    /**
+     * Structure-of-arrays state indexed by ordinal; ids holds two longs per sensor and
+     * scheduled the sensor's live heap entry (0 when none)
+     */
+    private static final class State {
+        private final int capacity;
+        private final long[] lastSeen;
+        private final long[] ids;
+        private final byte[] status;
+        private final long[] scheduled;
+
+        private State(int capacity) {
+            this.capacity = capacity;
+            this.lastSeen = new long[capacity];
+            this.ids = new long[capacity * 2];
+            this.status = new byte[capacity];
+            this.scheduled = new long[capacity];
+            Arrays.fill(status, UNTRACKED);
+        }
+
+        private State(State other, int capacity) {
+            this.capacity = capacity;
+            this.lastSeen = Arrays.copyOf(other.lastSeen, capacity);
+            this.ids = Arrays.copyOf(other.ids, capacity * 2);
+            this.status = Arrays.copyOf(other.status, capacity);
+            this.scheduled = Arrays.copyOf(other.scheduled, capacity);
+            Arrays.fill(status, other.capacity, capacity, UNTRACKED);
+        }
+
+        private State copy(int capacity) {
+            return new State(this, capacity);
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.cropinsurance.ingest;
+
+import com.cropinsurance.exception.BadRequestException;
+import com.cropinsurance.exception.TooManyRequestsException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sensor Ingest Buffer - Optional write-behind mode for sensor readings.
+ *
+ * Request threads append to a bounded, pre-allocated ring (ArrayBlockingQueue) and a
+ * single flusher thread drains it to sensor_readings in large batches, triggered by
+ * batch size or flush interval. Readings are numbered in enqueue order, so ack-after-commit
+ * callers simply wait until the flusher's committed sequence passes their own (group commit).
+ * A caller that runs out of commit-timeout stops waiting and reports its readings as accepted
+ * with the commit still pending; they stay queued and are not to be resent. A full buffer is
+ * pushed back to the caller as 429 instead of growing memory.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SensorIngestBuffer {
+
+    /**
+     * When an accepted reading is acknowledged to the client
+     */
+    public enum AckMode {
+        ENQUEUE, // As soon as the reading is in the buffer (lost on crash)
+        COMMIT // After the batch containing the reading is committed
+    }
+
+    private final SensorReadingWriter sensorReadingWriter;
+
+    @Value("${sensor.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${sensor.write-behind.capacity:65536}")
+    private int capacity;
+
+    @Value("${sensor.write-behind.flush-size:1000}")
+    private int flushSize;
+
+    @Value("${sensor.write-behind.flush-interval-ms:200}")
+    private long flushIntervalMillis;
+
+    @Value("${sensor.write-behind.ack:ENQUEUE}")
+    private AckMode ackMode;
+
+    @Value("${sensor.write-behind.commit-timeout-ms:5000}")
+    private long commitTimeoutMillis;
+
+    private ArrayBlockingQueue<PendingReading> queue;
+    private Thread flusher;
+    private volatile boolean running;
+
+    // Producers take this lock so that sequence order equals queue order
+    private final Object enqueueLock = new Object();
+    private long enqueueSeq;
+
+    private final Object commitMonitor = new Object();
+    private volatile long committedSeq;
+
+    private final LongAdder acceptedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final AtomicLong flushedCount = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final LongAdder commitTimeoutCount = new LongAdder();
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(capacity);
+        running = true;
+        flusher = new Thread(this::runFlusher, "sensor-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+        log.info("📥 Sensor write-behind enabled: capacity={}, flushSize={}, interval={}ms, ack={}",
+                capacity, flushSize, flushIntervalMillis, ackMode);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        running = false;
+        flusher.interrupt();
+        flusher.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enqueue a single sample
+     */
+    public void submit(SensorSample sample) {
+        submitAll(List.of(sample));
+    }
+
+    /**
+     * Enqueue samples as a unit: either all are accepted or the call is rejected with 429
+     */
+    public void submitAll(List<SensorSample> samples) {
+        submitAll(samples, false);
+    }
+
+    /**
+     * Enqueue readings as a unit; with awaitCommit the call waits until they are committed, whatever
+     * the configured ack mode. Returns false when the commit was awaited but is still pending after
+     * the commit timeout.
+     */
+    public boolean submitAll(List<SensorSample> samples, boolean awaitCommit) {
+        if (samples.isEmpty()) {
+            return true;
+        }
+
+        CommitWaiter waiter = awaitCommit || ackMode == AckMode.COMMIT ? new CommitWaiter() : null;
+        long lastSeq;
+        synchronized (enqueueLock) {
+            if (!running || queue.remainingCapacity() < samples.size()) {
+                rejectedCount.add(samples.size());
+                throw new TooManyRequestsException("Sensor ingest buffer is full, retry later");
+            }
+            for (SensorSample sample : samples) {
+                queue.offer(new PendingReading(++enqueueSeq, sample, waiter));
+            }
+            lastSeq = enqueueSeq;
+        }
+        acceptedCount.add(samples.size());
+
+        return waiter == null || awaitCommit(waiter, lastSeq);
+    }
+
+    /**
+     * Buffer statistics for monitoring
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("ackMode", ackMode);
+        stats.put("capacity", capacity);
+        stats.put("queueDepth", queue != null ? queue.size() : 0);
+        stats.put("accepted", acceptedCount.sum());
+        stats.put("rejected", rejectedCount.sum());
+        stats.put("flushed", flushedCount.get());
+        stats.put("flushes", flushCount.get());
+        stats.put("dropped", droppedCount.get());
+        stats.put("commitTimeouts", commitTimeoutCount.sum());
+        return stats;
+    }
+
+    /**
+     * Wait until the flusher has passed lastSeq; false when it has not within the commit timeout.
+     * The readings stay queued either way, so a caller that gives up must not have them resent.
+     */
+    private boolean awaitCommit(CommitWaiter waiter, long lastSeq) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(commitTimeoutMillis);
+        synchronized (commitMonitor) {
+            while (committedSeq < lastSeq) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    commitTimeoutCount.increment();
+                    return false;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(commitMonitor, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    commitTimeoutCount.increment();
+                    return false;
+                }
+            }
+        }
+
+        if (waiter.dropped) {
+            throw new BadRequestException("Reading could not be stored");
+        }
+        return true;
+    }
+
+    private void runFlusher() {
+        List<PendingReading> batch = new ArrayList<>(flushSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingReading first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fillBatch(batch);
+            } catch (InterruptedException e) {
+                // Shutdown requested: loop drains whatever is left without waiting
+                queue.drainTo(batch, flushSize - batch.size());
+            }
+
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+        log.info("📥 Sensor write-behind flusher stopped ({} readings flushed)", flushedCount.get());
+    }
+
+    /**
+     * Top up the batch until it is full or the flush interval since its first reading elapses
+     */
+    private void fillBatch(List<PendingReading> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        while (batch.size() < flushSize) {
+            queue.drainTo(batch, flushSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= flushSize || remaining <= 0 || !running) {
+                return;
+            }
+            PendingReading next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void flush(List<PendingReading> batch) {
+        List<SensorSample> samples = new ArrayList<>(batch.size());
+        batch.forEach(p -> samples.add(p.sample()));
+
+        int attempt = 0;
+        while (true) {
+            try {
+                sensorReadingWriter.write(samples);
+                flushedCount.addAndGet(samples.size());
+                break;
+            } catch (DataIntegrityViolationException e) {
+                // A bad row poisons the whole batch: fall back to row-by-row and drop the offenders
+                log.warn("Write-behind batch rejected by database, retrying row by row: {}", e.getMessage());
+                flushIndividually(batch);
+                break;
+            } catch (RuntimeException e) {
+                attempt++;
+                if (!running && attempt >= 3) {
+                    log.error("Dropping {} buffered readings during shutdown: {}", batch.size(), e.getMessage());
+                    batch.forEach(this::markDropped);
+                    break;
+                }
+                log.warn("Write-behind flush failed (attempt {}), retrying: {}", attempt, e.getMessage());
+                sleepQuietly(Math.min(100L << Math.min(attempt, 6), 5000L));
+            }
+        }
+
+        flushCount.incrementAndGet();
+        synchronized (commitMonitor) {
+            committedSeq = batch.get(batch.size() - 1).seq();
+            commitMonitor.notifyAll();
+        }
+    }
+
+    private void flushIndividually(List<PendingReading> batch) {
+        for (PendingReading pending : batch) {
+            try {
+                sensorReadingWriter.write(List.of(pending.sample()));
+                flushedCount.incrementAndGet();
+            } catch (RuntimeException e) {
+                log.warn("Dropping sensor reading {}: {}", pending.sample().id(), e.getMessage());
+                markDropped(pending);
+            }
+        }
+    }
+
+    private void markDropped(PendingReading pending) {
+        droppedCount.incrementAndGet();
+        if (pending.waiter() != null) {
+            pending.waiter().dropped = true; // The waiting caller must not report it as stored
+        }
+    }
+
+    private void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            // Woken for shutdown; the retry loop checks the running flag
+        }
+    }
+
+    private record PendingReading(long seq, SensorSample sample, CommitWaiter waiter) {
+    }
+
+    /**
+     * Shared by the readings of one awaited call; held only by them and the caller, so nothing
+     * is left behind when the caller stops waiting
+     */
+    private static final class CommitWaiter {
+        private volatile boolean dropped;
+    }
+}
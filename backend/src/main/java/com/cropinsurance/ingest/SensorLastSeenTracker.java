@@ -0,0 +1,86 @@
+package com.cropinsurance.ingest;
+
+import com.cropinsurance.repository.SensorReadingBatchRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sensor Last Seen Tracker - Coalesces sensors.last_reading_at updates.
+ * Every accepted reading only bumps an in-memory timestamp; a scheduled flush writes all
+ * changed sensors with one bulk UPDATE, so each sensor row is written at most once per
+ * flush interval no matter how often it reports.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SensorLastSeenTracker {
+
+    private final SensorReadingBatchRepository sensorReadingBatchRepository;
+
+    private final ConcurrentHashMap<UUID, LocalDateTime> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong flushedCount = new AtomicLong();
+
+    /**
+     * Remember the latest reading time of a sensor
+     */
+    public void record(UUID sensorId, LocalDateTime recordedAt) {
+        pending.merge(sensorId, recordedAt, (a, b) -> a.isAfter(b) ? a : b);
+    }
+
+    /**
+     * Latest reading time not yet flushed, if any
+     */
+    public LocalDateTime getPending(UUID sensorId) {
+        return pending.get(sensorId);
+    }
+
+    @Scheduled(fixedDelayString = "${sensor.last-seen.flush-interval-ms:30000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<Map.Entry<UUID, LocalDateTime>> snapshot = new ArrayList<>(pending.size());
+        for (Map.Entry<UUID, LocalDateTime> entry : pending.entrySet()) {
+            snapshot.add(Map.entry(entry.getKey(), entry.getValue()));
+        }
+
+        try {
+            sensorReadingBatchRepository.updateLastReadingAt(snapshot);
+        } catch (RuntimeException e) {
+            log.warn("Failed to flush last reading times for {} sensors, will retry: {}",
+                    snapshot.size(), e.getMessage());
+            return;
+        }
+
+        // Only forget entries that did not move on while we were writing
+        snapshot.forEach(entry -> pending.remove(entry.getKey(), entry.getValue()));
+        flushedCount.addAndGet(snapshot.size());
+        log.debug("Flushed last reading time for {} sensors", snapshot.size());
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pendingSensors", pending.size());
+        stats.put("flushedUpdates", flushedCount.get());
+        return stats;
+    }
+}
@@ -0,0 +1,253 @@
+package com.cropinsurance.ingest;
+
+import com.cropinsurance.exception.BadRequestException;
+import com.cropinsurance.exception.TooManyRequestsException;
+import com.cropinsurance.ingest.SensorIngestBuffer.AckMode;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sensor Late Reading Lane - Separate, paced write path for late readings (gateway backlogs).
+ *
+ * Late readings are queued here instead of going through the real-time path, so a day of
+ * buffered readings neither spends the sensors' real-time rate limits nor fills the write-behind
+ * buffer. A single writer drains the queue in large batches at no more than max-readings-per-second,
+ * which bounds the database load a backlog can put next to real-time ingestion. The queue is
+ * bounded in readings; when it is full the caller gets 429 and the gateway retries later. As in
+ * the write-behind buffer, a caller whose commit is not done within commit-timeout is told the
+ * readings are accepted with the commit pending, not asked to resend them.
+ * Write failures are retried with backoff, so readings acknowledged on enqueue are not lost to a
+ * transient database error; only readings the database rejects row by row are dropped.
+ *
+ * Stored late readings update rollups (in the buckets of their own time) and the recent readings,
+ * but are not pushed to live stream subscribers or the anomaly detector.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SensorLateReadingLane {
+
+    private final SensorReadingWriter sensorReadingWriter;
+
+    @Value("${sensor.late.capacity:200000}")
+    private int capacity;
+
+    @Value("${sensor.late.flush-size:5000}")
+    private int flushSize;
+
+    @Value("${sensor.late.max-readings-per-second:5000}")
+    private int maxReadingsPerSecond;
+
+    @Value("${sensor.late.ack:ENQUEUE}")
+    private AckMode ackMode;
+
+    @Value("${sensor.late.commit-timeout-ms:30000}")
+    private long commitTimeoutMillis;
+
+    private final LinkedBlockingQueue<PendingBatch> queue = new LinkedBlockingQueue<>();
+    private final AtomicInteger queuedReadings = new AtomicInteger();
+    private Thread writer;
+    private volatile boolean running;
+
+    private final LongAdder acceptedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final LongAdder commitTimeoutCount = new LongAdder();
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer = new Thread(this::runWriter, "sensor-late-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writer.interrupt();
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    /**
+     * Queue late readings as a unit, or reject them with 429 when the lane is full; with
+     * awaitCommit the call waits until they are committed, whatever the ack mode. Returns false
+     * when the commit was awaited but is still pending after the commit timeout.
+     */
+    public boolean submitAll(List<SensorSample> samples, boolean awaitCommit) {
+        if (samples.isEmpty()) {
+            return true;
+        }
+        int queued = queuedReadings.addAndGet(samples.size());
+        if (!running || queued > capacity) {
+            queuedReadings.addAndGet(-samples.size());
+            rejectedCount.add(samples.size());
+            throw new TooManyRequestsException("Late reading queue is full, retry later");
+        }
+        PendingBatch batch = new PendingBatch(samples, new CompletableFuture<>());
+        queue.add(batch);
+        acceptedCount.add(samples.size());
+
+        return !(awaitCommit || ackMode == AckMode.COMMIT) || awaitCommit(batch.committed());
+    }
+
+    /**
+     * Lane statistics for monitoring
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ackMode", ackMode);
+        stats.put("capacity", capacity);
+        stats.put("queuedReadings", queuedReadings.get());
+        stats.put("accepted", acceptedCount.sum());
+        stats.put("rejected", rejectedCount.sum());
+        stats.put("written", writtenCount.get());
+        stats.put("dropped", droppedCount.get());
+        stats.put("commitTimeouts", commitTimeoutCount.sum());
+        return stats;
+    }
+
+    private boolean awaitCommit(CompletableFuture<Void> committed) {
+        try {
+            committed.get(commitTimeoutMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            commitTimeoutCount.increment();
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            commitTimeoutCount.increment();
+            return false;
+        } catch (ExecutionException e) {
+            throw new BadRequestException("Late readings could not be stored");
+        }
+    }
+
+    private void runWriter() {
+        List<PendingBatch> batches = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingBatch first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batches.add(first);
+                int readings = first.samples().size();
+                PendingBatch next;
+                while (readings < flushSize && (next = queue.poll()) != null) {
+                    batches.add(next);
+                    readings += next.samples().size();
+                }
+
+                long started = System.nanoTime();
+                write(batches, readings);
+                batches.clear();
+                pace(started, readings);
+            } catch (InterruptedException e) {
+                // Shutdown requested: the loop writes what is left without pacing
+                batches.forEach(batch -> write(List.of(batch), batch.samples().size()));
+                batches.clear();
+            }
+        }
+        log.info("🕰️ Late reading writer stopped ({} readings written)", writtenCount.get());
+    }
+
+    /**
+     * Write the merged batches, retrying transient failures with backoff; when the database
+     * rejects the batch it is written row by row and only the offending readings are dropped
+     */
+    private void write(List<PendingBatch> batches, int readings) {
+        List<SensorSample> samples = new ArrayList<>(readings);
+        batches.forEach(batch -> samples.addAll(batch.samples()));
+        try {
+            int attempt = 0;
+            while (true) {
+                try {
+                    sensorReadingWriter.writeLate(samples);
+                    writtenCount.addAndGet(readings);
+                    batches.forEach(batch -> batch.committed().complete(null));
+                    return;
+                } catch (DataIntegrityViolationException e) {
+                    log.warn("Late reading batch rejected by database, retrying row by row: {}", e.getMessage());
+                    batches.forEach(this::writeIndividually);
+                    return;
+                } catch (RuntimeException e) {
+                    attempt++;
+                    if (!running && attempt >= 3) {
+                        log.error("Dropping {} late sensor readings during shutdown: {}", readings, e.getMessage());
+                        droppedCount.addAndGet(readings);
+                        batches.forEach(batch -> batch.committed().completeExceptionally(e));
+                        return;
+                    }
+                    log.warn("Late reading write failed (attempt {}), retrying: {}", attempt, e.getMessage());
+                    sleepQuietly(Math.min(100L << Math.min(attempt, 6), 5000L));
+                }
+            }
+        } finally {
+            queuedReadings.addAndGet(-readings);
+        }
+    }
+
+    private void writeIndividually(PendingBatch batch) {
+        RuntimeException failure = null;
+        for (SensorSample sample : batch.samples()) {
+            try {
+                sensorReadingWriter.writeLate(List.of(sample));
+                writtenCount.incrementAndGet();
+            } catch (RuntimeException e) {
+                log.warn("Dropping late sensor reading {}: {}", sample.id(), e.getMessage());
+                droppedCount.incrementAndGet();
+                failure = e;
+            }
+        }
+        if (failure == null) {
+            batch.committed().complete(null);
+        } else {
+            batch.committed().completeExceptionally(failure);
+        }
+    }
+
+    private void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            // Woken for shutdown; the retry loop checks the running flag
+        }
+    }
+
+    /**
+     * Sleep off the rest of the time budget of the readings just written
+     */
+    private void pace(long started, int readings) throws InterruptedException {
+        if (maxReadingsPerSecond <= 0 || !running) {
+            return;
+        }
+        long budget = TimeUnit.SECONDS.toNanos(readings) / maxReadingsPerSecond;
+        long remaining = budget - (System.nanoTime() - started);
+        if (remaining > 0) {
+            TimeUnit.NANOSECONDS.sleep(remaining);
+        }
+    }
+
+    private record PendingBatch(List<SensorSample> samples, CompletableFuture<Void> committed) {
+    }
+}
@@ -0,0 +1,266 @@
+package com.cropinsurance.ingest;
+
+import com.cropinsurance.exception.TooManyRequestsException;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sensor Rate Limiter - Token buckets per sensor and per source gateway.
+ *
+ * A bucket is a single AtomicLong holding the time (nanoTime) at which it would be full again,
+ * the GCRA form of a token bucket. Taking n tokens moves that time forward by n / rate with one
+ * CAS and is refused when it would run further ahead of now than the burst allows, so refill is
+ * implicit and the hot path takes no lock. A charge larger than the burst (a big frame from a
+ * slow sensor class) is admitted only into a full bucket and leaves it in debt for the full
+ * cost, so no later reading gets through until the average rate is back within the limit.
+ * Buckets sit in ConcurrentHashMaps (lock-free reads, striped bins for inserts) and are evicted
+ * once they are full again.
+ *
+ * Sensor limits are chosen by the sensor's class (sensors.sensor_class, "default" when unset):
+ * sensor.rate-limit.sensor-classes=default=0.2/30,weather-station=2/300 means 0.2 readings
+ * per second with a burst of 30 for ordinary sensors. Late readings (backlog uploads) have a
+ * bucket of their own per sensor that refills at the class rate and holds late-backlog-hours of
+ * readings at that rate, so a sensor can upload what it recorded while offline but no more.
+ *
+ * Sources are client addresses as the servlet container reports them. Behind a reverse proxy
+ * every client would share the proxy's bucket, so the container takes the address from
+ * X-Forwarded-For when the request comes from one of server.tomcat.remoteip.internal-proxies.
+ */
+@Component
+@Slf4j
+public class SensorRateLimiter {
+
+    public static final String DEFAULT_CLASS = "default";
+
+    @Value("${sensor.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${sensor.rate-limit.sensor-classes:default=0.2/30}")
+    private String sensorClasses;
+
+    @Value("${sensor.rate-limit.gateway-rate:500}")
+    private double gatewayRate;
+
+    @Value("${sensor.rate-limit.gateway-burst:5000}")
+    private int gatewayBurst;
+
+    @Value("${sensor.rate-limit.late-backlog-hours:24}")
+    private double lateBacklogHours;
+
+    private Map<String, Limit> sensorLimits;
+    private Limit defaultSensorLimit;
+    private Map<String, Limit> lateLimits;
+    private Limit defaultLateLimit;
+    private Limit gatewayLimit;
+
+    private final ConcurrentHashMap<String, AtomicLong> sensorBuckets = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, AtomicLong> gatewayBuckets = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, AtomicLong> lateBuckets = new ConcurrentHashMap<>();
+
+    private final LongAdder sensorLimited = new LongAdder();
+    private final LongAdder gatewayLimited = new LongAdder();
+    private final LongAdder lateLimited = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        Map<String, Limit> limits = new HashMap<>();
+        Map<String, Limit> backlogLimits = new HashMap<>();
+        for (String entry : sensorClasses.split(",")) {
+            String[] parts = entry.trim().split("[=/]");
+            if (parts.length != 3) {
+                throw new IllegalStateException("Invalid sensor rate limit class '" + entry + "', expected name=rate/burst");
+            }
+            double rate = Double.parseDouble(parts[1].trim());
+            limits.put(parts[0].trim(), new Limit(rate, Integer.parseInt(parts[2].trim())));
+            backlogLimits.put(parts[0].trim(), backlogLimit(rate));
+        }
+        sensorLimits = limits;
+        defaultSensorLimit = limits.getOrDefault(DEFAULT_CLASS, new Limit(0.2, 30));
+        lateLimits = backlogLimits;
+        defaultLateLimit = backlogLimits.getOrDefault(DEFAULT_CLASS, backlogLimit(0.2));
+        gatewayLimit = new Limit(gatewayRate, gatewayBurst);
+    }
+
+    /**
+     * Take tokens for readings of a sensor, or throw 429
+     */
+    public void acquireSensor(SensorRef sensor, int readings) {
+        if (!tryAcquireSensor(sensor, readings)) {
+            throw new TooManyRequestsException("Rate limit exceeded for sensor " + sensor.uniqueCode());
+        }
+    }
+
+    /**
+     * Take tokens for readings of a sensor; false (and counted) when over its class limit
+     */
+    public boolean tryAcquireSensor(SensorRef sensor, int readings) {
+        if (!enabled) {
+            return true;
+        }
+        Limit limit = sensor.sensorClass() != null
+                ? sensorLimits.getOrDefault(sensor.sensorClass(), defaultSensorLimit)
+                : defaultSensorLimit;
+        if (take(sensorBuckets, sensor.uniqueCode(), limit, readings)) {
+            return true;
+        }
+        sensorLimited.add(readings);
+        return false;
+    }
+
+    /**
+     * Give back tokens taken for readings of a sensor that were refused after all
+     */
+    public void releaseSensor(SensorRef sensor, int readings) {
+        if (!enabled) {
+            return;
+        }
+        Limit limit = sensor.sensorClass() != null
+                ? sensorLimits.getOrDefault(sensor.sensorClass(), defaultSensorLimit)
+                : defaultSensorLimit;
+        give(sensorBuckets, sensor.uniqueCode(), limit, readings);
+    }
+
+    /**
+     * Take late reading tokens of a sensor, or throw 429
+     */
+    public void acquireLate(SensorRef sensor, int readings) {
+        if (!tryAcquireLate(sensor, readings)) {
+            throw new TooManyRequestsException("Late reading limit exceeded for sensor " + sensor.uniqueCode());
+        }
+    }
+
+    /**
+     * Take late reading tokens of a sensor; false (and counted) when its backlog allowance is spent
+     */
+    public boolean tryAcquireLate(SensorRef sensor, int readings) {
+        if (!enabled) {
+            return true;
+        }
+        if (take(lateBuckets, sensor.uniqueCode(), lateLimitOf(sensor), readings)) {
+            return true;
+        }
+        lateLimited.add(readings);
+        return false;
+    }
+
+    /**
+     * Give back late reading tokens of a sensor whose readings were refused after all
+     */
+    public void releaseLate(SensorRef sensor, int readings) {
+        if (enabled) {
+            give(lateBuckets, sensor.uniqueCode(), lateLimitOf(sensor), readings);
+        }
+    }
+
+    /**
+     * Take tokens for readings arriving from a source (client address), or throw 429
+     */
+    public void acquireGateway(String source, int readings) {
+        if (!tryAcquireGateway(source, readings)) {
+            throw new TooManyRequestsException("Rate limit exceeded for " + source);
+        }
+    }
+
+    /**
+     * Take tokens for readings arriving from a source; false (and counted) when over the limit
+     */
+    public boolean tryAcquireGateway(String source, int readings) {
+        if (!enabled || source == null) {
+            return true;
+        }
+        if (take(gatewayBuckets, source, gatewayLimit, readings)) {
+            return true;
+        }
+        gatewayLimited.add(readings);
+        return false;
+    }
+
+    /**
+     * Rate limiter statistics for monitoring
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("sensorBuckets", sensorBuckets.size());
+        stats.put("gatewayBuckets", gatewayBuckets.size());
+        stats.put("lateBuckets", lateBuckets.size());
+        stats.put("sensorLimitedReadings", sensorLimited.sum());
+        stats.put("gatewayLimitedReadings", gatewayLimited.sum());
+        stats.put("lateLimitedReadings", lateLimited.sum());
+        return stats;
+    }
+
+    /**
+     * Drop buckets that have refilled completely; a fresh bucket behaves the same
+     */
+    @Scheduled(fixedDelayString = "${sensor.rate-limit.evict-interval-ms:60000}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        sensorBuckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+        gatewayBuckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+        lateBuckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+    }
+
+    private static boolean take(ConcurrentHashMap<String, AtomicLong> buckets, String key, Limit limit, int tokens) {
+        AtomicLong bucket = buckets.get(key);
+        long now = System.nanoTime();
+        if (bucket == null) {
+            bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+        long cost = tokens * limit.intervalNanos();
+        while (true) {
+            long fullAt = bucket.get();
+            boolean full = fullAt - now <= 0;
+            long next = (full ? now : fullAt) + cost;
+            if (next - now > limit.burstNanos() && !full) {
+                return false;
+            }
+            if (bucket.compareAndSet(fullAt, next)) {
+                return true;
+            }
+        }
+    }
+
+    private Limit lateLimitOf(SensorRef sensor) {
+        return sensor.sensorClass() != null
+                ? lateLimits.getOrDefault(sensor.sensorClass(), defaultLateLimit)
+                : defaultLateLimit;
+    }
+
+    /**
+     * Backlog allowance of a class: its real-time rate, with late-backlog-hours of readings as burst
+     */
+    private Limit backlogLimit(double ratePerSecond) {
+        return new Limit(ratePerSecond, (int) Math.max(1, Math.round(ratePerSecond * lateBacklogHours * 3600)));
+    }
+
+    /**
+     * Move a bucket's full time back by the cost of the tokens; an evicted bucket is full already
+     */
+    private static void give(ConcurrentHashMap<String, AtomicLong> buckets, String key, Limit limit, int tokens) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket != null) {
+            bucket.addAndGet(-tokens * limit.intervalNanos());
+        }
+    }
+
+    /**
+     * Rate in tokens per second and burst in tokens, kept as nanos per token and burst window
+     */
+    private record Limit(long intervalNanos, long burstNanos) {
+
+        private Limit(double ratePerSecond, int burst) {
+            this((long) (1_000_000_000L / ratePerSecond), (long) (1_000_000_000L / ratePerSecond) * burst);
+        }
+    }
+}
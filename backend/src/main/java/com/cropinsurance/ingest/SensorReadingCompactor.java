@@ -0,0 +1,180 @@
+package com.cropinsurance.ingest;
+
+import com.cropinsurance.entity.Sensor;
+import com.cropinsurance.entity.SensorReading;
+import com.cropinsurance.repository.SensorReadingBatchRepository;
+import com.cropinsurance.repository.SensorReadingBlockRepository;
+import com.cropinsurance.repository.SensorReadingBlockRepository.Block;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sensor Reading Compactor - Moves closed sensor-days from sensor_readings into compressed blocks.
+ *
+ * Each window is compacted in one transaction: its raw rows are deleted with RETURNING (so a
+ * reading inserted concurrently is either compacted or left alone, never lost), merged with any
+ * existing block of that day and re-encoded (existing readings first, so the ids derived for
+ * readings sharing a timestamp do not change). Reads go through SensorReadingHistory.
+ *
+ * Blocks follow the same retention as the sensor_readings partitions: once a block's month is
+ * older than sensor.partitions.retention-months it is archived (DETACH) or deleted (DROP).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SensorReadingCompactor {
+
+    private static final int WINDOWS_PER_QUERY = 500;
+    private static final int BLOCKS_PER_EXPIRY = 1000;
+
+    private final SensorReadingBatchRepository sensorReadingBatchRepository;
+    private final SensorReadingBlockRepository sensorReadingBlockRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${sensor.compaction.enabled:true}")
+    private boolean enabled;
+
+    @Value("${sensor.compaction.after-days:30}")
+    private int afterDays;
+
+    @Value("${sensor.compaction.max-windows-per-run:20000}")
+    private int maxWindowsPerRun;
+
+    @Value("${sensor.partitions.retention-months:24}")
+    private int retentionMonths;
+
+    @Value("${sensor.partitions.retention-action:DETACH}")
+    private SensorReadingPartitionManager.RetentionAction retentionAction;
+
+    private final LongAdder compactedDays = new LongAdder();
+    private final LongAdder compactedReadings = new LongAdder();
+    private final LongAdder expiredBlocks = new LongAdder();
+
+    /**
+     * Compact sensor-days older than the configured age (nightly)
+     */
+    @Scheduled(cron = "${sensor.compaction.cron:0 45 3 * * *}")
+    public void compact() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime cutoff = LocalDate.now().minusDays(afterDays).atStartOfDay();
+        int windows = 0;
+        int readings = 0;
+        int failures = 0;
+
+        while (windows + failures < maxWindowsPerRun) {
+            List<Map.Entry<UUID, LocalDateTime>> batch = sensorReadingBatchRepository.findCompactionWindows(
+                    cutoff, Math.min(WINDOWS_PER_QUERY, maxWindowsPerRun - windows - failures));
+            if (batch.isEmpty()) {
+                break;
+            }
+            int failuresBefore = failures;
+            for (Map.Entry<UUID, LocalDateTime> window : batch) {
+                try {
+                    readings += compactWindow(window.getKey(), window.getValue());
+                    windows++;
+                } catch (RuntimeException e) {
+                    failures++;
+                    log.error("Failed to compact readings of sensor {} on {}: {}",
+                            window.getKey(), window.getValue().toLocalDate(), e.getMessage());
+                }
+            }
+            if (failures - failuresBefore == batch.size()) {
+                break; // Nothing moved, the same windows would be returned again
+            }
+        }
+
+        compactedDays.add(windows);
+        compactedReadings.add(readings);
+        if (windows > 0 || failures > 0) {
+            log.info("🗜️ Compacted {} readings from {} sensor-days before {} ({} failed)",
+                    readings, windows, cutoff.toLocalDate(), failures);
+        }
+    }
+
+    /**
+     * Archive or delete blocks of months past the reading retention (nightly, also when compaction is off)
+     */
+    @Scheduled(cron = "${sensor.compaction.cron:0 45 3 * * *}")
+    public void expire() {
+        LocalDateTime cutoff = YearMonth.now().minusMonths(retentionMonths).atDay(1).atStartOfDay();
+        boolean archive = retentionAction == SensorReadingPartitionManager.RetentionAction.DETACH;
+        int expired = 0;
+        try {
+            int batch;
+            do {
+                batch = sensorReadingBlockRepository.expireBefore(cutoff, archive, BLOCKS_PER_EXPIRY);
+                expired += batch;
+            } while (batch == BLOCKS_PER_EXPIRY);
+        } catch (RuntimeException e) {
+            log.error("Failed to expire compressed reading blocks before {}: {}", cutoff.toLocalDate(), e.getMessage());
+        }
+
+        if (expired > 0) {
+            expiredBlocks.add(expired);
+            log.info("🗑️ {} compressed reading blocks before {} past retention ({} months): {}",
+                    expired, cutoff.toLocalDate(), retentionMonths, archive ? "archived" : "deleted");
+        }
+    }
+
+    /**
+     * Compaction totals of this node since startup, with the estimated size of cold storage
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(sensorReadingBlockRepository.getStats());
+        stats.put("compactedDays", compactedDays.sum());
+        stats.put("compactedReadings", compactedReadings.sum());
+        stats.put("expiredBlocks", expiredBlocks.sum());
+        return stats;
+    }
+
+    private int compactWindow(UUID sensorId, LocalDateTime day) {
+        Integer compacted = transactionTemplate.execute(status -> {
+            List<SensorReading> removed = sensorReadingBatchRepository.deleteWindow(sensorId, day, day.plusDays(1));
+            if (removed.isEmpty()) {
+                return 0;
+            }
+
+            Sensor sensor = Sensor.builder().id(sensorId).build();
+            List<SensorReading> readings = new ArrayList<>(removed.size());
+            sensorReadingBlockRepository.find(sensorId, day)
+                    .ifPresent(existing -> readings.addAll(SensorBlockCodec.decode(existing.data(), sensor)));
+            // A late retry of a numbered reading already compacted has the same id (SensorSample.idFor):
+            // keep one copy. Other readings may share a timestamp and are all kept.
+            Set<UUID> compactedIds = new HashSet<>();
+            readings.forEach(reading -> compactedIds.add(reading.getId()));
+            for (SensorReading reading : removed) {
+                if (!compactedIds.contains(reading.getId())) {
+                    readings.add(reading);
+                }
+            }
+
+            LocalDateTime end = readings.stream()
+                    .map(SensorReading::getRecordedAt)
+                    .max(Comparator.naturalOrder())
+                    .orElseThrow();
+            sensorReadingBlockRepository.upsert(sensorId,
+                    new Block(day, end, readings.size(), SensorBlockCodec.encode(readings)));
+            return removed.size();
+        });
+        return compacted != null ? compacted : 0;
+    }
+}
@@ -0,0 +1,231 @@
+package com.cropinsurance.ingest;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sensor Reading Deduplicator - Sliding window over recent sequence numbers of each sensor.
+ *
+ * Sensors that number their readings (sequence plus device timestamp) get the anti-replay
+ * window used by IPsec: the highest sequence stored so far and a bitmap of the window below it,
+ * kept in primitive arrays indexed by the sensor's dense ordinal. A retry inside the window is
+ * answered from memory before it costs a rate limit token or a database round trip. Anything
+ * the window cannot decide (older than the window, or after a restart) goes on to the database,
+ * where the unique index on (sensor_id, recorded_at, seq) and ON CONFLICT DO NOTHING keep it
+ * from being stored twice.
+ *
+ * A lower sequence with a newer device time than the highest one means the device restarted
+ * its counter; the window then starts over from that reading.
+ */
+@Component
+@RequiredArgsConstructor
+public class SensorReadingDeduplicator {
+
+    private static final int STRIPES = 64;
+
+    private final SensorCodeCache sensorCodeCache;
+
+    @Value("${sensor.dedup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${sensor.dedup.window:1024}")
+    private int window;
+
+    private int words;
+
+    private final Object[] locks = newLocks();
+    private volatile State state;
+
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder storeHits = new LongAdder();
+    private final LongAdder outsideWindow = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        // Power of two, whole longs
+        window = Math.max(64, Integer.highestOneBit(Math.max(1, window - 1)) << 1);
+        words = window / 64;
+        state = new State(1024, words);
+    }
+
+    /**
+     * Whether the window already holds this reading (same sensor and sequence, not a new counter);
+     * false when it does not know, in which case the database decides
+     */
+    public boolean isDuplicate(SensorSample sample) {
+        if (!enabled || sample.sequence() == SensorSample.NO_SEQUENCE) {
+            return false;
+        }
+        int ordinal = sensorCodeCache.ordinalOf(sample.sensorId());
+        long sequence = sample.sequence();
+        long time = SensorBlockCodec.toMicros(sample.recordedAt());
+
+        synchronized (locks[ordinal & (STRIPES - 1)]) {
+            State s = state;
+            if (ordinal >= s.capacity || s.top[ordinal] == 0) {
+                return false;
+            }
+            long highest = s.top[ordinal] - 1;
+            if (sequence > highest || time > s.topTime[ordinal]) {
+                return false;
+            }
+            if (highest - sequence >= window) {
+                outsideWindow.increment();
+                return false;
+            }
+            if (!s.test(ordinal, sequence)) {
+                return false;
+            }
+        }
+        memoryHits.increment();
+        return true;
+    }
+
+    /**
+     * Mark a stored (or found already stored) reading in its sensor's window
+     */
+    public void record(UUID sensorId, long sequence, LocalDateTime recordedAt) {
+        if (!enabled || sequence == SensorSample.NO_SEQUENCE) {
+            return;
+        }
+        int ordinal = sensorCodeCache.ordinalOf(sensorId);
+        if (ordinal >= state.capacity) {
+            grow(ordinal);
+        }
+        long time = SensorBlockCodec.toMicros(recordedAt);
+
+        synchronized (locks[ordinal & (STRIPES - 1)]) {
+            State s = state;
+            long top = s.top[ordinal];
+            long highest = top - 1;
+            if (top == 0 || (sequence <= highest && time > s.topTime[ordinal])) {
+                // First reading seen, or the device started counting again
+                s.clear(ordinal);
+                s.top[ordinal] = sequence + 1;
+                s.topTime[ordinal] = time;
+            } else if (sequence > highest) {
+                if (sequence - highest >= window) {
+                    s.clear(ordinal);
+                } else {
+                    for (long cleared = highest + 1; cleared < sequence; cleared++) {
+                        s.reset(ordinal, cleared);
+                    }
+                }
+                s.top[ordinal] = sequence + 1;
+                s.topTime[ordinal] = time;
+            } else if (highest - sequence >= window) {
+                return;
+            }
+            s.set(ordinal, sequence);
+        }
+    }
+
+    /**
+     * Count duplicates that got past the window and were dropped by the unique index
+     */
+    public void countStoreDuplicates(int duplicates) {
+        storeHits.add(duplicates);
+    }
+
+    /**
+     * Deduplication statistics for monitoring
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("window", window);
+        stats.put("duplicatesInMemory", memoryHits.sum());
+        stats.put("duplicatesInDatabase", storeHits.sum());
+        stats.put("outsideWindow", outsideWindow.sum());
+        return stats;
+    }
+
+    /**
+     * Grow the state arrays; holds every stripe so no update runs against the old arrays
+     */
+    private void grow(int ordinal) {
+        growHoldingStripes(0, ordinal);
+    }
+
+    private void growHoldingStripes(int stripe, int ordinal) {
+        if (stripe < STRIPES) {
+            synchronized (locks[stripe]) {
+                growHoldingStripes(stripe + 1, ordinal);
+            }
+            return;
+        }
+        State current = state;
+        if (ordinal < current.capacity) {
+            return;
+        }
+        state = current.copy(Math.max(current.capacity * 2, ordinal + 1));
+    }
+
+    private static Object[] newLocks() {
+        Object[] locks = new Object[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        return locks;
+    }
+
+    /**
+     * Structure-of-arrays state; top is the highest sequence + 1 (0 = nothing seen yet), the
+     * window bitmap of a sensor is words longs from ordinal * words, bit = sequence mod window
+     */
+    private static final class State {
+        private final int capacity;
+        private final int words;
+        private final long[] top;
+        private final long[] topTime;
+        private final long[] bits;
+
+        private State(int capacity, int words) {
+            this.capacity = capacity;
+            this.words = words;
+            this.top = new long[capacity];
+            this.topTime = new long[capacity];
+            this.bits = new long[capacity * words];
+        }
+
+        private State(State other, int capacity) {
+            this.capacity = capacity;
+            this.words = other.words;
+            this.top = Arrays.copyOf(other.top, capacity);
+            this.topTime = Arrays.copyOf(other.topTime, capacity);
+            this.bits = Arrays.copyOf(other.bits, capacity * words);
+        }
+
+        private State copy(int capacity) {
+            return new State(this, capacity);
+        }
+
+        private boolean test(int ordinal, long sequence) {
+            int bit = (int) (sequence & (words * 64L - 1));
+            return (bits[ordinal * words + (bit >>> 6)] & (1L << bit)) != 0;
+        }
+
+        private void set(int ordinal, long sequence) {
+            int bit = (int) (sequence & (words * 64L - 1));
+            bits[ordinal * words + (bit >>> 6)] |= 1L << bit;
+        }
+
+        private void reset(int ordinal, long sequence) {
+            int bit = (int) (sequence & (words * 64L - 1));
+            bits[ordinal * words + (bit >>> 6)] &= ~(1L << bit);
+        }
+
+        private void clear(int ordinal) {
+            Arrays.fill(bits, ordinal * words, (ordinal + 1) * words, 0L);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.cropinsurance.ingest;
+
+import com.cropinsurance.entity.Sensor;
+import com.cropinsurance.entity.SensorReading;
+import com.cropinsurance.exception.BadRequestException;
+import com.cropinsurance.repository.SensorReadingBatchRepository;
+import com.cropinsurance.repository.SensorReadingBlockRepository;
+import com.cropinsurance.repository.SensorReadingBlockRepository.Block;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Sensor Reading History - Reads that transparently merge raw rows with compressed blocks.
+ * Compaction only turns old sensor-days into blocks, but late readings can still land in a
+ * compacted day, so both sources are always consulted and merged by recorded time.
+ */
+@Component
+@RequiredArgsConstructor
+public class SensorReadingHistory {
+
+    private static final int BLOCKS_PER_QUERY = 4;
+    private static final int PAGE_SIZE = 1000;
+    private static final LocalDateTime FAR_FUTURE = LocalDateTime.of(9999, 1, 1, 0, 0);
+    private static final LocalDateTime FAR_PAST = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final UUID MIN_ID = new UUID(0, 0);
+    private static final Comparator<SensorReading> NEWEST_FIRST =
+            Comparator.comparing(SensorReading::getRecordedAt).reversed();
+
+    /**
+     * (recorded_at, id) order; ids compare unsigned like PostgreSQL's uuid type
+     */
+    static final Comparator<SensorReading> KEY_ORDER = Comparator.comparing(SensorReading::getRecordedAt)
+            .thenComparing(SensorReading::getId, SensorReadingHistory::compareIds);
+
+    private final SensorReadingBatchRepository sensorReadingBatchRepository;
+    private final SensorReadingBlockRepository sensorReadingBlockRepository;
+
+    /**
+     * Latest readings of a sensor, newest first
+     */
+    public List<SensorReading> latest(Sensor sensor, int limit) {
+        List<SensorReading> readings = new ArrayList<>(
+                sensorReadingBatchRepository.findLatestBySensor(sensor.getId(), limit));
+
+        LocalDateTime before = FAR_FUTURE;
+        while (true) {
+            List<Block> blocks = sensorReadingBlockRepository.findBefore(sensor.getId(), before, BLOCKS_PER_QUERY);
+            for (Block block : blocks) {
+                // Blocks come newest first, so once one ends before the limit-th reading we are done
+                if (readings.size() >= limit && block.blockEnd().isBefore(readings.get(limit - 1).getRecordedAt())) {
+                    return readings.subList(0, limit);
+                }
+                readings.addAll(SensorBlockCodec.decode(block.data(), sensor));
+                readings.sort(NEWEST_FIRST);
+                before = block.blockStart();
+            }
+            if (blocks.size() < BLOCKS_PER_QUERY) {
+                break;
+            }
+        }
+        return readings.size() > limit ? readings.subList(0, limit) : readings;
+    }
+
+    /**
+     * Visit readings of a sensor with recorded_at in [from, to) in (recorded_at, id) order,
+     * starting strictly after the cursor. Raw rows are fetched in keyset pages and blocks are
+     * decoded one at a time, so memory stays bounded whatever the range.
+     *
+     * @return cursor of the last visited reading when the limit was hit with readings left, else null
+     */
+    public Cursor scan(Sensor sensor, LocalDateTime from, LocalDateTime to, Cursor after, long limit,
+            Consumer<SensorReading> consumer) {
+        RawSource raw = new RawSource(sensor.getId(), from, to, after);
+        BlockSource compressed = new BlockSource(sensor, from, to, after);
+
+        SensorReading nextRaw = raw.next();
+        SensorReading nextCompressed = compressed.next();
+        SensorReading last = null;
+        long visited = 0;
+        while (nextRaw != null || nextCompressed != null) {
+            if (visited == limit) {
+                return Cursor.of(last);
+            }
+            SensorReading reading;
+            if (nextCompressed == null || (nextRaw != null && KEY_ORDER.compare(nextRaw, nextCompressed) <= 0)) {
+                reading = nextRaw;
+                nextRaw = raw.next();
+            } else {
+                reading = nextCompressed;
+                nextCompressed = compressed.next();
+            }
+            reading.setSensor(sensor);
+            consumer.accept(reading);
+            last = reading;
+            visited++;
+        }
+        return null;
+    }
+
+    private static int compareIds(UUID a, UUID b) {
+        int high = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return high != 0 ? high : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    }
+
+    /**
+     * Opaque position in a sensor's history: base64url of epoch micros and reading id
+     */
+    public record Cursor(LocalDateTime recordedAt, UUID id) {
+
+        private static final int BYTES = 24;
+
+        static Cursor of(SensorReading reading) {
+            return new Cursor(reading.getRecordedAt(), reading.getId());
+        }
+
+        public String encode() {
+            ByteBuffer buffer = ByteBuffer.allocate(BYTES)
+                    .putLong(SensorBlockCodec.toMicros(recordedAt))
+                    .putLong(id.getMostSignificantBits())
+                    .putLong(id.getLeastSignificantBits());
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+        }
+
+        public static Cursor decode(String token) {
+            try {
+                byte[] bytes = Base64.getUrlDecoder().decode(token);
+                if (bytes.length != BYTES) {
+                    throw new BadRequestException("Invalid cursor");
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                return new Cursor(SensorBlockCodec.fromMicros(buffer.getLong()),
+                        new UUID(buffer.getLong(), buffer.getLong()));
+            } catch (IllegalArgumentException | BufferUnderflowException e) {
+                throw new BadRequestException("Invalid cursor");
+            }
+        }
+
+        boolean isBefore(SensorReading reading) {
+            int byTime = recordedAt.compareTo(reading.getRecordedAt());
+            return byTime != 0 ? byTime < 0 : compareIds(id, reading.getId()) < 0;
+        }
+    }
+
+    /**
+     * Raw rows in keyset pages
+     */
+    private final class RawSource {
+        private final UUID sensorId;
+        private final LocalDateTime from;
+        private final LocalDateTime to;
+        private LocalDateTime afterTime;
+        private UUID afterId;
+        private List<SensorReading> page = List.of();
+        private int index;
+        private boolean exhausted;
+
+        private RawSource(UUID sensorId, LocalDateTime from, LocalDateTime to, Cursor after) {
+            this.sensorId = sensorId;
+            this.from = from;
+            this.to = to;
+            this.afterTime = after != null ? after.recordedAt() : FAR_PAST;
+            this.afterId = after != null ? after.id() : MIN_ID;
+        }
+
+        private SensorReading next() {
+            if (index == page.size()) {
+                if (exhausted) {
+                    return null;
+                }
+                page = sensorReadingBatchRepository.findPage(sensorId, from, to, afterTime, afterId, PAGE_SIZE);
+                index = 0;
+                exhausted = page.size() < PAGE_SIZE;
+                if (page.isEmpty()) {
+                    return null;
+                }
+            }
+            SensorReading reading = page.get(index++);
+            afterTime = reading.getRecordedAt();
+            afterId = reading.getId();
+            return reading;
+        }
+    }
+
+    /**
+     * Compressed blocks, decoded one sensor-day at a time
+     */
+    private final class BlockSource {
+        private final Sensor sensor;
+        private final LocalDateTime from;
+        private final LocalDateTime to;
+        private final Cursor after;
+        private LocalDateTime lastStart = FAR_PAST;
+        private List<SensorReading> decoded = List.of();
+        private int index;
+        private boolean exhausted;
+
+        private BlockSource(Sensor sensor, LocalDateTime from, LocalDateTime to, Cursor after) {
+            this.sensor = sensor;
+            this.from = after != null && after.recordedAt().isAfter(from) ? after.recordedAt() : from;
+            this.to = to;
+            this.after = after;
+        }
+
+        private SensorReading next() {
+            while (true) {
+                while (index < decoded.size()) {
+                    SensorReading reading = decoded.get(index++);
+                    if (!reading.getRecordedAt().isBefore(from) && reading.getRecordedAt().isBefore(to)
+                            && (after == null || after.isBefore(reading))) {
+                        return reading;
+                    }
+                }
+                if (exhausted) {
+                    return null;
+                }
+                List<Block> blocks = sensorReadingBlockRepository.findOverlapping(sensor.getId(), from, to, lastStart, 1);
+                if (blocks.isEmpty()) {
+                    exhausted = true;
+                    return null;
+                }
+                lastStart = blocks.get(0).blockStart();
+                decoded = new ArrayList<>(SensorBlockCodec.decode(blocks.get(0).data(), sensor));
+                decoded.sort(KEY_ORDER);
+                index = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.cropinsurance.ingest;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Sensor Reading Partition Manager - Maintains monthly range partitions of sensor_readings.
+ *
+ * Partitions are named sensor_readings_yYYYYmMM and created a few months ahead. Rows that
+ * landed in the default partition (for example right after migrating legacy data) are moved
+ * into their month when it is created. Months older than the retention are detached or dropped.
+ * The (sensor_id, recorded_at DESC) index is declared on the parent, so PostgreSQL creates it
+ * on every partition automatically.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SensorReadingPartitionManager {
+
+    private static final String PARENT = "sensor_readings";
+    private static final String DEFAULT_PARTITION = "sensor_readings_default";
+    private static final Pattern PARTITION_NAME = Pattern.compile("sensor_readings_y(\\d{4})m(\\d{2})");
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("'sensor_readings_y'yyyy'm'MM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${sensor.partitions.enabled:true}")
+    private boolean enabled;
+
+    @Value("${sensor.partitions.months-ahead:3}")
+    private int monthsAhead;
+
+    @Value("${sensor.partitions.retention-months:24}")
+    private int retentionMonths;
+
+    @Value("${sensor.partitions.retention-action:DETACH}")
+    private RetentionAction retentionAction;
+
+    public enum RetentionAction {
+        DETACH, // Keep the table for archiving, outside of sensor_readings
+        DROP // Delete the data
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintain();
+    }
+
+    /**
+     * Create upcoming partitions and apply retention (daily)
+     */
+    @Scheduled(cron = "${sensor.partitions.cron:0 15 2 * * *}")
+    public void maintain() {
+        if (!enabled) {
+            return;
+        }
+        if (!isPartitioned()) {
+            log.warn("⚠️ sensor_readings is not partitioned; run db/partition_sensor_readings.sql to migrate");
+            return;
+        }
+
+        try {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + DEFAULT_PARTITION + " PARTITION OF " + PARENT + " DEFAULT");
+
+            YearMonth current = YearMonth.now();
+            YearMonth cutoff = current.minusMonths(retentionMonths);
+            YearMonth first = earliestMonthInDefault();
+            if (first == null || first.isAfter(current)) {
+                first = current;
+            } else if (first.isBefore(cutoff)) {
+                first = cutoff; // Rows older than the retention stay in the default partition
+            }
+            for (YearMonth month = first; !month.isAfter(current.plusMonths(monthsAhead)); month = month.plusMonths(1)) {
+                ensurePartition(month);
+            }
+
+            applyRetention(cutoff);
+        } catch (RuntimeException e) {
+            log.error("Sensor reading partition maintenance failed: {}", e.getMessage());
+        }
+    }
+
+    private boolean isPartitioned() {
+        Boolean partitioned = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass(?))",
+                Boolean.class, PARENT);
+        return Boolean.TRUE.equals(partitioned);
+    }
+
+    private YearMonth earliestMonthInDefault() {
+        if (!tableExists(DEFAULT_PARTITION)) {
+            return null;
+        }
+        Timestamp earliest = jdbcTemplate.queryForObject(
+                "SELECT min(recorded_at) FROM " + DEFAULT_PARTITION, Timestamp.class);
+        return earliest == null ? null : YearMonth.from(earliest.toLocalDateTime());
+    }
+
+    /**
+     * Create the month's partition, moving any of its rows out of the default partition
+     */
+    private void ensurePartition(YearMonth month) {
+        String name = month.atDay(1).format(NAME_FORMAT);
+        if (tableExists(name)) {
+            return;
+        }
+
+        Timestamp from = Timestamp.valueOf(month.atDay(1).atStartOfDay());
+        Timestamp to = Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay());
+        String bounds = String.format("FOR VALUES FROM ('%s') TO ('%s')", month.atDay(1), month.plusMonths(1).atDay(1));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Boolean hasRows = jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM " + DEFAULT_PARTITION + " WHERE recorded_at >= ? AND recorded_at < ?)",
+                    Boolean.class, from, to);
+
+            if (!Boolean.TRUE.equals(hasRows)) {
+                jdbcTemplate.execute("CREATE TABLE " + name + " PARTITION OF " + PARENT + " " + bounds);
+                return;
+            }
+
+            jdbcTemplate.execute("ALTER TABLE " + PARENT + " DETACH PARTITION " + DEFAULT_PARTITION);
+            jdbcTemplate.execute("CREATE TABLE " + name + " PARTITION OF " + PARENT + " " + bounds);
+            int moved = jdbcTemplate.update("INSERT INTO " + name + " SELECT * FROM " + DEFAULT_PARTITION
+                    + " WHERE recorded_at >= ? AND recorded_at < ?", from, to);
+            jdbcTemplate.update("DELETE FROM " + DEFAULT_PARTITION + " WHERE recorded_at >= ? AND recorded_at < ?",
+                    from, to);
+            jdbcTemplate.execute("ALTER TABLE " + PARENT + " ATTACH PARTITION " + DEFAULT_PARTITION + " DEFAULT");
+            log.info("📦 Moved {} readings from default partition into {}", moved, name);
+        });
+        log.info("📦 Created sensor reading partition {}", name);
+    }
+
+    /**
+     * Detach or drop partitions of months before the cutoff month
+     */
+    private void applyRetention(YearMonth cutoff) {
+        List<String> partitions = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+                        + "WHERE i.inhparent = to_regclass(?)",
+                String.class, PARENT);
+
+        for (String partition : partitions) {
+            Matcher matcher = PARTITION_NAME.matcher(partition);
+            if (!matcher.matches()) {
+                continue;
+            }
+            YearMonth month = YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+            if (!month.isBefore(cutoff)) {
+                continue;
+            }
+
+            jdbcTemplate.execute("ALTER TABLE " + PARENT + " DETACH PARTITION " + partition);
+            if (retentionAction == RetentionAction.DROP) {
+                jdbcTemplate.execute("DROP TABLE " + partition);
+            }
+            log.info("🗑️ Sensor reading partition {} past retention ({} months): {}",
+                    partition, retentionMonths, retentionAction == RetentionAction.DROP ? "dropped" : "detached");
+        }
+    }
+
+    private boolean tableExists(String name) {
+        return jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, name);
+    }
+}
@@ -0,0 +1,265 @@
+package com.cropinsurance.ingest;
+
+import com.cropinsurance.entity.Sensor;
+import com.cropinsurance.entity.SensorReading;
+import com.cropinsurance.exception.TooManyRequestsException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sensor Reading Stream - In-process pub/sub pushing committed readings to SSE subscribers.
+ *
+ * Publishing never blocks the ingest thread: it only stores the reading as the subscriber's
+ * latest value for that sensor and schedules a drain on a small dispatch pool. A subscriber
+ * that falls behind is conflated (it receives only the newest reading per sensor), and one
+ * whose send stays stuck longer than the stall timeout is disconnected.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SensorReadingStream {
+
+    private static final String READING_EVENT = "reading";
+
+    private final SensorRecentReadings sensorRecentReadings;
+
+    @Value("${sensor.stream.max-subscribers:2000}")
+    private int maxSubscribers;
+
+    @Value("${sensor.stream.timeout-ms:1800000}")
+    private long timeoutMillis;
+
+    @Value("${sensor.stream.dispatch-threads:4}")
+    private int dispatchThreads;
+
+    @Value("${sensor.stream.stall-timeout-ms:10000}")
+    private long stallTimeoutMillis;
+
+    private final Map<UUID, Set<Subscriber>> subscribersBySensor = new ConcurrentHashMap<>();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    private final LongAdder publishedCount = new LongAdder();
+    private final LongAdder sentCount = new LongAdder();
+    private final LongAdder conflatedCount = new LongAdder();
+    private final LongAdder droppedSubscriberCount = new LongAdder();
+
+    private ThreadPoolExecutor dispatcher;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        // At most one queued drain per subscriber, so the queue never needs to outgrow the subscriber limit
+        dispatcher = new ThreadPoolExecutor(dispatchThreads, dispatchThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, maxSubscribers)), runnable -> {
+                    Thread thread = new Thread(runnable, "sensor-stream-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void stop() {
+        subscribers.forEach(subscriber -> disconnect(subscriber, null));
+        dispatcher.shutdownNow();
+    }
+
+    /**
+     * Open a stream for the given sensors, starting with each sensor's latest known reading
+     */
+    public SseEmitter subscribe(Collection<SensorRef> sensors) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new TooManyRequestsException("Too many live sensor streams, retry later");
+        }
+
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter, sensors);
+        emitter.onCompletion(() -> unregister(subscriber));
+        emitter.onTimeout(() -> disconnect(subscriber, null));
+        emitter.onError(e -> disconnect(subscriber, e));
+
+        subscribers.add(subscriber);
+        for (UUID sensorId : subscriber.sensorIds) {
+            subscribersBySensor.computeIfAbsent(sensorId, id -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        }
+
+        for (SensorRef sensor : sensors) {
+            List<SensorReading> latest = sensorRecentReadings.latest(sensor.toSensor(), 1);
+            if (!latest.isEmpty()) {
+                offer(subscriber, SensorSample.of(latest.get(0)));
+            }
+        }
+        return emitter;
+    }
+
+    /**
+     * Fan a committed reading out to the subscribers of its sensor (non-blocking)
+     */
+    public void publish(SensorSample sample) {
+        Set<Subscriber> targets = subscribersBySensor.get(sample.sensorId());
+        if (targets == null || targets.isEmpty()) {
+            return;
+        }
+        publishedCount.increment();
+        for (Subscriber subscriber : targets) {
+            offer(subscriber, sample);
+        }
+    }
+
+    /**
+     * Keep idle connections alive and disconnect subscribers whose sends are stuck. The keep-alive
+     * is sent by the subscriber's next drain on the dispatch pool, never on the scheduler thread,
+     * so a stalled client cannot hold up other scheduled jobs.
+     */
+    @Scheduled(fixedDelayString = "${sensor.stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            long sendStarted = subscriber.sendStartedAt;
+            if (sendStarted != 0 && now - sendStarted > TimeUnit.MILLISECONDS.toNanos(stallTimeoutMillis)) {
+                log.debug("Dropping stalled sensor stream subscriber");
+                disconnect(subscriber, null);
+                continue;
+            }
+            subscriber.heartbeatDue = true;
+            schedule(subscriber);
+        }
+    }
+
+    /**
+     * Stream statistics for monitoring
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("subscribers", subscribers.size());
+        stats.put("subscribedSensors", subscribersBySensor.size());
+        stats.put("published", publishedCount.sum());
+        stats.put("sent", sentCount.sum());
+        stats.put("conflated", conflatedCount.sum());
+        stats.put("droppedSubscribers", droppedSubscriberCount.sum());
+        return stats;
+    }
+
+    private void offer(Subscriber subscriber, SensorSample sample) {
+        // Keep only the newest sample per sensor until the subscriber's drain picks it up
+        UUID sensorId = sample.sensorId();
+        if (subscriber.latest.putIfAbsent(sensorId, sample) != null) {
+            conflatedCount.increment();
+            subscriber.latest.merge(sensorId, sample, (current, incoming) ->
+                    incoming.recordedAt().isBefore(current.recordedAt()) ? current : incoming);
+        }
+        schedule(subscriber);
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if ((subscriber.latest.isEmpty() && !subscriber.heartbeatDue) || !subscriber.draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            dispatcher.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException e) {
+            // Pending values stay conflated; the next publish or heartbeat reschedules the drain
+            subscriber.draining.set(false);
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            if (subscriber.heartbeatDue) {
+                subscriber.heartbeatDue = false;
+                subscriber.sendStartedAt = System.nanoTime();
+                subscriber.emitter.send(SseEmitter.event().comment("keep-alive"));
+            }
+            for (UUID sensorId : subscriber.latest.keySet()) {
+                SensorSample sample = subscriber.latest.remove(sensorId);
+                if (sample == null) {
+                    continue;
+                }
+                subscriber.sendStartedAt = System.nanoTime();
+                subscriber.emitter.send(SseEmitter.event()
+                        .name(READING_EVENT)
+                        .id(String.valueOf(sample.id()))
+                        .data(sample.toReading(subscriber.sensors.get(sensorId))));
+                sentCount.increment();
+            }
+        } catch (IOException | IllegalStateException e) {
+            disconnect(subscriber, null);
+        } finally {
+            subscriber.sendStartedAt = 0;
+            subscriber.draining.set(false);
+        }
+        // A reading may have arrived after the loop finished but before the flag was cleared
+        schedule(subscriber);
+    }
+
+    private void disconnect(Subscriber subscriber, Throwable error) {
+        if (!unregister(subscriber)) {
+            return;
+        }
+        droppedSubscriberCount.increment();
+        try {
+            if (error != null) {
+                subscriber.emitter.completeWithError(error);
+            } else {
+                subscriber.emitter.complete();
+            }
+        } catch (IllegalStateException ignored) {
+            // Already completed by the container
+        }
+    }
+
+    private boolean unregister(Subscriber subscriber) {
+        if (!subscribers.remove(subscriber)) {
+            return false;
+        }
+        subscriberCount.decrementAndGet();
+        subscriber.latest.clear();
+        for (UUID sensorId : subscriber.sensorIds) {
+            subscribersBySensor.computeIfPresent(sensorId, (id, set) -> {
+                set.remove(subscriber);
+                return set.isEmpty() ? null : set;
+            });
+        }
+        return true;
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final List<UUID> sensorIds;
+        private final Map<UUID, Sensor> sensors = new HashMap<>();
+        private final Map<UUID, SensorSample> latest = new ConcurrentHashMap<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean heartbeatDue;
+        private volatile long sendStartedAt;
+
+        private Subscriber(SseEmitter emitter, Collection<SensorRef> refs) {
+            this.emitter = emitter;
+            this.sensorIds = refs.stream().map(SensorRef::id).toList();
+            refs.forEach(ref -> sensors.put(ref.id(), ref.toSensor()));
+        }
+    }
+}
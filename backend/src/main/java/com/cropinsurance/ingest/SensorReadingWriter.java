@@ -0,0 +1,100 @@
+package com.cropinsurance.ingest;
+
+import com.cropinsurance.repository.SensorReadingBatchRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Sensor Reading Writer - Single persistence path for accepted readings.
+ * Used by the synchronous endpoints and by the write-behind flusher alike.
+ * Last reading times are handed to SensorLastSeenTracker instead of rewriting the sensor rows.
+ * Numbered readings that turn out to be stored already are left out of the in-memory views.
+ * Late readings (written by SensorLateReadingLane) skip the live stream and the anomaly detector.
+ */
+@Component
+@RequiredArgsConstructor
+public class SensorReadingWriter {
+
+    private final SensorReadingBatchRepository sensorReadingBatchRepository;
+    private final SensorLastSeenTracker sensorLastSeenTracker;
+    private final SensorRecentReadings sensorRecentReadings;
+    private final SensorRollupAggregator sensorRollupAggregator;
+    private final SensorReadingStream sensorReadingStream;
+    private final SensorAnomalyDetector sensorAnomalyDetector;
+    private final SensorHealthMonitor sensorHealthMonitor;
+    private final SensorReadingDeduplicator sensorReadingDeduplicator;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Persist readings in one batch (atomically), then publish them to the in-memory views.
+     * Publishing happens only after commit so memory never shows a rolled back reading.
+     */
+    public void write(List<SensorSample> samples) {
+        write(samples, true);
+    }
+
+    /**
+     * Persist late readings; they land in the partitions and rollup buckets of their own time,
+     * but are history by now, so they are not streamed or checked for anomalies
+     */
+    public void writeLate(List<SensorSample> samples) {
+        write(samples, false);
+    }
+
+    private void write(List<SensorSample> samples, boolean live) {
+        if (samples.isEmpty()) {
+            return;
+        }
+
+        List<SensorSample> stored = transactionTemplate.execute(status -> insert(samples));
+
+        for (SensorSample sample : samples) {
+            sensorReadingDeduplicator.record(sample.sensorId(), sample.sequence(), sample.recordedAt());
+        }
+        for (SensorSample sample : stored) {
+            sensorLastSeenTracker.record(sample.sensorId(), sample.recordedAt());
+            sensorRecentReadings.add(sample);
+            sensorRollupAggregator.add(sample);
+            if (live) {
+                sensorReadingStream.publish(sample);
+                sensorAnomalyDetector.evaluate(sample);
+            }
+            sensorHealthMonitor.record(sample.sensorId(), sample.recordedAt());
+        }
+    }
+
+    /**
+     * Insert plain readings as a JDBC batch and numbered ones with ON CONFLICT DO NOTHING;
+     * returns the samples that were actually inserted
+     */
+    private List<SensorSample> insert(List<SensorSample> samples) {
+        List<SensorSample> plain = new ArrayList<>(samples.size());
+        List<SensorSample> numbered = new ArrayList<>();
+        for (SensorSample sample : samples) {
+            (sample.sequence() == SensorSample.NO_SEQUENCE ? plain : numbered).add(sample);
+        }
+        sensorReadingBatchRepository.insertAll(plain);
+        if (numbered.isEmpty()) {
+            return samples;
+        }
+
+        Set<UUID> inserted = sensorReadingBatchRepository.insertNumbered(numbered);
+        if (inserted.size() == numbered.size()) {
+            return samples;
+        }
+        sensorReadingDeduplicator.countStoreDuplicates(numbered.size() - inserted.size());
+        List<SensorSample> stored = new ArrayList<>(plain.size() + inserted.size());
+        for (SensorSample sample : samples) {
+            if (sample.sequence() == SensorSample.NO_SEQUENCE || inserted.contains(sample.id())) {
+                stored.add(sample);
+            }
+        }
+        return stored;
+    }
+}
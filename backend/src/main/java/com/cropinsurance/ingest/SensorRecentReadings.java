@@ -0,0 +1,197 @@
+package com.cropinsurance.ingest;
+
+import com.cropinsurance.entity.Sensor;
+import com.cropinsurance.entity.SensorReading;
+import com.cropinsurance.repository.SensorReadingBatchRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sensor Recent Readings - Last N readings of every sensor kept in memory.
+ *
+ * Each sensor owns a fixed-size ring of primitive arrays: values as centi-units (int),
+ * recorded time as epoch millis, the reading id as two longs and the device sequence, so 100k
+ * sensors with N = 10 stay around 60 MB. Rings are filled from the database at startup (or on
+ * first access) and from this node's ingest path after every commit.
+ *
+ * That makes them authoritative only when every reading is ingested by this node: readings
+ * committed by other nodes never reach the ring. Deployments with several ingest nodes leave
+ * it disabled, and "latest N" queries are then answered from the database.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SensorRecentReadings {
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private final SensorReadingBatchRepository sensorReadingBatchRepository;
+    private final SensorReadingHistory sensorReadingHistory;
+
+    @Value("${sensor.recent-readings.enabled:false}")
+    private boolean enabled;
+
+    @Value("${sensor.recent-readings.size:10}")
+    private int size;
+
+    private final ConcurrentHashMap<UUID, Ring> rings = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        sensorReadingBatchRepository.findLatestPerSensor(size,
+                reading -> ring(reading.getSensor().getId()).insertIfAbsent(SensorSample.of(reading)));
+        rings.values().forEach(ring -> ring.loaded = true);
+        log.info("📈 Recent readings loaded for {} sensors (last {} each)", rings.size(), size);
+    }
+
+    /**
+     * Whether a "latest N" query can be answered from memory
+     */
+    public boolean canServe(int limit) {
+        return enabled && limit > 0 && limit <= size;
+    }
+
+    /**
+     * Add a committed reading
+     */
+    public void add(SensorSample sample) {
+        if (enabled) {
+            ring(sample.sensorId()).insert(sample);
+        }
+    }
+
+    /**
+     * Latest readings of a sensor, newest first
+     */
+    public List<SensorReading> latest(Sensor sensor, int limit) {
+        if (!enabled) {
+            return sensorReadingHistory.latest(sensor, limit);
+        }
+        Ring ring = ring(sensor.getId());
+        if (!ring.loaded) {
+            // Sensor not seen at startup: merge its history once, keeping anything added meanwhile
+            sensorReadingHistory.latest(sensor, size).forEach(reading -> ring.insertIfAbsent(SensorSample.of(reading)));
+            ring.loaded = true;
+        }
+        return ring.latest(sensor, limit);
+    }
+
+    public int sensorCount() {
+        return rings.size();
+    }
+
+    private Ring ring(UUID sensorId) {
+        return rings.computeIfAbsent(sensorId, id -> new Ring(size));
+    }
+
+    /**
+     * Fixed-size ring ordered by recorded time; slot(0) is the newest reading
+     */
+    private static final class Ring {
+        private static final int FIELDS = 4;
+
+        private final int capacity;
+        private final int[] values;
+        private final long[] times;
+        private final long[] ids;
+        private final long[] sequences;
+        private int newest = -1;
+        private int count;
+        private volatile boolean loaded;
+
+        Ring(int capacity) {
+            this.capacity = capacity;
+            this.values = new int[capacity * FIELDS];
+            this.times = new long[capacity];
+            this.ids = new long[capacity * 2];
+            this.sequences = new long[capacity];
+        }
+
+        synchronized void insertIfAbsent(SensorSample sample) {
+            long msb = sample.id().getMostSignificantBits();
+            long lsb = sample.id().getLeastSignificantBits();
+            for (int i = 0; i < count; i++) {
+                int s = slot(i);
+                if (ids[s * 2] == msb && ids[s * 2 + 1] == lsb) {
+                    return;
+                }
+            }
+            insert(sample);
+        }
+
+        synchronized void insert(SensorSample sample) {
+            long time = sample.recordedAt().atZone(ZONE).toInstant().toEpochMilli();
+
+            // Position among the held readings; almost always 0 (newest)
+            int position = 0;
+            while (position < count && times[slot(position)] > time) {
+                position++;
+            }
+            if (position == capacity) {
+                return; // Older than everything held
+            }
+
+            if (position == 0) {
+                newest = (newest + 1) % capacity;
+                count = Math.min(count + 1, capacity);
+            } else {
+                int newCount = Math.min(count + 1, capacity);
+                for (int i = newCount - 1; i > position; i--) {
+                    copy(slot(i - 1), slot(i));
+                }
+                count = newCount;
+            }
+
+            int s = slot(position);
+            values[s * FIELDS] = sample.soilMoisture();
+            values[s * FIELDS + 1] = sample.humidity();
+            values[s * FIELDS + 2] = sample.temperature();
+            values[s * FIELDS + 3] = sample.rainfall();
+            times[s] = time;
+            ids[s * 2] = sample.id().getMostSignificantBits();
+            ids[s * 2 + 1] = sample.id().getLeastSignificantBits();
+            sequences[s] = sample.sequence();
+        }
+
+        synchronized List<SensorReading> latest(Sensor sensor, int limit) {
+            int n = Math.min(limit, count);
+            List<SensorReading> result = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                int s = slot(i);
+                SensorSample sample = new SensorSample(new UUID(ids[s * 2], ids[s * 2 + 1]), sensor.getId(),
+                        LocalDateTime.ofInstant(Instant.ofEpochMilli(times[s]), ZONE),
+                        values[s * FIELDS], values[s * FIELDS + 1], values[s * FIELDS + 2], values[s * FIELDS + 3],
+                        sequences[s]);
+                result.add(sample.toReading(sensor));
+            }
+            return result;
+        }
+
+        private int slot(int i) {
+            return (newest - i + capacity) % capacity;
+        }
+
+        private void copy(int from, int to) {
+            System.arraycopy(values, from * FIELDS, values, to * FIELDS, FIELDS);
+            times[to] = times[from];
+            ids[to * 2] = ids[from * 2];
+            ids[to * 2 + 1] = ids[from * 2 + 1];
+            sequences[to] = sequences[from];
+        }
+    }
+}
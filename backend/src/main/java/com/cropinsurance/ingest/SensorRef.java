@@ -0,0 +1,24 @@
+package com.cropinsurance.ingest;
+
+import com.cropinsurance.entity.Sensor;
+
+import java.util.UUID;
+
+/**
+ * Sensor Ref - Cached identity of a sensor, enough to accept its readings.
+ * ingestKey is the decoded gateway key, or null when none has been issued;
+ * sensorClass selects the rate limit, null for the default class.
+ */
+public record SensorRef(UUID id, String uniqueCode, boolean active, byte[] ingestKey, String sensorClass) {
+
+    /**
+     * Detached sensor carrying only the identity, for attaching to readings
+     */
+    public Sensor toSensor() {
+        return Sensor.builder()
+                .id(id)
+                .uniqueCode(uniqueCode)
+                .isActive(active)
+                .build();
+    }
+}
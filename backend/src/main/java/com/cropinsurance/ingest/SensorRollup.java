@@ -0,0 +1,102 @@
+package com.cropinsurance.ingest;
+
+import com.cropinsurance.entity.enums.RollupBucket;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Sensor Rollup - Mergeable min/max/sum/count of the four sensor metrics over one time bucket.
+ * Values are held in centi-units; metric order is soil moisture, humidity, temperature, rainfall.
+ */
+public class SensorRollup {
+
+    public static final int SOIL_MOISTURE = 0;
+    public static final int HUMIDITY = 1;
+    public static final int TEMPERATURE = 2;
+    public static final int RAINFALL = 3;
+    public static final int METRICS = 4;
+
+    @Getter
+    private final UUID sensorId;
+    @Getter
+    private final RollupBucket bucket;
+    @Getter
+    private final LocalDateTime bucketStart;
+
+    @Getter
+    private int readingCount;
+    private final int[] counts = new int[METRICS];
+    private final int[] min = new int[METRICS];
+    private final int[] max = new int[METRICS];
+    private final long[] sum = new long[METRICS];
+
+    public SensorRollup(UUID sensorId, RollupBucket bucket, LocalDateTime bucketStart) {
+        this.sensorId = sensorId;
+        this.bucket = bucket;
+        this.bucketStart = bucketStart;
+    }
+
+    /**
+     * Add one reading; missing metrics are passed as SensorSample.MISSING
+     */
+    public void add(int soilMoisture, int humidity, int temperature, int rainfall) {
+        readingCount++;
+        addMetric(SOIL_MOISTURE, soilMoisture);
+        addMetric(HUMIDITY, humidity);
+        addMetric(TEMPERATURE, temperature);
+        addMetric(RAINFALL, rainfall);
+    }
+
+    /**
+     * Fold another partial aggregate of the same sensor into this one
+     */
+    public void merge(SensorRollup other) {
+        readingCount += other.readingCount;
+        for (int m = 0; m < METRICS; m++) {
+            if (other.counts[m] == 0) {
+                continue;
+            }
+            min[m] = counts[m] == 0 ? other.min[m] : Math.min(min[m], other.min[m]);
+            max[m] = counts[m] == 0 ? other.max[m] : Math.max(max[m], other.max[m]);
+            sum[m] += other.sum[m];
+            counts[m] += other.counts[m];
+        }
+    }
+
+    public boolean has(int metric) {
+        return counts[metric] > 0;
+    }
+
+    public int count(int metric) {
+        return counts[metric];
+    }
+
+    public int min(int metric) {
+        return min[metric];
+    }
+
+    public int max(int metric) {
+        return max[metric];
+    }
+
+    public long sum(int metric) {
+        return sum[metric];
+    }
+
+    private void addMetric(int metric, int value) {
+        if (value == SensorSample.MISSING) {
+            return;
+        }
+        if (counts[metric] == 0) {
+            min[metric] = value;
+            max[metric] = value;
+        } else {
+            min[metric] = Math.min(min[metric], value);
+            max[metric] = Math.max(max[metric], value);
+        }
+        sum[metric] += value;
+        counts[metric]++;
+    }
+}
@@ -0,0 +1,125 @@
+package com.cropinsurance.ingest;
+
+import com.cropinsurance.entity.enums.RollupBucket;
+import com.cropinsurance.repository.SensorRollupRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sensor Rollup Aggregator - Maintains hourly and daily rollups incrementally.
+ * Committed readings are folded into in-memory hourly partials; a scheduled flush merges
+ * each partial into its hour row and its day row with additive upserts. The upserts of one
+ * flush run in a single transaction, so a failed flush leaves no bucket half-added when its
+ * partials are put back for the next attempt.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SensorRollupAggregator {
+
+    private final SensorRollupRepository sensorRollupRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${sensor.rollups.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+
+    private final ConcurrentHashMap<Key, SensorRollup> pending = new ConcurrentHashMap<>();
+
+    private final LocalDateTime startedAt = LocalDateTime.now();
+
+    /**
+     * One-off backfill from raw readings when the rollup table is still empty
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (!backfillOnStartup || !sensorRollupRepository.isEmpty()) {
+            return;
+        }
+        // Readings accepted after startup are aggregated in memory, so stop there
+        int rows = sensorRollupRepository.backfill(startedAt);
+        log.info("📊 Backfilled {} sensor rollup buckets from raw readings", rows);
+    }
+
+    /**
+     * Fold a committed reading into its hourly partial
+     */
+    public void add(SensorSample sample) {
+        Key key = new Key(sample.sensorId(), RollupBucket.HOUR.start(sample.recordedAt()));
+
+        // compute() holds the bin lock, so a concurrent flush either sees this reading or a fresh partial does
+        pending.compute(key, (k, rollup) -> {
+            if (rollup == null) {
+                rollup = new SensorRollup(k.sensorId(), RollupBucket.HOUR, k.bucketStart());
+            }
+            rollup.add(sample.soilMoisture(), sample.humidity(), sample.temperature(), sample.rainfall());
+            return rollup;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${sensor.rollups.flush-interval-ms:60000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<SensorRollup> hours = new ArrayList<>(pending.size());
+        for (Key key : pending.keySet()) {
+            SensorRollup rollup = pending.remove(key);
+            if (rollup != null) {
+                hours.add(rollup);
+            }
+        }
+
+        // Day rows are merged in Java first so that each bucket appears once per batch
+        Map<Key, SensorRollup> days = new HashMap<>();
+        for (SensorRollup hour : hours) {
+            Key dayKey = new Key(hour.getSensorId(), RollupBucket.DAY.start(hour.getBucketStart()));
+            days.computeIfAbsent(dayKey, k -> new SensorRollup(k.sensorId(), RollupBucket.DAY, k.bucketStart()))
+                    .merge(hour);
+        }
+
+        List<SensorRollup> rows = new ArrayList<>(hours.size() + days.size());
+        rows.addAll(hours);
+        rows.addAll(days.values());
+
+        try {
+            // The batch may be sent as several statements: all or none of them must count
+            transactionTemplate.executeWithoutResult(status -> sensorRollupRepository.merge(rows));
+            log.debug("Flushed {} hourly and {} daily sensor rollups", hours.size(), days.size());
+        } catch (RuntimeException e) {
+            log.warn("Failed to flush sensor rollups, will retry: {}", e.getMessage());
+            hours.forEach(hour -> pending.merge(new Key(hour.getSensorId(), hour.getBucketStart()), hour,
+                    (current, restored) -> {
+                        current.merge(restored);
+                        return current;
+                    }));
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    public int pendingBuckets() {
+        return pending.size();
+    }
+
+    private record Key(UUID sensorId, LocalDateTime bucketStart) {
+    }
+}
@@ -0,0 +1,114 @@
+package com.cropinsurance.ingest;
+
+import com.cropinsurance.entity.Sensor;
+import com.cropinsurance.entity.SensorReading;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Sensor Sample - Fixed-point form of an accepted reading used along the ingest path.
+ *
+ * Values are centi-units (hundredths) in plain ints, MISSING when absent, so buffering,
+ * batching, in-memory views and the JDBC insert never touch BigDecimal. Conversion happens
+ * once at the edges: toCenti when a request is accepted, toReading when a sample is returned
+ * or streamed through the API.
+ *
+ * Readings a device numbers itself carry its sequence (NO_SEQUENCE otherwise) and get an id
+ * derived from sensor, device time and sequence, so a retried reading keeps its id.
+ */
+public record SensorSample(UUID id, UUID sensorId, LocalDateTime recordedAt,
+        int soilMoisture, int humidity, int temperature, int rainfall, long sequence) {
+
+    public static final int MISSING = Integer.MIN_VALUE;
+    public static final long NO_SEQUENCE = -1;
+
+    // DECIMAL(5,2) columns hold -999.99..999.99
+    private static final int MAX_CENTI = 99_999;
+
+    public SensorSample(UUID id, UUID sensorId, LocalDateTime recordedAt,
+            int soilMoisture, int humidity, int temperature, int rainfall) {
+        this(id, sensorId, recordedAt, soilMoisture, humidity, temperature, rainfall, NO_SEQUENCE);
+    }
+
+    /**
+     * Value of metric 0..3 (soil moisture, humidity, temperature, rainfall)
+     */
+    public int value(int metric) {
+        return switch (metric) {
+            case 0 -> soilMoisture;
+            case 1 -> humidity;
+            case 2 -> temperature;
+            default -> rainfall;
+        };
+    }
+
+    /**
+     * Convert to the API entity; the sensor is the detached identity to attach
+     */
+    public SensorReading toReading(Sensor sensor) {
+        return SensorReading.builder()
+                .id(id)
+                .sensor(sensor)
+                .soilMoisture(toDecimal(soilMoisture))
+                .humidity(toDecimal(humidity))
+                .temperature(toDecimal(temperature))
+                .rainfall(toDecimal(rainfall))
+                .recordedAt(recordedAt)
+                .sequence(sequence == NO_SEQUENCE ? null : sequence)
+                .build();
+    }
+
+    /**
+     * Sample of a reading loaded from the database or a compressed block
+     */
+    public static SensorSample of(SensorReading reading) {
+        return new SensorSample(reading.getId(), reading.getSensor().getId(), reading.getRecordedAt(),
+                toCenti(reading.getSoilMoisture()),
+                toCenti(reading.getHumidity()),
+                toCenti(reading.getTemperature()),
+                toCenti(reading.getRainfall()),
+                reading.getSequence() != null ? reading.getSequence() : NO_SEQUENCE);
+    }
+
+    /**
+     * Id of a new reading: random, or derived from sensor, device time and sequence when numbered
+     */
+    public static UUID idFor(UUID sensorId, LocalDateTime recordedAt, long sequence) {
+        if (sequence == NO_SEQUENCE) {
+            return UUID.randomUUID();
+        }
+        ByteBuffer key = ByteBuffer.allocate(32)
+                .putLong(sensorId.getMostSignificantBits())
+                .putLong(sensorId.getLeastSignificantBits())
+                .putLong(SensorBlockCodec.toMicros(recordedAt))
+                .putLong(sequence);
+        return UUID.nameUUIDFromBytes(key.array());
+    }
+
+    /**
+     * Decimal to centi-units (half up), MISSING for null
+     *
+     * @throws IllegalArgumentException when the value does not fit the reading columns
+     */
+    public static int toCenti(BigDecimal value) {
+        if (value == null) {
+            return MISSING;
+        }
+        BigDecimal centi = value.movePointRight(2).setScale(0, RoundingMode.HALF_UP);
+        if (centi.abs().compareTo(BigDecimal.valueOf(MAX_CENTI)) > 0) {
+            throw new IllegalArgumentException("Value " + value.toPlainString() + " is out of range");
+        }
+        return centi.intValue();
+    }
+
+    /**
+     * Centi-units to a decimal with scale 2, null for MISSING
+     */
+    public static BigDecimal toDecimal(int centi) {
+        return centi == MISSING ? null : BigDecimal.valueOf(centi, 2);
+    }
+}
@@ -0,0 +1,156 @@
+package com.cropinsurance.repository;
+
+import com.cropinsurance.dto.response.ClaimAssessmentJobResponse;
+import com.cropinsurance.entity.enums.ClaimAssessmentJobStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Claim Assessment Job Repository - Durable claim assessment queue in claim_assessment_jobs.
+ *
+ * Workers on any node claim due jobs in batches with FOR UPDATE SKIP LOCKED, so concurrent
+ * pollers never wait on or take each other's rows. A claimed job is RUNNING under a lease; each
+ * claim bumps attempts, which doubles as the fencing token: a worker whose lease expired and was
+ * taken over can no longer complete or fail the job. attempts therefore only ever grows; an admin
+ * retry moves retry_base up to it instead, and the attempt budget counts attempts - retry_base.
+ * All times come from the database clock.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ClaimAssessmentJobRepository {
+
+    private static final String ENQUEUE_SQL = "INSERT INTO claim_assessment_jobs (claim_id) VALUES (?) "
+            + "ON CONFLICT (claim_id) DO NOTHING";
+
+    private static final String CLAIM_SQL = "UPDATE claim_assessment_jobs SET status = 'RUNNING', "
+            + "attempts = attempts + 1, locked_by = ?, lease_until = now() + ? * interval '1 second', updated_at = now() "
+            + "WHERE id IN (SELECT id FROM claim_assessment_jobs "
+            + "WHERE (status = 'PENDING' AND run_at <= now()) OR (status = 'RUNNING' AND lease_until < now() AND attempts - retry_base < ?) "
+            + "ORDER BY run_at LIMIT ? FOR UPDATE SKIP LOCKED) "
+            + "RETURNING id, claim_id, attempts, retry_base";
+
+    // Expired leases that used their last attempt (the worker died or hung every time)
+    private static final String BURY_EXPIRED_SQL = "UPDATE claim_assessment_jobs SET status = 'DEAD', "
+            + "locked_by = NULL, lease_until = NULL, last_error = COALESCE(last_error, 'Lease expired'), updated_at = now() "
+            + "WHERE status = 'RUNNING' AND lease_until < now() AND attempts - retry_base >= ?";
+
+    private static final String COMPLETE_SQL = "UPDATE claim_assessment_jobs SET status = 'DONE', "
+            + "locked_by = NULL, lease_until = NULL, last_error = NULL, updated_at = now() "
+            + "WHERE id = ? AND status = 'RUNNING' AND attempts = ?";
+
+    private static final String FAIL_SQL = "UPDATE claim_assessment_jobs SET "
+            + "status = CASE WHEN attempts - retry_base >= ? THEN 'DEAD' ELSE 'PENDING' END, "
+            + "run_at = now() + ? * interval '1 second', locked_by = NULL, lease_until = NULL, "
+            + "last_error = ?, updated_at = now() "
+            + "WHERE id = ? AND status = 'RUNNING' AND attempts = ?";
+
+    private static final String RETRY_SQL = "UPDATE claim_assessment_jobs SET status = 'PENDING', retry_base = attempts, "
+            + "run_at = now(), last_error = NULL, updated_at = now() WHERE claim_id = ? AND status = 'DEAD'";
+
+    private static final String COUNT_BY_STATUS_SQL = "SELECT status, count(*) FROM claim_assessment_jobs GROUP BY status";
+
+    private static final String FIND_BY_STATUS_SQL = "SELECT claim_id, status, attempts, run_at, locked_by, lease_until, "
+            + "last_error, created_at, updated_at FROM claim_assessment_jobs WHERE status = ? "
+            + "ORDER BY updated_at DESC LIMIT ?";
+
+    private static final RowMapper<ClaimAssessmentJobResponse> JOB_ROW_MAPPER = (rs, rowNum) ->
+            ClaimAssessmentJobResponse.builder()
+                    .claimId(rs.getString("claim_id"))
+                    .status(ClaimAssessmentJobStatus.valueOf(rs.getString("status")))
+                    .attempts(rs.getInt("attempts"))
+                    .runAt(toLocalDateTime(rs.getTimestamp("run_at")))
+                    .lockedBy(rs.getString("locked_by"))
+                    .leaseUntil(toLocalDateTime(rs.getTimestamp("lease_until")))
+                    .lastError(rs.getString("last_error"))
+                    .createdAt(toLocalDateTime(rs.getTimestamp("created_at")))
+                    .updatedAt(toLocalDateTime(rs.getTimestamp("updated_at")))
+                    .build();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Add the assessment job of a claim (joins the caller's transaction); no-op if it exists
+     */
+    public void enqueue(UUID claimId) {
+        jdbcTemplate.update(ENQUEUE_SQL, claimId);
+    }
+
+    /**
+     * Lease up to limit due jobs (new, retry due, or with an expired lease and attempts left) to this worker
+     */
+    public List<Job> claim(String workerId, long leaseSeconds, int maxAttempts, int limit) {
+        return jdbcTemplate.query(CLAIM_SQL, (rs, rowNum) -> new Job(
+                rs.getObject("id", UUID.class), rs.getObject("claim_id", UUID.class), rs.getInt("attempts"),
+                rs.getInt("retry_base")),
+                workerId, leaseSeconds, maxAttempts, limit);
+    }
+
+    /**
+     * Move jobs whose last allowed attempt ran out its lease to DEAD
+     */
+    public int buryExpired(int maxAttempts) {
+        return jdbcTemplate.update(BURY_EXPIRED_SQL, maxAttempts);
+    }
+
+    /**
+     * Mark a job DONE; false when this worker no longer holds it (lease lost)
+     */
+    public boolean complete(Job job) {
+        return jdbcTemplate.update(COMPLETE_SQL, job.id(), job.attempts()) == 1;
+    }
+
+    /**
+     * Release a failed job for a retry after the backoff, or to DEAD on its last attempt
+     */
+    public boolean fail(Job job, int maxAttempts, long backoffSeconds, String error) {
+        return jdbcTemplate.update(FAIL_SQL, maxAttempts, backoffSeconds, error, job.id(), job.attempts()) == 1;
+    }
+
+    /**
+     * Give a DEAD job a fresh set of attempts; false when the claim has no DEAD job
+     */
+    public boolean retry(UUID claimId) {
+        return jdbcTemplate.update(RETRY_SQL, claimId) == 1;
+    }
+
+    public Map<ClaimAssessmentJobStatus, Long> countByStatus() {
+        Map<ClaimAssessmentJobStatus, Long> counts = new EnumMap<>(ClaimAssessmentJobStatus.class);
+        for (ClaimAssessmentJobStatus status : ClaimAssessmentJobStatus.values()) {
+            counts.put(status, 0L);
+        }
+        jdbcTemplate.query(COUNT_BY_STATUS_SQL, rs -> {
+            counts.put(ClaimAssessmentJobStatus.valueOf(rs.getString(1)), rs.getLong(2));
+        });
+        return counts;
+    }
+
+    public List<ClaimAssessmentJobResponse> findByStatus(ClaimAssessmentJobStatus status, int limit) {
+        return jdbcTemplate.query(FIND_BY_STATUS_SQL, JOB_ROW_MAPPER, status.name(), limit);
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    /**
+     * A leased job; attempts identifies the lease
+     */
+    public record Job(UUID id, UUID claimId, int attempts, int retryBase) {
+
+        /**
+         * Attempts used since the job was enqueued or last retried by an admin
+         */
+        public int attemptsUsed() {
+            return attempts - retryBase;
+        }
+    }
+}
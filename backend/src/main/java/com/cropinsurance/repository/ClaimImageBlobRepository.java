@@ -0,0 +1,60 @@
+package com.cropinsurance.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Claim Image Blob Repository - One row per distinct claim image in claim_image_blobs.
+ *
+ * ref_count is the number of claim_images rows pointing at the blob; a reference is taken in the
+ * filing transaction, so it commits or rolls back with the claim. The first reference creates the
+ * row, which is how concurrent filings of the same photo on any node agree on which one was first.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ClaimImageBlobRepository {
+
+    // xmax = 0 only for the row version this statement inserted
+    private static final String REFERENCE_SQL = "INSERT INTO claim_image_blobs (sha256, size_bytes, ref_count) "
+            + "VALUES (?, ?, 1) ON CONFLICT (sha256) DO UPDATE SET ref_count = claim_image_blobs.ref_count + 1, "
+            + "last_referenced_at = now() RETURNING (xmax = 0) AS inserted";
+
+    private static final String FIND_ALL_HASHES_SQL = "SELECT sha256 FROM claim_image_blobs";
+
+    private static final String FIND_EXISTING_SQL = "SELECT sha256 FROM claim_image_blobs WHERE sha256 = ANY (?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Count one more reference to a blob (joins the caller's transaction); true when this created it
+     */
+    public boolean reference(String sha256, long sizeBytes) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(REFERENCE_SQL, Boolean.class, sha256, sizeBytes));
+    }
+
+    /**
+     * Stream every stored hash to the consumer without loading the table into memory
+     */
+    public void forEachHash(Consumer<String> consumer) {
+        jdbcTemplate.query(FIND_ALL_HASHES_SQL, rs -> {
+            consumer.accept(rs.getString(1));
+        });
+    }
+
+    /**
+     * The given hashes that have a blob row
+     */
+    public Set<String> findExisting(Collection<String> hashes) {
+        Set<String> existing = new HashSet<>();
+        jdbcTemplate.query(FIND_EXISTING_SQL, rs -> {
+            existing.add(rs.getString(1));
+        }, (Object) hashes.toArray(String[]::new));
+        return existing;
+    }
+}
@@ -2,10 +2,15 @@ package com.cropinsurance.repository;
 
 import com.cropinsurance.entity.Claim;
 import com.cropinsurance.entity.enums.ClaimStatus;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
@@ -18,4 +23,8 @@ public interface ClaimRepository extends JpaRepository<Claim, UUID> {
     List<Claim> findByStatus(ClaimStatus status);
 
     List<Claim> findByFarmerIdOrderByFiledAtDesc(UUID farmerId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Claim c WHERE c.id = :id")
+    Optional<Claim> findByIdForUpdate(@Param("id") UUID id);
 }
@@ -15,5 +15,7 @@ public interface LandRepository extends JpaRepository<Land, UUID> {
 
     Optional<Land> findByKhasraNumber(String khasraNumber);
 
+    Optional<Land> findBySensorId(UUID sensorId);
+
     boolean existsByKhasraNumber(String khasraNumber);
 }
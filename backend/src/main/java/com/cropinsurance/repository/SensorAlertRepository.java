@@ -0,0 +1,15 @@
+package com.cropinsurance.repository;
+
+import com.cropinsurance.entity.SensorAlert;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface SensorAlertRepository extends JpaRepository<SensorAlert, UUID> {
+
+    List<SensorAlert> findBySensorIdOrderByDetectedAtDesc(UUID sensorId, Pageable pageable);
+}
@@ -0,0 +1,207 @@
+package com.cropinsurance.repository;
+
+import com.cropinsurance.entity.Sensor;
+import com.cropinsurance.entity.SensorReading;
+import com.cropinsurance.ingest.SensorSample;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Sensor Reading Batch Repository - JDBC batch writes for high volume ingestion.
+ * Bypasses the JPA persistence context so that a batch of readings becomes a
+ * single batched statement (rewritten to multi-row inserts by the driver).
+ */
+@Repository
+@RequiredArgsConstructor
+public class SensorReadingBatchRepository {
+
+    private static final String INSERT_READING_SQL = "INSERT INTO sensor_readings "
+            + "(id, sensor_id, soil_moisture, humidity, temperature, rainfall, recorded_at) "
+            + "VALUES (?, ?, ? / 100.0, ? / 100.0, ? / 100.0, ? / 100.0, ?)";
+
+    // Numbered readings: rows already stored (same sensor, device time and sequence) are skipped
+    private static final String INSERT_NUMBERED_SQL = "INSERT INTO sensor_readings "
+            + "(id, sensor_id, soil_moisture, humidity, temperature, rainfall, recorded_at, seq) "
+            + "SELECT id, sensor_id, soil_moisture / 100.0, humidity / 100.0, temperature / 100.0, rainfall / 100.0, "
+            + "recorded_at, seq FROM unnest(?::uuid[], ?::uuid[], ?::int[], ?::int[], ?::int[], ?::int[], "
+            + "?::timestamp[], ?::bigint[]) AS r(id, sensor_id, soil_moisture, humidity, temperature, rainfall, "
+            + "recorded_at, seq) ON CONFLICT DO NOTHING RETURNING id";
+
+    // Keeps each bulk update well below the 32767 bind parameter limit
+    private static final int LAST_READING_CHUNK_SIZE = 1000;
+
+    private static final String LATEST_PER_SENSOR_SQL = "SELECT r.id, s.id AS sensor_id, r.soil_moisture, r.humidity, "
+            + "r.temperature, r.rainfall, r.recorded_at, r.seq FROM sensors s CROSS JOIN LATERAL ("
+            + "SELECT * FROM sensor_readings sr WHERE sr.sensor_id = s.id ORDER BY sr.recorded_at DESC LIMIT ?) r";
+
+    private static final String LATEST_BY_SENSOR_SQL = "SELECT id, sensor_id, soil_moisture, humidity, temperature, "
+            + "rainfall, recorded_at, seq FROM sensor_readings WHERE sensor_id = ? ORDER BY recorded_at DESC LIMIT ?";
+
+    private static final String PAGE_BY_SENSOR_SQL = "SELECT id, sensor_id, soil_moisture, humidity, temperature, "
+            + "rainfall, recorded_at, seq FROM sensor_readings WHERE sensor_id = ? AND recorded_at >= ? AND recorded_at < ? "
+            + "AND (recorded_at, id) > (?, ?) ORDER BY recorded_at, id LIMIT ?";
+
+    private static final String DELETE_WINDOW_SQL = "DELETE FROM sensor_readings "
+            + "WHERE sensor_id = ? AND recorded_at >= ? AND recorded_at < ? "
+            + "RETURNING id, sensor_id, soil_moisture, humidity, temperature, rainfall, recorded_at, seq";
+
+    private static final String COMPACTION_WINDOWS_SQL = "SELECT DISTINCT sensor_id, date_trunc('day', recorded_at) AS day "
+            + "FROM sensor_readings WHERE recorded_at < ? LIMIT ?";
+
+    private static final RowMapper<SensorReading> READING_ROW_MAPPER = (rs, rowNum) -> SensorReading.builder()
+            .id(rs.getObject("id", UUID.class))
+            .sensor(Sensor.builder().id(rs.getObject("sensor_id", UUID.class)).build())
+            .soilMoisture(rs.getBigDecimal("soil_moisture"))
+            .humidity(rs.getBigDecimal("humidity"))
+            .temperature(rs.getBigDecimal("temperature"))
+            .rainfall(rs.getBigDecimal("rainfall"))
+            .recordedAt(rs.getTimestamp("recorded_at").toLocalDateTime())
+            .sequence(rs.getObject("seq", Long.class))
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Insert all samples in one JDBC batch. Values are bound as centi-unit integers and scaled
+     * by the database, so no BigDecimal is created per reading.
+     */
+    public void insertAll(List<SensorSample> samples) {
+        if (samples.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_READING_SQL, samples, samples.size(), (ps, sample) -> {
+            ps.setObject(1, sample.id());
+            ps.setObject(2, sample.sensorId());
+            for (int metric = 0; metric < 4; metric++) {
+                int value = sample.value(metric);
+                if (value == SensorSample.MISSING) {
+                    ps.setNull(3 + metric, Types.INTEGER);
+                } else {
+                    ps.setInt(3 + metric, value);
+                }
+            }
+            ps.setTimestamp(7, Timestamp.valueOf(sample.recordedAt()));
+        });
+    }
+
+    /**
+     * Insert numbered samples (device sequence set) in one statement of parallel arrays, skipping
+     * any already stored; returns the ids of the rows actually inserted
+     */
+    public Set<UUID> insertNumbered(List<SensorSample> samples) {
+        if (samples.isEmpty()) {
+            return Set.of();
+        }
+        int size = samples.size();
+        UUID[] ids = new UUID[size];
+        UUID[] sensorIds = new UUID[size];
+        Integer[][] values = new Integer[4][size];
+        Timestamp[] recordedAt = new Timestamp[size];
+        Long[] sequences = new Long[size];
+        for (int i = 0; i < size; i++) {
+            SensorSample sample = samples.get(i);
+            ids[i] = sample.id();
+            sensorIds[i] = sample.sensorId();
+            for (int metric = 0; metric < 4; metric++) {
+                int value = sample.value(metric);
+                values[metric][i] = value == SensorSample.MISSING ? null : value;
+            }
+            recordedAt[i] = Timestamp.valueOf(sample.recordedAt());
+            sequences[i] = sample.sequence();
+        }
+
+        Set<UUID> inserted = new HashSet<>(size * 2);
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(INSERT_NUMBERED_SQL);
+            ps.setArray(1, connection.createArrayOf("uuid", ids));
+            ps.setArray(2, connection.createArrayOf("uuid", sensorIds));
+            for (int metric = 0; metric < 4; metric++) {
+                ps.setArray(3 + metric, connection.createArrayOf("int4", values[metric]));
+            }
+            ps.setArray(7, connection.createArrayOf("timestamp", recordedAt));
+            ps.setArray(8, connection.createArrayOf("int8", sequences));
+            return ps;
+        }, (RowCallbackHandler) rs -> inserted.add(rs.getObject("id", UUID.class)));
+        return inserted;
+    }
+
+    /**
+     * Stream the latest readings of every sensor (one index range scan per sensor)
+     */
+    public void findLatestPerSensor(int limit, Consumer<SensorReading> consumer) {
+        jdbcTemplate.query(LATEST_PER_SENSOR_SQL,
+                (RowCallbackHandler) rs -> consumer.accept(READING_ROW_MAPPER.mapRow(rs, 0)), limit);
+    }
+
+    /**
+     * Latest readings of one sensor, newest first
+     */
+    public List<SensorReading> findLatestBySensor(UUID sensorId, int limit) {
+        return jdbcTemplate.query(LATEST_BY_SENSOR_SQL, READING_ROW_MAPPER, sensorId, limit);
+    }
+
+    /**
+     * Keyset page of one sensor's readings with recorded_at in [from, to), strictly after
+     * (afterTime, afterId) in (recorded_at, id) order
+     */
+    public List<SensorReading> findPage(UUID sensorId, LocalDateTime from, LocalDateTime to,
+            LocalDateTime afterTime, UUID afterId, int limit) {
+        return jdbcTemplate.query(PAGE_BY_SENSOR_SQL, READING_ROW_MAPPER, sensorId, Timestamp.valueOf(from),
+                Timestamp.valueOf(to), Timestamp.valueOf(afterTime), afterId, limit);
+    }
+
+    /**
+     * Delete the readings of one sensor in [from, to) and return exactly the rows removed
+     */
+    public List<SensorReading> deleteWindow(UUID sensorId, LocalDateTime from, LocalDateTime to) {
+        return jdbcTemplate.query(DELETE_WINDOW_SQL, READING_ROW_MAPPER,
+                sensorId, Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    /**
+     * Up to limit (sensor, day) windows that still hold raw readings recorded before the given time
+     */
+    public List<Map.Entry<UUID, LocalDateTime>> findCompactionWindows(LocalDateTime before, int limit) {
+        return jdbcTemplate.query(COMPACTION_WINDOWS_SQL, (rs, rowNum) -> Map.entry(
+                rs.getObject("sensor_id", UUID.class),
+                rs.getTimestamp("day").toLocalDateTime()), Timestamp.valueOf(before), limit);
+    }
+
+    /**
+     * Update last reading time of many sensors with bulk UPDATE ... FROM (VALUES ...) statements.
+     * A sensor is never moved backwards in time.
+     */
+    public void updateLastReadingAt(List<Map.Entry<UUID, LocalDateTime>> lastReadingBySensor) {
+        for (int from = 0; from < lastReadingBySensor.size(); from += LAST_READING_CHUNK_SIZE) {
+            List<Map.Entry<UUID, LocalDateTime>> chunk = lastReadingBySensor.subList(from,
+                    Math.min(from + LAST_READING_CHUNK_SIZE, lastReadingBySensor.size()));
+
+            String values = String.join(", ", Collections.nCopies(chunk.size(), "(?::uuid, ?::timestamp)"));
+            String sql = "UPDATE sensors AS s SET last_reading_at = v.ts "
+                    + "FROM (VALUES " + values + ") AS v(id, ts) "
+                    + "WHERE s.id = v.id AND (s.last_reading_at IS NULL OR s.last_reading_at < v.ts)";
+
+            Object[] args = new Object[chunk.size() * 2];
+            for (int i = 0; i < chunk.size(); i++) {
+                args[i * 2] = chunk.get(i).getKey();
+                args[i * 2 + 1] = Timestamp.valueOf(chunk.get(i).getValue());
+            }
+            jdbcTemplate.update(sql, args);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.cropinsurance.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Sensor Reading Block Repository - JDBC access to compressed reading blocks.
+ * A block holds one sensor's readings of one day, encoded with SensorBlockCodec.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SensorReadingBlockRepository {
+
+    private static final String COLUMNS = "block_start, block_end, reading_count, data";
+
+    private static final String UPSERT_SQL = "INSERT INTO sensor_reading_blocks "
+            + "(sensor_id, block_start, block_end, reading_count, data) VALUES (?, ?, ?, ?, ?) "
+            + "ON CONFLICT (sensor_id, block_start) DO UPDATE SET block_end = EXCLUDED.block_end, "
+            + "reading_count = EXCLUDED.reading_count, data = EXCLUDED.data";
+
+    private static final String EXPIRE_SQL = "DELETE FROM sensor_reading_blocks WHERE (sensor_id, block_start) IN "
+            + "(SELECT sensor_id, block_start FROM sensor_reading_blocks WHERE block_start < ? LIMIT ?)";
+
+    // A block recompacted after it was archived (a very late reading) keeps the archived copy
+    private static final String ARCHIVE_SQL = "WITH expired AS (" + EXPIRE_SQL + " RETURNING sensor_id, " + COLUMNS + "), "
+            + "archived AS (INSERT INTO sensor_reading_blocks_archive (sensor_id, " + COLUMNS + ") "
+            + "SELECT sensor_id, " + COLUMNS + " FROM expired ON CONFLICT (sensor_id, block_start) DO NOTHING) "
+            + "SELECT count(*) FROM expired";
+
+    // Planner estimates, so monitoring never scans the table
+    private static final String STATS_SQL = "SELECT greatest(c.reltuples, 0)::bigint AS estimated_blocks, "
+            + "pg_total_relation_size(c.oid) AS bytes FROM pg_class c WHERE c.oid = to_regclass('sensor_reading_blocks')";
+
+    private static final RowMapper<Block> BLOCK_ROW_MAPPER = (rs, rowNum) -> new Block(
+            rs.getTimestamp("block_start").toLocalDateTime(),
+            rs.getTimestamp("block_end").toLocalDateTime(),
+            rs.getInt("reading_count"),
+            rs.getBytes("data"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Compressed readings of one sensor-day; blockEnd is the last reading's time
+     */
+    public record Block(LocalDateTime blockStart, LocalDateTime blockEnd, int readingCount, byte[] data) {
+    }
+
+    public Optional<Block> find(UUID sensorId, LocalDateTime blockStart) {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM sensor_reading_blocks "
+                        + "WHERE sensor_id = ? AND block_start = ?",
+                BLOCK_ROW_MAPPER, sensorId, Timestamp.valueOf(blockStart)).stream().findFirst();
+    }
+
+    public void upsert(UUID sensorId, Block block) {
+        jdbcTemplate.update(UPSERT_SQL, sensorId, Timestamp.valueOf(block.blockStart()),
+                Timestamp.valueOf(block.blockEnd()), block.readingCount(), block.data());
+    }
+
+    /**
+     * Newest blocks of a sensor starting before the given time, newest first
+     */
+    public List<Block> findBefore(UUID sensorId, LocalDateTime before, int limit) {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM sensor_reading_blocks "
+                        + "WHERE sensor_id = ? AND block_start < ? ORDER BY block_start DESC LIMIT ?",
+                BLOCK_ROW_MAPPER, sensorId, Timestamp.valueOf(before), limit);
+    }
+
+    /**
+     * Blocks of a sensor that may hold readings in [from, to) and start after the given time, oldest first
+     */
+    public List<Block> findOverlapping(UUID sensorId, LocalDateTime from, LocalDateTime to,
+            LocalDateTime startAfter, int limit) {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM sensor_reading_blocks "
+                        + "WHERE sensor_id = ? AND block_start < ? AND block_end >= ? AND block_start > ? "
+                        + "ORDER BY block_start LIMIT ?",
+                BLOCK_ROW_MAPPER, sensorId, Timestamp.valueOf(to), Timestamp.valueOf(from),
+                Timestamp.valueOf(startAfter), limit);
+    }
+
+    /**
+     * Remove up to limit blocks starting before the cutoff, copying them to sensor_reading_blocks_archive
+     * first when archive is set; returns the number removed
+     */
+    public int expireBefore(LocalDateTime cutoff, boolean archive, int limit) {
+        if (!archive) {
+            return jdbcTemplate.update(EXPIRE_SQL, Timestamp.valueOf(cutoff), limit);
+        }
+        Integer expired = jdbcTemplate.queryForObject(ARCHIVE_SQL, Integer.class, Timestamp.valueOf(cutoff), limit);
+        return expired != null ? expired : 0;
+    }
+
+    /**
+     * Estimated block count and on-disk size (including TOAST and indexes) for monitoring
+     */
+    public Map<String, Object> getStats() {
+        return jdbcTemplate.queryForMap(STATS_SQL);
+    }
+}
@@ -3,8 +3,11 @@ package com.cropinsurance.repository;
 import com.cropinsurance.entity.Sensor;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -18,4 +21,21 @@ public interface SensorRepository extends JpaRepository<Sensor, UUID> {
     List<Sensor> findAvailableSensors();
 
     boolean existsByUniqueCode(String uniqueCode);
+
+    // Lightweight [id, uniqueCode, isActive, ingestKey, sensorClass, updatedAt] rows for the sensor code cache
+    @Query("SELECT s.id, s.uniqueCode, s.isActive, s.ingestKey, s.sensorClass, s.updatedAt FROM Sensor s")
+    List<Object[]> findAllRefs();
+
+    @Query("SELECT s.id, s.uniqueCode, s.isActive, s.ingestKey, s.sensorClass, s.updatedAt FROM Sensor s WHERE s.uniqueCode = :uniqueCode")
+    List<Object[]> findRefByUniqueCode(@Param("uniqueCode") String uniqueCode);
+
+    @Query("SELECT s.id, s.uniqueCode, s.isActive, s.ingestKey, s.sensorClass, s.updatedAt FROM Sensor s WHERE s.uniqueCode IN :uniqueCodes")
+    List<Object[]> findRefsByUniqueCodeIn(@Param("uniqueCodes") Collection<String> uniqueCodes);
+
+    @Query("SELECT s.id, s.uniqueCode, s.isActive, s.ingestKey, s.sensorClass, s.updatedAt FROM Sensor s WHERE s.updatedAt >= :since")
+    List<Object[]> findRefsUpdatedSince(@Param("since") LocalDateTime since);
+
+    // [id, lastReadingAt] of active sensors that have reported, for the health monitor
+    @Query("SELECT s.id, s.lastReadingAt FROM Sensor s WHERE s.isActive = true AND s.lastReadingAt IS NOT NULL")
+    List<Object[]> findActiveLastReadings();
 }
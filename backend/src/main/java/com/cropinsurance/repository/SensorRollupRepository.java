@@ -0,0 +1,142 @@
+package com.cropinsurance.repository;
+
+import com.cropinsurance.dto.response.SensorAggregateResponse;
+import com.cropinsurance.dto.response.SensorAggregateResponse.MetricSummary;
+import com.cropinsurance.entity.enums.RollupBucket;
+import com.cropinsurance.ingest.SensorRollup;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Sensor Rollup Repository - JDBC access to sensor_reading_rollups.
+ * Partial aggregates are merged in with additive upserts, so late or repeated flushes only
+ * ever touch the buckets they contribute to.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SensorRollupRepository {
+
+    private static final String[] METRIC_COLUMNS = {"soil_moisture", "humidity", "temperature", "rainfall"};
+
+    private static final String MERGE_SET = "reading_count = r.reading_count + EXCLUDED.reading_count, "
+            + "rainfall_count = r.rainfall_count + EXCLUDED.rainfall_count, "
+            + Arrays.stream(METRIC_COLUMNS).map(m -> String.format(
+                    "%1$s_min = LEAST(r.%1$s_min, EXCLUDED.%1$s_min), "
+                            + "%1$s_max = GREATEST(r.%1$s_max, EXCLUDED.%1$s_max), "
+                            + "%1$s_sum = COALESCE(r.%1$s_sum, 0) + COALESCE(EXCLUDED.%1$s_sum, 0)", m))
+                    .collect(Collectors.joining(", "));
+
+    private static final String UPSERT_SQL = "INSERT INTO sensor_reading_rollups AS r (sensor_id, bucket, bucket_start, "
+            + "reading_count, rainfall_count, "
+            + Arrays.stream(METRIC_COLUMNS).map(m -> m + "_min, " + m + "_max, " + m + "_sum")
+                    .collect(Collectors.joining(", "))
+            + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON CONFLICT (sensor_id, bucket, bucket_start) DO UPDATE SET " + MERGE_SET;
+
+    private static final String BACKFILL_SQL = "INSERT INTO sensor_reading_rollups AS r (sensor_id, bucket, bucket_start, "
+            + "reading_count, rainfall_count, "
+            + Arrays.stream(METRIC_COLUMNS).map(m -> m + "_min, " + m + "_max, " + m + "_sum")
+                    .collect(Collectors.joining(", "))
+            + ") SELECT sensor_id, ?, date_trunc(?, recorded_at), count(*), count(rainfall), "
+            + Arrays.stream(METRIC_COLUMNS).map(m -> "min(" + m + "), max(" + m + "), sum(" + m + ")")
+                    .collect(Collectors.joining(", "))
+            + " FROM sensor_readings WHERE recorded_at < ? GROUP BY 1, 3 "
+            + "ON CONFLICT (sensor_id, bucket, bucket_start) DO UPDATE SET " + MERGE_SET;
+
+    private static final String FIND_SQL = "SELECT * FROM sensor_reading_rollups "
+            + "WHERE sensor_id = ? AND bucket = ? AND bucket_start >= ? AND bucket_start < ? ORDER BY bucket_start";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Merge partial aggregates into their buckets; each (sensor, bucket, start) must appear once.
+     * The upserts are additive, so callers that retry must run this in a transaction.
+     */
+    public void merge(List<SensorRollup> rollups) {
+        if (rollups.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rollups, rollups.size(), this::bindRollup);
+    }
+
+    /**
+     * Aggregate raw readings recorded before the given time (one-off backfill)
+     */
+    public int backfill(LocalDateTime before) {
+        int rows = 0;
+        for (RollupBucket bucket : RollupBucket.values()) {
+            String unit = bucket.name().toLowerCase();
+            rows += jdbcTemplate.update(BACKFILL_SQL, bucket.name(), unit, Timestamp.valueOf(before));
+        }
+        return rows;
+    }
+
+    public boolean isEmpty() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT NOT EXISTS (SELECT 1 FROM sensor_reading_rollups)", Boolean.class));
+    }
+
+    /**
+     * Buckets of a sensor with bucket_start in [from, to), oldest first
+     */
+    public List<SensorAggregateResponse> find(UUID sensorId, RollupBucket bucket, LocalDateTime from, LocalDateTime to) {
+        return jdbcTemplate.query(FIND_SQL, (rs, rowNum) -> {
+            int readingCount = rs.getInt("reading_count");
+            return SensorAggregateResponse.builder()
+                    .bucket(bucket)
+                    .bucketStart(rs.getTimestamp("bucket_start").toLocalDateTime())
+                    .readingCount(readingCount)
+                    .soilMoisture(summary(rs, "soil_moisture", readingCount))
+                    .humidity(summary(rs, "humidity", readingCount))
+                    .temperature(summary(rs, "temperature", readingCount))
+                    .rainfall(summary(rs, "rainfall", rs.getInt("rainfall_count")))
+                    .build();
+        }, sensorId, bucket.name(), Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    private void bindRollup(PreparedStatement ps, SensorRollup rollup) throws SQLException {
+        ps.setObject(1, rollup.getSensorId());
+        ps.setString(2, rollup.getBucket().name());
+        ps.setTimestamp(3, Timestamp.valueOf(rollup.getBucketStart()));
+        ps.setInt(4, rollup.getReadingCount());
+        ps.setInt(5, rollup.count(SensorRollup.RAINFALL));
+        for (int m = 0; m < SensorRollup.METRICS; m++) {
+            int index = 6 + m * 3;
+            if (rollup.has(m)) {
+                ps.setBigDecimal(index, BigDecimal.valueOf(rollup.min(m), 2));
+                ps.setBigDecimal(index + 1, BigDecimal.valueOf(rollup.max(m), 2));
+                ps.setBigDecimal(index + 2, BigDecimal.valueOf(rollup.sum(m), 2));
+            } else {
+                ps.setNull(index, Types.NUMERIC);
+                ps.setNull(index + 1, Types.NUMERIC);
+                ps.setNull(index + 2, Types.NUMERIC);
+            }
+        }
+    }
+
+    private MetricSummary summary(ResultSet rs, String metric, int count) throws SQLException {
+        BigDecimal sum = rs.getBigDecimal(metric + "_sum");
+        return MetricSummary.builder()
+                .min(rs.getBigDecimal(metric + "_min"))
+                .max(rs.getBigDecimal(metric + "_max"))
+                .sum(sum)
+                .mean(sum != null && count > 0
+                        ? sum.divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_UP)
+                        : null)
+                .build();
+    }
+}
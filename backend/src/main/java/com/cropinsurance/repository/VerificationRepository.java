@@ -1,5 +1,6 @@
 package com.cropinsurance.repository;
 
+import com.cropinsurance.entity.Patwari;
 import com.cropinsurance.entity.Verification;
 import com.cropinsurance.entity.enums.VerificationStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -25,4 +26,7 @@ public interface VerificationRepository extends JpaRepository<Verification, UUID
 
     @Query("SELECT v FROM Verification v WHERE v.status = 'PENDING' AND v.insurance.land.farmer.district = :district")
     List<Verification> findPendingByDistrict(@Param("district") String district);
+
+    @Query("SELECT DISTINCT v.patwari FROM Verification v WHERE v.assignedSensorId = :sensorId AND v.patwari IS NOT NULL")
+    List<Patwari> findPatwarisByAssignedSensorId(@Param("sensorId") UUID sensorId);
 }
@@ -1,9 +1,11 @@
 package com.cropinsurance.service;
 
+import com.cropinsurance.dto.response.ClaimAssessmentJobResponse;
 import com.cropinsurance.dto.response.ClaimResponse;
 import com.cropinsurance.entity.enums.ClaimStatus;
 import com.cropinsurance.entity.enums.InsuranceStatus;
 import com.cropinsurance.repository.*;
+import com.cropinsurance.upload.ClaimImageStore;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
@@ -11,6 +13,7 @@ import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
@@ -22,6 +25,8 @@ public class AdminService {
     private final ClaimRepository claimRepository;
     private final SensorRepository sensorRepository;
     private final ClaimService claimService;
+    private final ClaimAssessmentService claimAssessmentService;
+    private final ClaimImageStore claimImageStore;
 
     public Map<String, Object> getGlobalStats() {
         Map<String, Object> stats = new HashMap<>();
@@ -61,4 +66,20 @@ public class AdminService {
                 .map(c -> claimService.getClaimById(c.getFarmer().getId(), c.getId()))
                 .collect(Collectors.toList());
     }
+
+    public Map<String, Object> getClaimAssessmentStats() {
+        return claimAssessmentService.getStats();
+    }
+
+    public Map<String, Object> getClaimImageStats() {
+        return claimImageStore.getStats();
+    }
+
+    public List<ClaimAssessmentJobResponse> getDeadAssessmentJobs(int limit) {
+        return claimAssessmentService.getDeadJobs(limit);
+    }
+
+    public void retryAssessment(UUID claimId) {
+        claimAssessmentService.retry(claimId);
+    }
 }
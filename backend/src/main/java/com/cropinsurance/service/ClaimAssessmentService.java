@@ -0,0 +1,339 @@
+package com.cropinsurance.service;
+
+import com.cropinsurance.dto.response.ClaimAssessmentJobResponse;
+import com.cropinsurance.entity.AiAssessment;
+import com.cropinsurance.entity.Claim;
+import com.cropinsurance.entity.ClaimImage;
+import com.cropinsurance.entity.enums.ClaimAssessmentJobStatus;
+import com.cropinsurance.entity.enums.ClaimStatus;
+import com.cropinsurance.exception.ResourceNotFoundException;
+import com.cropinsurance.repository.AiAssessmentRepository;
+import com.cropinsurance.repository.ClaimAssessmentJobRepository;
+import com.cropinsurance.repository.ClaimAssessmentJobRepository.Job;
+import com.cropinsurance.repository.ClaimImageRepository;
+import com.cropinsurance.repository.ClaimRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Claim Assessment Service - AI assessment of filed claims, off the HTTP request.
+ *
+ * Filing stores the claim as PROCESSING together with a row in claim_assessment_jobs, so the
+ * work survives restarts. Every node polls that table and leases due jobs in batches with
+ * SKIP LOCKED (see ClaimAssessmentJobRepository), never more than its bounded worker pool can
+ * take. A worker calls the AI service without holding a database connection, then saves the
+ * assessment, decides the claim (damage threshold, payout) and marks the job DONE in one short
+ * transaction; if its lease was lost meanwhile the transaction rolls back, so a claim is
+ * assessed exactly once. Failures are retried with exponential backoff until max-attempts,
+ * after which the job is DEAD and waits for an admin retry. The farmer is notified after commit.
+ * Polling runs on a thread of its own, so long scheduled jobs elsewhere never delay leasing.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ClaimAssessmentService {
+
+    private final ClaimRepository claimRepository;
+    private final ClaimImageRepository claimImageRepository;
+    private final AiAssessmentRepository aiAssessmentRepository;
+    private final ClaimAssessmentJobRepository claimAssessmentJobRepository;
+    private final NotificationService notificationService;
+    private final AiService aiService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${ai.damage.threshold:75.0}")
+    private double damageThreshold;
+
+    @Value("${claims.assessment.enabled:true}")
+    private boolean enabled;
+
+    @Value("${claims.assessment.workers:4}")
+    private int workers;
+
+    @Value("${claims.assessment.queue-capacity:8}")
+    private int queueCapacity;
+
+    @Value("${claims.assessment.batch-size:10}")
+    private int batchSize;
+
+    @Value("${claims.assessment.poll-interval-ms:1000}")
+    private long pollIntervalMillis;
+
+    @Value("${claims.assessment.lease-seconds:300}")
+    private long leaseSeconds;
+
+    @Value("${claims.assessment.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${claims.assessment.backoff-base-seconds:30}")
+    private long backoffBaseSeconds;
+
+    @Value("${claims.assessment.backoff-max-seconds:3600}")
+    private long backoffMaxSeconds;
+
+    private final String workerId = ManagementFactory.getRuntimeMXBean().getName();
+
+    private ThreadPoolExecutor workerPool;
+    private ScheduledExecutorService poller;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final LongAdder claimedCount = new LongAdder();
+    private final LongAdder approvedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder retriedCount = new LongAdder();
+    private final LongAdder deadCount = new LongAdder();
+    private final LongAdder lostLeaseCount = new LongAdder();
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        workerPool = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "claim-assessor-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "claim-assessment-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(this::pollSafely, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        poller.shutdownNow();
+        // Leased jobs not finished here are taken over by any node once their lease expires
+        workerPool.shutdownNow();
+        workerPool.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Add the assessment job of a claim; call inside the transaction that files the claim
+     */
+    public void enqueue(UUID claimId) {
+        claimAssessmentJobRepository.enqueue(claimId);
+    }
+
+    /**
+     * Lease due jobs for the free worker slots of this node
+     */
+    public void poll() {
+        if (!enabled || workerPool.isShutdown()) {
+            return;
+        }
+        int buried = claimAssessmentJobRepository.buryExpired(maxAttempts);
+        if (buried > 0) {
+            deadCount.add(buried);
+            log.error("💀 {} claim assessment jobs ran out of attempts with an expired lease", buried);
+        }
+
+        int free;
+        while ((free = workers + queueCapacity - inFlight.get()) > 0) {
+            int limit = Math.min(free, batchSize);
+            List<Job> jobs = claimAssessmentJobRepository.claim(workerId, leaseSeconds, maxAttempts, limit);
+            for (Job job : jobs) {
+                inFlight.incrementAndGet();
+                try {
+                    workerPool.execute(() -> run(job));
+                } catch (RejectedExecutionException e) {
+                    // Shutting down: the lease expires and another node picks the job up
+                    inFlight.decrementAndGet();
+                }
+            }
+            claimedCount.add(jobs.size());
+            if (jobs.size() < limit) {
+                break;
+            }
+        }
+    }
+
+    private void pollSafely() {
+        try {
+            poll();
+        } catch (RuntimeException e) {
+            // An exception would cancel the schedule; the next round tries again
+            log.error("Claim assessment poll failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Give a DEAD job a fresh set of attempts
+     */
+    public void retry(UUID claimId) {
+        if (!claimAssessmentJobRepository.retry(claimId)) {
+            throw new ResourceNotFoundException("Dead assessment job", "claimId", claimId);
+        }
+        log.info("🔁 Assessment of claim {} queued again", claimId);
+    }
+
+    /**
+     * Most recently failed jobs, for admin review
+     */
+    public List<ClaimAssessmentJobResponse> getDeadJobs(int limit) {
+        return claimAssessmentJobRepository.findByStatus(ClaimAssessmentJobStatus.DEAD,
+                Math.min(Math.max(limit, 1), 500));
+    }
+
+    /**
+     * Assessment queue statistics for monitoring: jobs by status cluster-wide, counters of this node
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("workerId", workerId);
+        stats.put("workers", workers);
+        stats.put("inFlight", inFlight.get());
+        stats.put("jobs", claimAssessmentJobRepository.countByStatus());
+        stats.put("claimed", claimedCount.sum());
+        stats.put("approved", approvedCount.sum());
+        stats.put("rejected", rejectedCount.sum());
+        stats.put("retried", retriedCount.sum());
+        stats.put("dead", deadCount.sum());
+        stats.put("lostLeases", lostLeaseCount.sum());
+        return stats;
+    }
+
+    private void run(Job job) {
+        try {
+            assess(job);
+        } catch (RuntimeException e) {
+            fail(job, e);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Assess a claim: the AI call runs outside any transaction, the decision and the job's
+     * completion are written in one short transaction and the farmer is notified after it commits
+     */
+    private void assess(Job job) {
+        List<String> imageUrls = claimImageRepository.findByClaimId(job.claimId())
+                .stream().map(ClaimImage::getImagePath).toList();
+
+        AiService.AiPredictionResult prediction = aiService.predictDamage(imageUrls);
+
+        Decision decision = transactionTemplate.execute(status -> {
+            Decision decided = decide(job.claimId(), prediction);
+            if (!claimAssessmentJobRepository.complete(job)) {
+                // Lease expired and another worker took over; its result counts, not ours
+                status.setRollbackOnly();
+                lostLeaseCount.increment();
+                return null;
+            }
+            return decided;
+        });
+        if (decision == null) {
+            return;
+        }
+        (decision.status() == ClaimStatus.APPROVED ? approvedCount : rejectedCount).increment();
+
+        String notifTitle = decision.status() == ClaimStatus.APPROVED ? "Claim Approved! ✅" : "Claim Rejected ❌";
+        String notifMessage = decision.status() == ClaimStatus.APPROVED
+                ? String.format("Your claim is approved! Damage: %.1f%%, Amount: ₹%.2f",
+                        decision.damagePercentage().doubleValue(), decision.claimAmount().doubleValue())
+                : String.format("Your claim is rejected. Damage detected: %.1f%% (minimum: %.0f%% required)",
+                        decision.damagePercentage().doubleValue(), damageThreshold);
+        try {
+            notificationService.sendClaimNotification(decision.farmerId(), notifTitle, notifMessage);
+        } catch (RuntimeException e) {
+            log.warn("Claim {} decided but the farmer could not be notified: {}", job.claimId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Save the AI assessment and decide the claim; null when it is no longer PROCESSING
+     */
+    private Decision decide(UUID claimId, AiService.AiPredictionResult prediction) {
+        Claim claim = claimRepository.findByIdForUpdate(claimId).orElse(null);
+        if (claim == null || claim.getStatus() != ClaimStatus.PROCESSING) {
+            log.debug("Claim {} was already assessed", claimId);
+            return null;
+        }
+
+        AiAssessment assessment = AiAssessment.builder()
+                .claim(claim)
+                .damagePercentage(prediction.getDamagePercentage())
+                .modelVersion(prediction.getModelVersion())
+                .predictionDetails(prediction.getDetails())
+                .build();
+        aiAssessmentRepository.save(assessment);
+
+        // Determine claim status
+        BigDecimal damagePercent = prediction.getDamagePercentage();
+        ClaimStatus status;
+        BigDecimal claimAmount = BigDecimal.ZERO;
+
+        if (damagePercent.doubleValue() >= damageThreshold) {
+            status = ClaimStatus.APPROVED;
+            // Calculate claim amount based on damage percentage
+            claimAmount = claim.getInsurance().getCoverageAmount()
+                    .multiply(damagePercent)
+                    .divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
+
+            log.info("✅ Claim APPROVED: {}% damage, amount: ₹{}", damagePercent, claimAmount);
+        } else {
+            status = ClaimStatus.REJECTED;
+            log.info("❌ Claim REJECTED: {}% damage (threshold: {}%)", damagePercent, damageThreshold);
+        }
+
+        claim.setStatus(status);
+        claim.setDamagePercentage(damagePercent);
+        claim.setClaimAmount(claimAmount);
+        claim.setProcessedAt(LocalDateTime.now());
+        claimRepository.save(claim);
+
+        return new Decision(claim.getFarmer().getId(), status, damagePercent, claimAmount);
+    }
+
+    /**
+     * Release a failed job for a retry after an exponential backoff with jitter, or to DEAD
+     */
+    private void fail(Job job, RuntimeException cause) {
+        String error = cause.getClass().getSimpleName() + ": " + cause.getMessage();
+        long backoff = Math.min(backoffBaseSeconds << Math.min(job.attemptsUsed() - 1, 20), backoffMaxSeconds);
+        backoff += ThreadLocalRandom.current().nextLong(backoff / 4 + 1);
+        try {
+            if (!claimAssessmentJobRepository.fail(job, maxAttempts, backoff, error)) {
+                lostLeaseCount.increment();
+            } else if (job.attemptsUsed() >= maxAttempts) {
+                deadCount.increment();
+                log.error("💀 Assessment of claim {} failed {} times, giving up: {}", job.claimId(), job.attemptsUsed(), error);
+            } else {
+                retriedCount.increment();
+                log.warn("Assessment of claim {} failed (attempt {}), retrying in {}s: {}",
+                        job.claimId(), job.attemptsUsed(), backoff, error);
+            }
+        } catch (RuntimeException e) {
+            // The lease expires and the job is retried from there
+            log.error("Could not release assessment job of claim {}: {}", job.claimId(), e.getMessage());
+        }
+    }
+
+    private record Decision(UUID farmerId, ClaimStatus status, BigDecimal damagePercentage, BigDecimal claimAmount) {
+    }
+}
@@ -8,6 +8,9 @@ import com.cropinsurance.entity.enums.InsuranceStatus;
 import com.cropinsurance.exception.BadRequestException;
 import com.cropinsurance.exception.ResourceNotFoundException;
 import com.cropinsurance.repository.*;
+import com.cropinsurance.upload.ClaimImageStore;
+import com.cropinsurance.upload.ClaimUpload;
+import com.cropinsurance.upload.StoredFile;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -16,17 +19,15 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.math.BigDecimal;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
-import java.time.LocalDateTime;
+import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 /**
- * Claim Service - File claims, GPS verification, AI processing
+ * Claim Service - File claims, GPS verification; AI processing runs in ClaimAssessmentService
  */
 @Service
 @RequiredArgsConstructor
@@ -37,24 +38,34 @@ public class ClaimService {
     private final ClaimImageRepository claimImageRepository;
     private final InsurancePolicyRepository insurancePolicyRepository;
     private final FarmerRepository farmerRepository;
-    private final AiAssessmentRepository aiAssessmentRepository;
-    private final NotificationService notificationService;
-    private final AiService aiService;
-
-    @Value("${file.upload-dir:./uploads}")
-    private String uploadDir;
+    private final ClaimAssessmentService claimAssessmentService;
+    private final ClaimImageStore claimImageStore;
 
     @Value("${gps.tolerance.meters:500}")
     private double gpsTolerance;
 
-    @Value("${ai.damage.threshold:75.0}")
-    private double damageThreshold;
-
     /**
-     * File a new claim with images
+     * File a new claim with images; it is returned as PROCESSING and assessed in the background
      */
     @Transactional
     public ClaimResponse fileClaim(UUID farmerId, ClaimRequest request, List<MultipartFile> images) {
+        Claim claim = createClaim(farmerId, request, images == null ? 0 : images.size());
+        return completeFiling(claim, request, saveClaimImages(images));
+    }
+
+    /**
+     * File a new claim whose images were already streamed into storage (ClaimUploadReceiver)
+     */
+    @Transactional
+    public ClaimResponse fileClaim(UUID farmerId, ClaimRequest request, ClaimUpload upload) {
+        Claim claim = createClaim(farmerId, request, upload.images().size());
+        return completeFiling(claim, request, upload.images());
+    }
+
+    /**
+     * Check the filing and save the claim as PROCESSING
+     */
+    private Claim createClaim(UUID farmerId, ClaimRequest request, int imageCount) {
         Farmer farmer = farmerRepository.findById(farmerId)
                 .orElseThrow(() -> new ResourceNotFoundException("Farmer", "id", farmerId));
 
@@ -87,7 +98,7 @@ public class ClaimService {
         }
 
         // Validate images (minimum 4 as requested)
-        if (images == null || images.size() < 4) {
+        if (imageCount < 4) {
             throw new BadRequestException("Please upload at least 4 photos of the damaged crop");
         }
 
@@ -100,87 +111,50 @@ public class ClaimService {
                 .sensor(land.getSensor())
                 .status(ClaimStatus.PROCESSING)
                 .build();
-        claim = claimRepository.save(claim);
-
-        // Save images
-        List<String> imageUrls = new ArrayList<>();
-        for (MultipartFile image : images) {
-            String imagePath = saveClaimImage(claim.getId(), image, request.getLatitude(), request.getLongitude());
+        return claimRepository.save(claim);
+    }
 
-            ClaimImage claimImage = ClaimImage.builder()
+    /**
+     * Reference the stored images and record them (one JDBC batch), mark the insurance claimed
+     * and queue the assessment
+     */
+    private ClaimResponse completeFiling(Claim claim, ClaimRequest request, List<StoredFile> images) {
+        List<String> imageUrls = new ArrayList<>(images.size());
+        List<ClaimImage> claimImages = new ArrayList<>(images.size());
+        int reusedImages = 0;
+        for (StoredFile image : images) {
+            String imagePath = claimImageStore.urlOf(image);
+            boolean reused = claimImageStore.reference(image);
+            if (reused) {
+                reusedImages++;
+            }
+            claimImages.add(ClaimImage.builder()
                     .claim(claim)
                     .imagePath(imagePath)
+                    .sha256(image.sha256())
+                    .sizeBytes(image.size())
+                    .reused(reused)
                     .latitude(request.getLatitude())
                     .longitude(request.getLongitude())
-                    .build();
-            claimImageRepository.save(claimImage);
+                    .build());
             imageUrls.add(imagePath);
         }
+        claimImageRepository.saveAll(claimImages);
 
+        InsurancePolicy insurance = claim.getInsurance();
         log.info("📸 Claim filed with {} images for insurance: {}", images.size(), insurance.getPolicyNumber());
-
-        // Process with AI (async in real app, sync for prototype)
-        ClaimResponse response = processClaimWithAi(claim, imageUrls);
+        if (reusedImages > 0) {
+            log.warn("♻️ Claim {} reuses {} previously filed photos", claim.getId(), reusedImages);
+        }
 
         // Update insurance status
         insurance.setStatus(InsuranceStatus.CLAIMED);
         insurancePolicyRepository.save(insurance);
 
-        return response;
-    }
-
-    /**
-     * Process claim with AI model
-     */
-    private ClaimResponse processClaimWithAi(Claim claim, List<String> imageUrls) {
-        // Call AI service
-        AiService.AiPredictionResult prediction = aiService.predictDamage(imageUrls);
-
-        // Save AI assessment
-        AiAssessment assessment = AiAssessment.builder()
-                .claim(claim)
-                .damagePercentage(prediction.getDamagePercentage())
-                .modelVersion(prediction.getModelVersion())
-                .predictionDetails(prediction.getDetails())
-                .build();
-        aiAssessmentRepository.save(assessment);
-
-        // Determine claim status
-        BigDecimal damagePercent = prediction.getDamagePercentage();
-        ClaimStatus status;
-        BigDecimal claimAmount = BigDecimal.ZERO;
-
-        if (damagePercent.doubleValue() >= damageThreshold) {
-            status = ClaimStatus.APPROVED;
-            // Calculate claim amount based on damage percentage
-            claimAmount = claim.getInsurance().getCoverageAmount()
-                    .multiply(damagePercent)
-                    .divide(BigDecimal.valueOf(100), 2, BigDecimal.ROUND_HALF_UP);
-
-            log.info("✅ Claim APPROVED: {}% damage, amount: ₹{}", damagePercent, claimAmount);
-        } else {
-            status = ClaimStatus.REJECTED;
-            log.info("❌ Claim REJECTED: {}% damage (threshold: {}%)", damagePercent, damageThreshold);
-        }
-
-        // Update claim
-        claim.setStatus(status);
-        claim.setDamagePercentage(damagePercent);
-        claim.setClaimAmount(claimAmount);
-        claim.setProcessedAt(LocalDateTime.now());
-        claimRepository.save(claim);
+        // Durable assessment job, committed together with the claim
+        claimAssessmentService.enqueue(claim.getId());
 
-        // Send notification
-        String notifTitle = status == ClaimStatus.APPROVED ? "Claim Approved! ✅" : "Claim Rejected ❌";
-        String notifMessage = status == ClaimStatus.APPROVED
-                ? String.format("Your claim is approved! Damage: %.1f%%, Amount: ₹%.2f",
-                        damagePercent.doubleValue(), claimAmount.doubleValue())
-                : String.format("Your claim is rejected. Damage detected: %.1f%% (minimum: %.0f%% required)",
-                        damagePercent.doubleValue(), damageThreshold);
-
-        notificationService.sendClaimNotification(claim.getFarmer().getId(), notifTitle, notifMessage);
-
-        return toClaimResponse(claim, imageUrls, prediction);
+        return toClaimResponse(claim, imageUrls, null);
     }
 
     /**
@@ -215,23 +189,32 @@ public class ClaimService {
     }
 
     /**
-     * Save claim image to disk
+     * Store claim images concurrently, one virtual thread per image, in upload order. Images
+     * stored before a failure are left to ClaimImageStore's sweep.
      */
-    private String saveClaimImage(UUID claimId, MultipartFile image, BigDecimal lat, BigDecimal lng) {
-        try {
-            Path uploadPath = Paths.get(uploadDir, "claims", claimId.toString());
-            Files.createDirectories(uploadPath);
-
-            String extension = getFileExtension(image.getOriginalFilename());
-            String filename = UUID.randomUUID().toString().substring(0, 8) + extension;
-            Path filePath = uploadPath.resolve(filename);
-
-            Files.copy(image.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+    private List<StoredFile> saveClaimImages(List<MultipartFile> images) {
+        List<Future<StoredFile>> writes = new ArrayList<>(images.size());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (MultipartFile image : images) {
+                writes.add(executor.submit(() -> saveClaimImage(image)));
+            }
+        } // close() waits for every write
+
+        List<StoredFile> written = new ArrayList<>(writes.size());
+        for (Future<StoredFile> write : writes) {
+            if (write.state() != Future.State.SUCCESS) {
+                Throwable failure = write.exceptionNow();
+                log.error("Error saving claim image: {}", failure.getMessage());
+                throw new BadRequestException("Failed to save image: " + failure.getMessage());
+            }
+            written.add(write.resultNow());
+        }
+        return written;
+    }
 
-            return "/uploads/claims/" + claimId + "/" + filename;
-        } catch (IOException e) {
-            log.error("Error saving claim image: {}", e.getMessage());
-            throw new BadRequestException("Failed to save image: " + e.getMessage());
+    private StoredFile saveClaimImage(MultipartFile image) throws IOException {
+        try (InputStream in = image.getInputStream()) {
+            return claimImageStore.put(in, Long.MAX_VALUE);
         }
     }
 
@@ -253,13 +236,6 @@ public class ClaimService {
         return R * c;
     }
 
-    private String getFileExtension(String filename) {
-        if (filename == null)
-            return ".jpg";
-        int lastDot = filename.lastIndexOf('.');
-        return lastDot > 0 ? filename.substring(lastDot) : ".jpg";
-    }
-
     private ClaimResponse toClaimResponse(Claim claim, List<String> imageUrls,
             AiService.AiPredictionResult prediction) {
         return ClaimResponse.builder()
@@ -6,13 +6,16 @@ import com.cropinsurance.entity.*;
 import com.cropinsurance.entity.enums.VerificationStatus;
 import com.cropinsurance.exception.BadRequestException;
 import com.cropinsurance.exception.ResourceNotFoundException;
+import com.cropinsurance.ingest.SensorCodeCache;
 import com.cropinsurance.repository.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.security.SecureRandom;
 import java.time.LocalDateTime;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -27,12 +30,15 @@ import java.util.stream.Collectors;
 @Slf4j
 public class PatwariService {
 
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
     private final PatwariRepository patwariRepository;
     private final VerificationRepository verificationRepository;
     private final SensorRepository sensorRepository;
     private final LandRepository landRepository;
     private final InsuranceService insuranceService;
     private final NotificationService notificationService;
+    private final SensorCodeCache sensorCodeCache;
 
     /**
      * Get pending verifications
@@ -92,6 +98,7 @@ public class PatwariService {
                 landRepository.save(land);
 
                 verification.setAssignedSensorId(sensor.getId());
+                sensorCodeCache.invalidate(sensor.getUniqueCode());
                 log.info("📡 Sensor {} assigned to land {}", sensor.getUniqueCode(), land.getKhasraNumber());
             }
 
@@ -129,6 +136,43 @@ public class PatwariService {
         return sensorRepository.findAvailableSensors();
     }
 
+    /**
+     * Deactivate a sensor so that its readings are no longer accepted
+     */
+    @Transactional
+    public Sensor deactivateSensor(String sensorCode) {
+        Sensor sensor = sensorRepository.findByUniqueCode(sensorCode)
+                .orElseThrow(() -> new ResourceNotFoundException("Sensor", "code", sensorCode));
+
+        sensor.setIsActive(false);
+        sensorRepository.save(sensor);
+        sensorCodeCache.invalidate(sensorCode);
+
+        log.info("📴 Sensor {} deactivated", sensorCode);
+        return sensor;
+    }
+
+    /**
+     * Issue a new gateway ingest key for a sensor; the previous key stops working.
+     * The key is only returned here, so it has to be provisioned on the device right away.
+     */
+    @Transactional
+    public String rotateIngestKey(String sensorCode) {
+        Sensor sensor = sensorRepository.findByUniqueCode(sensorCode)
+                .orElseThrow(() -> new ResourceNotFoundException("Sensor", "code", sensorCode));
+
+        byte[] key = new byte[32];
+        SECURE_RANDOM.nextBytes(key);
+        String ingestKey = Base64.getEncoder().encodeToString(key);
+
+        sensor.setIngestKey(ingestKey);
+        sensorRepository.save(sensor);
+        sensorCodeCache.invalidate(sensorCode);
+
+        log.info("🔑 Issued new ingest key for sensor {}", sensorCode);
+        return ingestKey;
+    }
+
     /**
      * Get dashboard stats
      */
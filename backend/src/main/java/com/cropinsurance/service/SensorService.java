@@ -1,19 +1,57 @@
 package com.cropinsurance.service;
 
 import com.cropinsurance.dto.request.SensorReadingRequest;
+import com.cropinsurance.dto.response.SensorAggregateResponse;
+import com.cropinsurance.dto.response.SensorReadingResult;
 import com.cropinsurance.entity.Sensor;
+import com.cropinsurance.entity.SensorAlert;
 import com.cropinsurance.entity.SensorReading;
+import com.cropinsurance.entity.enums.RollupBucket;
+import com.cropinsurance.exception.BadRequestException;
 import com.cropinsurance.exception.ResourceNotFoundException;
-import com.cropinsurance.repository.SensorReadingRepository;
+import com.cropinsurance.exception.TooManyRequestsException;
+import com.cropinsurance.ingest.SensorAnomalyDetector;
+import com.cropinsurance.ingest.SensorCodeCache;
+import com.cropinsurance.ingest.SensorFrameDecoder;
+import com.cropinsurance.ingest.SensorFrameDecoder.SensorFrame;
+import com.cropinsurance.ingest.SensorHealthMonitor;
+import com.cropinsurance.ingest.SensorIngestBuffer;
+import com.cropinsurance.ingest.SensorLastSeenTracker;
+import com.cropinsurance.ingest.SensorLateReadingLane;
+import com.cropinsurance.ingest.SensorRateLimiter;
+import com.cropinsurance.ingest.SensorReadingCompactor;
+import com.cropinsurance.ingest.SensorReadingDeduplicator;
+import com.cropinsurance.ingest.SensorReadingHistory;
+import com.cropinsurance.ingest.SensorReadingHistory.Cursor;
+import com.cropinsurance.ingest.SensorReadingStream;
+import com.cropinsurance.ingest.SensorReadingWriter;
+import com.cropinsurance.ingest.SensorRecentReadings;
+import com.cropinsurance.ingest.SensorRef;
+import com.cropinsurance.ingest.SensorRollupAggregator;
+import com.cropinsurance.ingest.SensorSample;
+import com.cropinsurance.ingest.SensorWatermarks;
+import com.cropinsurance.repository.SensorAlertRepository;
 import com.cropinsurance.repository.SensorRepository;
+import com.cropinsurance.repository.SensorRollupRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.util.List;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.stream.Collectors;
 
 /**
  * Sensor Service - IoT sensor data management
@@ -24,55 +62,386 @@ import java.util.List;
 public class SensorService {
 
     private final SensorRepository sensorRepository;
-    private final SensorReadingRepository sensorReadingRepository;
+    private final SensorReadingWriter sensorReadingWriter;
+    private final SensorIngestBuffer sensorIngestBuffer;
+    private final SensorCodeCache sensorCodeCache;
+    private final SensorLastSeenTracker sensorLastSeenTracker;
+    private final SensorRecentReadings sensorRecentReadings;
+    private final SensorReadingHistory sensorReadingHistory;
+    private final SensorReadingCompactor sensorReadingCompactor;
+    private final SensorRollupAggregator sensorRollupAggregator;
+    private final SensorRollupRepository sensorRollupRepository;
+    private final SensorReadingStream sensorReadingStream;
+    private final SensorAnomalyDetector sensorAnomalyDetector;
+    private final SensorAlertRepository sensorAlertRepository;
+    private final SensorHealthMonitor sensorHealthMonitor;
+    private final SensorRateLimiter sensorRateLimiter;
+    private final SensorReadingDeduplicator sensorReadingDeduplicator;
+    private final SensorWatermarks sensorWatermarks;
+    private final SensorLateReadingLane sensorLateReadingLane;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
 
-    /**
-     * Record sensor reading (from simulator or real sensor)
-     */
-    @Transactional
-    public SensorReading recordReading(SensorReadingRequest request) {
-        Sensor sensor = sensorRepository.findByUniqueCode(request.getSensorCode())
-                .orElseThrow(() -> new ResourceNotFoundException("Sensor", "code", request.getSensorCode()));
+    @Value("${sensor.batch.max-size:1000}")
+    private int maxBatchSize;
+
+    @Value("${sensor.binary.max-clock-skew-seconds:300}")
+    private long maxClockSkewSeconds;
 
-        SensorReading reading = SensorReading.builder()
-                .sensor(sensor)
-                .soilMoisture(request.getSoilMoisture())
-                .humidity(request.getHumidity())
-                .temperature(request.getTemperature())
-                .rainfall(request.getRainfall())
-                .build();
+    @Value("${sensor.stream.max-sensors-per-subscriber:50}")
+    private int maxStreamSensors;
 
-        reading = sensorReadingRepository.save(reading);
+    /**
+     * Record sensor reading (from simulator or real sensor); source is the client address
+     * used for the per-gateway rate limit. A late reading goes to the late reading lane.
+     */
+    public SensorReading recordReading(SensorReadingRequest request, String source) {
+        SensorRef sensor = sensorCodeCache.require(request.getSensorCode());
+        sensorRateLimiter.acquireGateway(source, 1);
 
-        // Update sensor last reading time
-        sensor.setLastReadingAt(LocalDateTime.now());
-        sensorRepository.save(sensor);
+        LocalDateTime now = LocalDateTime.now();
+        SensorSample sample;
+        try {
+            sample = toSample(sensor, request, now);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        }
+        if (sensorReadingDeduplicator.isDuplicate(sample)) {
+            return sample.toReading(sensor.toSensor());
+        }
+        if (sensorWatermarks.isLate(sensor.id(), sample.recordedAt(), now)) {
+            sensorRateLimiter.acquireLate(sensor, 1);
+            sensorLateReadingLane.submitAll(List.of(sample), false);
+        } else {
+            sensorRateLimiter.acquireSensor(sensor, 1);
+            sensorWatermarks.advance(sensor.id(), sample.recordedAt());
+            persist(List.of(sample));
+        }
 
-        log.info("📊 Sensor {} reading: moisture={}%, humidity={}%, temp={}°C",
-                sensor.getUniqueCode(),
+        log.debug("Sensor {} reading: moisture={}%, humidity={}%, temp={}°C",
+                sensor.uniqueCode(),
                 request.getSoilMoisture(),
                 request.getHumidity(),
                 request.getTemperature());
 
-        return reading;
+        return sample.toReading(sensor.toSensor());
+    }
+
+    /**
+     * Record a batch of readings (from field gateways).
+     * Sensor codes are resolved with one query and all valid readings are written
+     * in a single JDBC batch; invalid or rate limited items are reported without failing the batch.
+     */
+    public List<SensorReadingResult> recordReadings(List<SensorReadingRequest> requests, String source) {
+        return recordReadings(requests, false, source);
+    }
+
+    /**
+     * Record a batch of readings; when durable is set the call returns only after the accepted
+     * readings are committed, even if the write-behind buffer acknowledges on enqueue.
+     * Without a source only the per-sensor rate limits apply. Late readings (a gateway catching
+     * up on its backlog) take the sensor's late reading allowance instead of its real-time limit
+     * and go to the late reading lane; when either is exhausted they are reported as retryable.
+     */
+    public List<SensorReadingResult> recordReadings(List<SensorReadingRequest> requests, boolean durable,
+            String source) {
+        if (requests == null || requests.isEmpty()) {
+            throw new BadRequestException("Batch must contain at least one reading");
+        }
+        if (requests.size() > maxBatchSize) {
+            throw new BadRequestException("Batch exceeds maximum size of " + maxBatchSize + " readings");
+        }
+        sensorRateLimiter.acquireGateway(source, requests.size());
+
+        Set<String> codes = requests.stream()
+                .filter(Objects::nonNull)
+                .map(SensorReadingRequest::getSensorCode)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<String, SensorRef> sensorsByCode = sensorCodeCache.findAll(codes);
+
+        LocalDateTime now = LocalDateTime.now();
+        List<SensorReadingResult> results = new ArrayList<>(requests.size());
+        List<SensorSample> accepted = new ArrayList<>(requests.size());
+        List<Integer> acceptedIndexes = new ArrayList<>(requests.size());
+        List<SensorSample> late = new ArrayList<>();
+        List<Integer> lateIndexes = new ArrayList<>();
+        Set<UUID> sensorIds = new HashSet<>();
+        int duplicates = 0;
+
+        for (int i = 0; i < requests.size(); i++) {
+            SensorReadingRequest request = requests.get(i);
+            if (request == null) {
+                results.add(SensorReadingResult.rejected(i, null, "Reading is required"));
+                continue;
+            }
+
+            String error = validate(request);
+            if (error != null) {
+                results.add(SensorReadingResult.rejected(i, request.getSensorCode(), error));
+                continue;
+            }
+
+            SensorRef sensor = sensorsByCode.get(request.getSensorCode());
+            if (sensor == null) {
+                results.add(SensorReadingResult.rejected(i, request.getSensorCode(), "Sensor not found"));
+                continue;
+            }
+            if (!sensor.active()) {
+                results.add(SensorReadingResult.rejected(i, request.getSensorCode(), "Sensor is inactive"));
+                continue;
+            }
+
+            SensorSample sample;
+            try {
+                sample = toSample(sensor, request, now);
+            } catch (IllegalArgumentException e) {
+                results.add(SensorReadingResult.rejected(i, request.getSensorCode(), e.getMessage()));
+                continue;
+            }
+            if (sensorReadingDeduplicator.isDuplicate(sample)) {
+                results.add(SensorReadingResult.duplicate(i, sensor.uniqueCode(), sample.id().toString()));
+                duplicates++;
+                continue;
+            }
+            if (sensorWatermarks.isLate(sensor.id(), sample.recordedAt(), now)) {
+                if (!sensorRateLimiter.tryAcquireLate(sensor, 1)) {
+                    results.add(SensorReadingResult.throttled(i, request.getSensorCode(), "Late reading limit exceeded"));
+                    continue;
+                }
+                late.add(sample);
+                lateIndexes.add(i);
+            } else if (sensorRateLimiter.tryAcquireSensor(sensor, 1)) {
+                sensorWatermarks.advance(sensor.id(), sample.recordedAt());
+                accepted.add(sample);
+                acceptedIndexes.add(i);
+            } else {
+                results.add(SensorReadingResult.throttled(i, request.getSensorCode(), "Rate limit exceeded"));
+                continue;
+            }
+            sensorIds.add(sensor.id());
+            results.add(SensorReadingResult.accepted(i, sensor.uniqueCode(), sample.id().toString()));
+        }
+
+        if (!persist(accepted, durable)) {
+            markCommitPending(results, acceptedIndexes);
+        }
+        try {
+            if (!sensorLateReadingLane.submitAll(late, durable)) {
+                markCommitPending(results, lateIndexes);
+            }
+        } catch (TooManyRequestsException e) {
+            for (int i : lateIndexes) {
+                results.set(i, SensorReadingResult.throttled(i, requests.get(i).getSensorCode(), e.getMessage()));
+            }
+            late.clear();
+        }
+
+        log.info("📊 Batch ingested {} of {} readings from {} sensors ({} late, {} duplicates)",
+                accepted.size() + late.size(), requests.size(), sensorIds.size(), late.size(), duplicates);
+
+        return results;
+    }
+
+    /**
+     * Record the readings of one binary frame (see SensorFrameDecoder for the layout).
+     * Readings carry the device timestamp; 0 means "now". Returns how many readings were new:
+     * numbered (version 2) readings already stored are skipped.
+     */
+    public int recordFrame(byte[] body, String source) {
+        SensorFrame frame = SensorFrameDecoder.decode(body);
+        SensorRef sensor = sensorCodeCache.require(frame.sensorCode());
+        sensorRateLimiter.acquireGateway(source, frame.count());
+        return recordFrame(sensor, frame);
+    }
+
+    /**
+     * Record a decoded frame of an already resolved (and, for the gateway, authenticated and
+     * gateway rate limited) sensor. On-time readings take the sensor's rate limit tokens, late
+     * ones its late reading allowance and go to the late reading lane; any of these refusing
+     * fails the whole frame with 429.
+     */
+    public int recordFrame(SensorRef sensor, SensorFrame frame) {
+        if (frame.count() > maxBatchSize) {
+            throw new BadRequestException("Frame exceeds maximum size of " + maxBatchSize + " readings");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        long nowSeconds = Instant.now().getEpochSecond();
+        List<SensorSample> samples = new ArrayList<>(frame.count());
+        List<SensorSample> late = new ArrayList<>();
+        for (int i = 0; i < frame.count(); i++) {
+            long seconds = frame.recordedAtEpochSeconds()[i];
+            if (seconds > nowSeconds + maxClockSkewSeconds) {
+                throw new BadRequestException("Reading " + i + " is timestamped in the future");
+            }
+            int soilMoisture = SensorFrameDecoder.toCenti(frame.value(i, 0));
+            int humidity = SensorFrameDecoder.toCenti(frame.value(i, 1));
+            int temperature = SensorFrameDecoder.toCenti(frame.value(i, 2));
+            if (soilMoisture == SensorSample.MISSING || humidity == SensorSample.MISSING
+                    || temperature == SensorSample.MISSING) {
+                throw new BadRequestException("Reading " + i + " is missing soil moisture, humidity or temperature");
+            }
+
+            LocalDateTime recordedAt = seconds == 0
+                    ? now : LocalDateTime.ofInstant(Instant.ofEpochSecond(seconds), ZoneId.systemDefault());
+            long sequence = frame.sequence(i);
+            SensorSample sample = new SensorSample(SensorSample.idFor(sensor.id(), recordedAt, sequence),
+                    sensor.id(), recordedAt, soilMoisture, humidity, temperature,
+                    SensorFrameDecoder.toCenti(frame.value(i, 3)), sequence);
+            if (sensorReadingDeduplicator.isDuplicate(sample)) {
+                continue;
+            }
+            (sensorWatermarks.isLate(sensor.id(), recordedAt, now) ? late : samples).add(sample);
+        }
+
+        // The frame is taken or refused whole: tokens of one bucket are given back when the other refuses
+        if (!samples.isEmpty()) {
+            sensorRateLimiter.acquireSensor(sensor, samples.size());
+        }
+        try {
+            if (!late.isEmpty()) {
+                sensorRateLimiter.acquireLate(sensor, late.size());
+            }
+            try {
+                sensorLateReadingLane.submitAll(late, false);
+            } catch (TooManyRequestsException e) {
+                sensorRateLimiter.releaseLate(sensor, late.size());
+                throw e;
+            }
+        } catch (TooManyRequestsException e) {
+            sensorRateLimiter.releaseSensor(sensor, samples.size());
+            throw e;
+        }
+        for (SensorSample sample : samples) {
+            sensorWatermarks.advance(sensor.id(), sample.recordedAt());
+        }
+        persist(samples);
+
+        log.debug("Sensor {} binary frame: {} of {} readings new ({} late)",
+                sensor.uniqueCode(), samples.size() + late.size(), frame.count(), late.size());
+        return samples.size() + late.size();
     }
 
     /**
      * Get latest readings for a sensor
      */
     public List<SensorReading> getLatestReadings(String sensorCode, int limit) {
-        Sensor sensor = sensorRepository.findByUniqueCode(sensorCode)
+        SensorRef sensor = sensorCodeCache.find(sensorCode)
+                .orElseThrow(() -> new ResourceNotFoundException("Sensor", "code", sensorCode));
+
+        if (sensorRecentReadings.canServe(limit)) {
+            return sensorRecentReadings.latest(sensor.toSensor(), limit);
+        }
+        return sensorReadingHistory.latest(sensor.toSensor(), limit);
+    }
+
+    /**
+     * Stream readings of a sensor in [from, to) in (recorded_at, id) order, raw and compressed
+     * history alike. Arguments are checked up front so errors still get a regular error response;
+     * readings are then written one by one with Jackson's streaming generator.
+     */
+    public StreamingResponseBody streamReadingsBetween(String sensorCode, LocalDateTime from, LocalDateTime to,
+            String after, Integer limit) {
+        SensorRef sensor = sensorCodeCache.find(sensorCode)
                 .orElseThrow(() -> new ResourceNotFoundException("Sensor", "code", sensorCode));
+        if (!from.isBefore(to)) {
+            throw new BadRequestException("'from' must be before 'to'");
+        }
+        if (limit != null && limit < 1) {
+            throw new BadRequestException("Limit must be positive");
+        }
+        Cursor cursor = after != null && !after.isBlank() ? Cursor.decode(after) : null;
+        long max = limit != null ? limit : Long.MAX_VALUE;
 
-        return sensorReadingRepository.findLatestBySensorId(sensor.getId(), PageRequest.of(0, limit));
+        return out -> {
+            try (JsonGenerator json = objectMapper.createGenerator(out)) {
+                json.writeStartObject();
+                json.writeBooleanField("success", true);
+                json.writeObjectFieldStart("data");
+                json.writeArrayFieldStart("readings");
+                Cursor next = sensorReadingHistory.scan(sensor.toSensor(), from, to, cursor, max, reading -> {
+                    try {
+                        json.writeObject(reading);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                json.writeEndArray();
+                json.writeStringField("nextCursor", next != null ? next.encode() : null);
+                json.writeEndObject();
+                json.writeEndObject();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+    }
+
+    /**
+     * Open a live stream of new readings for one or more sensors
+     */
+    public SseEmitter streamReadings(List<String> sensorCodes) {
+        Set<String> codes = new LinkedHashSet<>(sensorCodes);
+        if (codes.isEmpty()) {
+            throw new BadRequestException("At least one sensor code is required");
+        }
+        if (codes.size() > maxStreamSensors) {
+            throw new BadRequestException("A stream can follow at most " + maxStreamSensors + " sensors");
+        }
+
+        List<SensorRef> sensors = codes.stream().map(sensorCodeCache::require).toList();
+        return sensorReadingStream.subscribe(sensors);
+    }
+
+    /**
+     * Get the most recent anomaly alerts of a sensor
+     */
+    public List<SensorAlert> getAlerts(String sensorCode, int limit) {
+        SensorRef sensor = sensorCodeCache.find(sensorCode)
+                .orElseThrow(() -> new ResourceNotFoundException("Sensor", "code", sensorCode));
+        return sensorAlertRepository.findBySensorIdOrderByDetectedAtDesc(sensor.id(),
+                PageRequest.of(0, Math.min(Math.max(limit, 1), 100)));
+    }
+
+    /**
+     * Get hourly or daily aggregates of a sensor from the rollup tables.
+     * Defaults to the last 7 days of hours or the last 90 days of days.
+     */
+    public List<SensorAggregateResponse> getAggregates(String sensorCode, String bucket,
+            LocalDateTime from, LocalDateTime to) {
+        SensorRef sensor = sensorCodeCache.find(sensorCode)
+                .orElseThrow(() -> new ResourceNotFoundException("Sensor", "code", sensorCode));
+
+        RollupBucket rollupBucket;
+        try {
+            rollupBucket = RollupBucket.valueOf(bucket.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Bucket must be 'hour' or 'day'");
+        }
+
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from
+                : end.minusDays(rollupBucket == RollupBucket.HOUR ? 7 : 90);
+        if (!start.isBefore(end)) {
+            throw new BadRequestException("'from' must be before 'to'");
+        }
+
+        return sensorRollupRepository.find(sensor.id(), rollupBucket, rollupBucket.start(start), end);
     }
 
     /**
      * Get sensor by code
      */
     public Sensor getSensorByCode(String sensorCode) {
-        return sensorRepository.findByUniqueCode(sensorCode)
+        Sensor sensor = sensorRepository.findByUniqueCode(sensorCode)
                 .orElseThrow(() -> new ResourceNotFoundException("Sensor", "code", sensorCode));
+
+        // Last reading time may not be flushed yet
+        LocalDateTime pending = sensorLastSeenTracker.getPending(sensor.getId());
+        if (pending != null && (sensor.getLastReadingAt() == null || pending.isAfter(sensor.getLastReadingAt()))) {
+            sensor.setLastReadingAt(pending);
+        }
+        return sensor;
     }
 
     /**
@@ -81,4 +450,91 @@ public class SensorService {
     public List<Sensor> getAllSensors() {
         return sensorRepository.findAll();
     }
+
+    /**
+     * Get fleet health counts (healthy, stale, offline)
+     */
+    public Map<String, Object> getFleetHealth() {
+        return sensorHealthMonitor.getStats();
+    }
+
+    /**
+     * Get ingestion pipeline statistics
+     */
+    public Map<String, Object> getIngestStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("cachedSensors", sensorCodeCache.size());
+        stats.put("writeBehind", sensorIngestBuffer.getStats());
+        stats.put("lastSeen", sensorLastSeenTracker.getStats());
+        stats.put("recentReadingSensors", sensorRecentReadings.sensorCount());
+        stats.put("pendingRollupBuckets", sensorRollupAggregator.pendingBuckets());
+        stats.put("stream", sensorReadingStream.getStats());
+        stats.put("anomalies", sensorAnomalyDetector.getStats());
+        stats.put("coldStorage", sensorReadingCompactor.getStats());
+        stats.put("rateLimit", sensorRateLimiter.getStats());
+        stats.put("dedup", sensorReadingDeduplicator.getStats());
+        stats.put("watermarks", sensorWatermarks.getStats());
+        stats.put("late", sensorLateReadingLane.getStats());
+        return stats;
+    }
+
+    /**
+     * Hand samples to the write-behind buffer when enabled, otherwise write them synchronously
+     */
+    private void persist(List<SensorSample> samples) {
+        persist(samples, false);
+    }
+
+    /**
+     * False when the commit was awaited but is still pending after the buffer's commit timeout
+     */
+    private boolean persist(List<SensorSample> samples, boolean durable) {
+        if (sensorIngestBuffer.isEnabled()) {
+            return sensorIngestBuffer.submitAll(samples, durable);
+        }
+        sensorReadingWriter.write(samples);
+        return true;
+    }
+
+    private static void markCommitPending(List<SensorReadingResult> results, List<Integer> indexes) {
+        indexes.forEach(i -> results.get(i).setCommitPending(true));
+    }
+
+    /**
+     * The only BigDecimal to fixed-point conversion on the JSON ingest path. Readings without a
+     * device time are stamped with the arrival time; a sequence needs the device time.
+     */
+    private SensorSample toSample(SensorRef sensor, SensorReadingRequest request, LocalDateTime now) {
+        LocalDateTime recordedAt = now;
+        if (request.getRecordedAt() != null) {
+            recordedAt = LocalDateTime.ofInstant(request.getRecordedAt(), ZoneId.systemDefault());
+            if (recordedAt.isAfter(now.plusSeconds(maxClockSkewSeconds))) {
+                throw new IllegalArgumentException("Reading is timestamped in the future");
+            }
+        }
+        long sequence = SensorSample.NO_SEQUENCE;
+        if (request.getSequence() != null) {
+            if (request.getRecordedAt() == null) {
+                throw new IllegalArgumentException("Sequence requires recordedAt");
+            }
+            sequence = request.getSequence();
+        }
+        return new SensorSample(SensorSample.idFor(sensor.id(), recordedAt, sequence), sensor.id(), recordedAt,
+                SensorSample.toCenti(request.getSoilMoisture()),
+                SensorSample.toCenti(request.getHumidity()),
+                SensorSample.toCenti(request.getTemperature()),
+                SensorSample.toCenti(request.getRainfall()),
+                sequence);
+    }
+
+    private String validate(SensorReadingRequest request) {
+        Set<ConstraintViolation<SensorReadingRequest>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
 }
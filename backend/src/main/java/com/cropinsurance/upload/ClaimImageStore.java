@@ -0,0 +1,221 @@
+package com.cropinsurance.upload;
+
+import com.cropinsurance.repository.ClaimImageBlobRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Claim Image Store - Content-addressed storage for claim photos.
+ *
+ * Each distinct photo is stored once, as uploads/claims/blobs/ab/cd/&lt;sha256&gt;, however many
+ * claims it is filed with. An upload is written to a staging file while its SHA-256 is computed,
+ * then renamed into place, over the blob if it already exists (the bytes are the same). An
+ * in-memory index of every stored hash flags a repeat upload the moment its last byte is read;
+ * the claim_image_blobs row (taken in the filing transaction) is the authoritative, cross-node
+ * reference count.
+ *
+ * Files are never deleted on a failed filing: a blob nobody committed a reference to is removed
+ * by the sweep once it is older than the grace period. Reusing a blob replaces it with the fresh
+ * upload, so a filing still in flight keeps it out of the sweep, and there is no moment at which
+ * the blob is checked but not yet renewed. On this node the rename and the sweep's last age check
+ * and delete of the same file run under one lock stripe.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ClaimImageStore {
+
+    private static final String BLOBS_DIR = "blobs";
+    private static final String STAGING_DIR = ".incoming";
+    private static final Pattern SHA256 = Pattern.compile("[0-9a-f]{64}");
+    private static final int STRIPES = 64;
+
+    private final ClaimImageBlobRepository claimImageBlobRepository;
+
+    @Value("${file.upload-dir:./uploads}")
+    private String uploadDir;
+
+    @Value("${claims.images.orphan-grace-minutes:60}")
+    private long orphanGraceMinutes;
+
+    private final Set<String> index = ConcurrentHashMap.newKeySet();
+    private final Object[] locks = newLocks();
+    private Path root;
+
+    private final LongAdder storedCount = new LongAdder();
+    private final LongAdder reusedCount = new LongAdder();
+    private final LongAdder bytesSaved = new LongAdder();
+    private final LongAdder sweptCount = new LongAdder();
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Paths.get(uploadDir, "claims", BLOBS_DIR);
+        Files.createDirectories(root.resolve(STAGING_DIR));
+        claimImageBlobRepository.forEachHash(index::add);
+        log.info("🗂️ Claim image index loaded ({} stored images)", index.size());
+    }
+
+    /**
+     * Store an image from an upload stream; the result points at its blob
+     */
+    public StoredFile put(InputStream in, long maxBytes) throws IOException {
+        Path staging = root.resolve(STAGING_DIR).resolve(UUID.randomUUID().toString());
+        StoredFile written = StoredFile.write(in, staging, maxBytes);
+        Path target = blobPath(written.sha256());
+
+        if (index.contains(written.sha256())) {
+            reusedCount.increment();
+            log.warn("♻️ Repeat claim photo upload: {}", written.sha256());
+        }
+
+        // Moved over an existing blob as well, so the sweep cannot remove it between a check and a touch
+        boolean existed = Files.exists(target);
+        Files.createDirectories(target.getParent());
+        synchronized (lockFor(written.sha256())) {
+            Files.move(staging, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (existed) {
+            bytesSaved.add(written.size());
+        } else {
+            storedCount.increment();
+        }
+        return new StoredFile(target, written.sha256(), written.size());
+    }
+
+    /**
+     * Count a claim_images reference to a stored image in the caller's transaction;
+     * true when the same bytes had been filed before
+     */
+    public boolean reference(StoredFile image) {
+        boolean reused = !claimImageBlobRepository.reference(image.sha256(), image.size());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    index.add(image.sha256());
+                }
+            });
+        } else {
+            index.add(image.sha256());
+        }
+        return reused;
+    }
+
+    /**
+     * Public URL of a stored image
+     */
+    public String urlOf(StoredFile image) {
+        String sha256 = image.sha256();
+        return "/uploads/claims/" + BLOBS_DIR + "/" + sha256.substring(0, 2) + "/" + sha256.substring(2, 4) + "/" + sha256;
+    }
+
+    /**
+     * Remove blobs and staging files past the grace period that no committed claim refers to
+     */
+    @Scheduled(fixedDelayString = "${claims.images.sweep-interval-ms:3600000}",
+            initialDelayString = "${claims.images.sweep-interval-ms:3600000}")
+    public void sweep() {
+        Instant cutoff = Instant.now().minus(Duration.ofMinutes(orphanGraceMinutes));
+        Map<String, Path> candidates = new LinkedHashMap<>();
+        List<Path> staleStaging = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(root)) {
+            files.filter(Files::isRegularFile).filter(file -> isOlderThan(file, cutoff)).forEach(file -> {
+                String name = file.getFileName().toString();
+                if (file.getParent().endsWith(STAGING_DIR)) {
+                    staleStaging.add(file);
+                } else if (SHA256.matcher(name).matches() && !index.contains(name)) {
+                    candidates.put(name, file);
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Claim image sweep failed: {}", e.getMessage());
+            return;
+        }
+
+        // Other nodes may have filed them since this node built its index
+        Set<String> referenced = candidates.isEmpty() ? Set.of() : claimImageBlobRepository.findExisting(candidates.keySet());
+        referenced.forEach(index::add);
+        candidates.keySet().removeAll(referenced);
+        staleStaging.addAll(candidates.values());
+
+        int swept = 0;
+        for (Path file : staleStaging) {
+            try {
+                // Checked again: a filing may have reused the blob since the walk
+                synchronized (lockFor(file.getFileName().toString())) {
+                    if (isOlderThan(file, cutoff) && Files.deleteIfExists(file)) {
+                        swept++;
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("Could not remove orphaned claim image {}: {}", file, e.getMessage());
+            }
+        }
+        if (swept > 0) {
+            sweptCount.add(swept);
+            log.info("🧹 Removed {} orphaned claim image files", swept);
+        }
+    }
+
+    /**
+     * Store statistics for monitoring
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("indexedImages", index.size());
+        stats.put("stored", storedCount.sum());
+        stats.put("repeatUploads", reusedCount.sum());
+        stats.put("bytesSaved", bytesSaved.sum());
+        stats.put("swept", sweptCount.sum());
+        return stats;
+    }
+
+    private Object lockFor(String name) {
+        return locks[name.hashCode() & (STRIPES - 1)];
+    }
+
+    private Path blobPath(String sha256) {
+        return root.resolve(sha256.substring(0, 2)).resolve(sha256.substring(2, 4)).resolve(sha256);
+    }
+
+    private static boolean isOlderThan(Path file, Instant cutoff) {
+        try {
+            return Files.getLastModifiedTime(file).toInstant().isBefore(cutoff);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static Object[] newLocks() {
+        Object[] locks = new Object[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        return locks;
+    }
+}
@@ -0,0 +1,14 @@
+package com.cropinsurance.upload;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Claim Upload - Form fields and images of a streamed claim upload, images already in ClaimImageStore
+ */
+public record ClaimUpload(Map<String, String> fields, List<StoredFile> images) {
+
+    public String field(String name) {
+        return fields.get(name);
+    }
+}
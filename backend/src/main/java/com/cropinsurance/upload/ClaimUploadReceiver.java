@@ -0,0 +1,92 @@
+package com.cropinsurance.upload;
+
+import com.cropinsurance.exception.BadRequestException;
+import com.cropinsurance.upload.MultipartFormReader.Part;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Claim Upload Receiver - Streams a claim's multipart body straight to disk.
+ *
+ * Used for POST /api/claims instead of servlet multipart handling (see MultipartConfig), which
+ * would spool every photo to a temp file before it is copied into uploads/claims. Here each
+ * image part is written once, straight into ClaimImageStore, with its SHA-256 and size computed
+ * on the way. Form fields and images may come in any order. The multipart size limits apply.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ClaimUploadReceiver {
+
+    public static final String IMAGES_PART = "images";
+    private static final int MAX_FIELD_BYTES = 1024;
+
+    private final ClaimImageStore claimImageStore;
+
+    @Value("${spring.servlet.multipart.max-file-size:10MB}")
+    private DataSize maxFileSize;
+
+    @Value("${spring.servlet.multipart.max-request-size:50MB}")
+    private DataSize maxRequestSize;
+
+    @Value("${claims.upload.max-images:20}")
+    private int maxImages;
+
+    /**
+     * Read the whole request; images stored before a failure are left to the store's sweep
+     */
+    public ClaimUpload receive(HttpServletRequest request) {
+        String boundary = MultipartFormReader.boundaryOf(request.getContentType());
+        if (boundary == null) {
+            throw new BadRequestException("Expected a multipart/form-data request");
+        }
+        if (request.getContentLengthLong() > maxRequestSize.toBytes()) {
+            throw new BadRequestException("Upload exceeds maximum size of " + maxRequestSize.toMegabytes() + "MB");
+        }
+
+        Map<String, String> fields = new HashMap<>();
+        List<StoredFile> images = new ArrayList<>();
+        try {
+            MultipartFormReader reader = new MultipartFormReader(request.getInputStream(), boundary,
+                    maxRequestSize.toBytes());
+            Part part;
+            while ((part = reader.next()) != null) {
+                if (part.filename() == null) {
+                    fields.put(part.name(), readField(part.body()));
+                } else if (IMAGES_PART.equals(part.name()) && !part.filename().isEmpty()) {
+                    if (images.size() == maxImages) {
+                        throw new BadRequestException("A claim can have at most " + maxImages + " photos");
+                    }
+                    images.add(claimImageStore.put(part.body(), maxFileSize.toBytes()));
+                }
+            }
+        } catch (IOException e) {
+            log.error("Error receiving claim upload: {}", e.getMessage());
+            throw new BadRequestException("Failed to save image: " + e.getMessage());
+        }
+
+        log.debug("Claim upload received: {} images, {} bytes", images.size(),
+                images.stream().mapToLong(StoredFile::size).sum());
+        return new ClaimUpload(fields, images);
+    }
+
+    private static String readField(InputStream body) throws IOException {
+        byte[] value = body.readNBytes(MAX_FIELD_BYTES + 1);
+        if (value.length > MAX_FIELD_BYTES) {
+            throw new BadRequestException("Form field exceeds " + MAX_FIELD_BYTES + " bytes");
+        }
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
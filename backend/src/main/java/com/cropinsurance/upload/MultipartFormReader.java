@@ -0,0 +1,261 @@
+package com.cropinsurance.upload;
+
+import com.cropinsurance.exception.BadRequestException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Multipart Form Reader - Single pass, streaming multipart/form-data parser.
+ *
+ * Parts are handed out one at a time with an InputStream over their body that reads straight
+ * from the request through one fixed buffer, so a part of any size costs that buffer and nothing
+ * else: no temp file, no copy in memory. Moving to the next part skips whatever the caller left
+ * of the previous one. The request size limit is enforced while reading.
+ */
+public final class MultipartFormReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_HEADER_BYTES = 8 * 1024;
+
+    private final InputStream in;
+    private final byte[] delimiter;
+    private final byte[] buffer;
+    private final long maxBytes;
+
+    private int head;
+    private int tail;
+    private long bytesRead;
+    private boolean finished;
+    private PartBody current;
+
+    public MultipartFormReader(InputStream in, String boundary, long maxBytes) {
+        this.in = in;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        this.buffer = new byte[Math.max(BUFFER_SIZE, delimiter.length * 4)];
+        this.maxBytes = maxBytes;
+        // The first boundary has no CRLF in front; start with one so every boundary looks alike
+        buffer[tail++] = '\r';
+        buffer[tail++] = '\n';
+        current = new PartBody(); // Preamble
+    }
+
+    /**
+     * Boundary parameter of a multipart Content-Type header, or null
+     */
+    public static String boundaryOf(String contentType) {
+        if (contentType == null || !contentType.toLowerCase(Locale.ROOT).startsWith("multipart/form-data")) {
+            return null;
+        }
+        String boundary = parameter(contentType, "boundary");
+        return boundary == null || boundary.isEmpty() || boundary.length() > 70 ? null : boundary;
+    }
+
+    /**
+     * Next part, or null after the closing boundary
+     */
+    public Part next() throws IOException {
+        if (finished) {
+            return null;
+        }
+        current.skipRemaining();
+        head += delimiter.length;
+
+        require(2);
+        if (buffer[head] == '-' && buffer[head + 1] == '-') {
+            finished = true;
+            return null;
+        }
+        readLine(); // Rest of the boundary line (transport padding)
+
+        Map<String, String> headers = new HashMap<>();
+        int headerBytes = 0;
+        String line;
+        while (!(line = readLine()).isEmpty()) {
+            headerBytes += line.length();
+            if (headerBytes > MAX_HEADER_BYTES) {
+                throw new BadRequestException("Multipart part headers are too large");
+            }
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+            }
+        }
+
+        String disposition = headers.get("content-disposition");
+        if (disposition == null) {
+            throw new BadRequestException("Multipart part without Content-Disposition");
+        }
+        current = new PartBody();
+        return new Part(parameter(disposition, "name"), parameter(disposition, "filename"),
+                headers.get("content-type"), current);
+    }
+
+    /**
+     * Read until CRLF and consume it; the line is decoded as UTF-8 (browsers send file names that way)
+     */
+    private String readLine() throws IOException {
+        int scanned = 0;
+        while (true) {
+            for (int i = head + scanned; i + 1 < tail; i++) {
+                if (buffer[i] == '\r' && buffer[i + 1] == '\n') {
+                    String line = new String(buffer, head, i - head, StandardCharsets.UTF_8);
+                    head = i + 2;
+                    return line;
+                }
+            }
+            scanned = Math.max(0, tail - head - 1);
+            if (scanned >= MAX_HEADER_BYTES) {
+                throw new BadRequestException("Multipart part headers are too large");
+            }
+            if (!fill()) {
+                throw new BadRequestException("Unexpected end of multipart body");
+            }
+        }
+    }
+
+    private void require(int bytes) throws IOException {
+        while (tail - head < bytes) {
+            if (!fill()) {
+                throw new BadRequestException("Unexpected end of multipart body");
+            }
+        }
+    }
+
+    /**
+     * Move unread bytes to the front and read more; false at end of input
+     */
+    private boolean fill() throws IOException {
+        if (head > 0) {
+            System.arraycopy(buffer, head, buffer, 0, tail - head);
+            tail -= head;
+            head = 0;
+        }
+        if (tail == buffer.length) {
+            return true;
+        }
+        int read = in.read(buffer, tail, buffer.length - tail);
+        if (read < 0) {
+            return false;
+        }
+        bytesRead += read;
+        if (bytesRead > maxBytes) {
+            throw new BadRequestException("Upload exceeds maximum size of " + maxBytes / (1024 * 1024) + "MB");
+        }
+        tail += read;
+        return true;
+    }
+
+    private int indexOfDelimiter() {
+        byte first = delimiter[0];
+        int last = tail - delimiter.length;
+        outer:
+        for (int i = head; i <= last; i++) {
+            if (buffer[i] != first) {
+                continue;
+            }
+            for (int j = 1; j < delimiter.length; j++) {
+                if (buffer[i + j] != delimiter[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * A parameter of a header value such as form-data; name="images"; filename="a.jpg"
+     */
+    static String parameter(String header, String name) {
+        StringBuilder token = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i <= header.length(); i++) {
+            char c = i < header.length() ? header.charAt(i) : ';';
+            if (quoted && c == '\\' && i + 1 < header.length()) {
+                token.append(header.charAt(++i));
+            } else if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ';' && !quoted) {
+                int equals = token.indexOf("=");
+                if (equals > 0 && token.substring(0, equals).trim().equalsIgnoreCase(name)) {
+                    return token.substring(equals + 1).trim();
+                }
+                token.setLength(0);
+            } else {
+                token.append(c);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A form field (filename null) or file part; body is only readable until next() is called
+     */
+    public record Part(String name, String filename, String contentType, InputStream body) {
+    }
+
+    /**
+     * Body of the current part: everything up to the next delimiter
+     */
+    private final class PartBody extends InputStream {
+
+        private boolean done;
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            int available = buffered();
+            if (available < 0) {
+                return -1;
+            }
+            int n = Math.min(len, available);
+            System.arraycopy(buffer, head, b, off, n);
+            head += n;
+            return n;
+        }
+
+        private void skipRemaining() throws IOException {
+            int available;
+            while ((available = buffered()) >= 0) {
+                head += available;
+            }
+        }
+
+        /**
+         * Bytes of this part readable from the buffer right now (filling it if needed), -1 at its end
+         */
+        private int buffered() throws IOException {
+            while (!done) {
+                int index = indexOfDelimiter();
+                if (index == head) {
+                    done = true;
+                } else if (index > head) {
+                    return index - head;
+                } else {
+                    // The tail could be the start of a delimiter split across reads
+                    int safe = tail - head - (delimiter.length - 1);
+                    if (safe > 0) {
+                        return safe;
+                    }
+                    if (!fill()) {
+                        throw new BadRequestException("Unexpected end of multipart body");
+                    }
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.cropinsurance.upload;
+
+import com.cropinsurance.exception.BadRequestException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Stored File - A file written from an upload stream, with the SHA-256 and size computed on the way
+ */
+public record StoredFile(Path path, String sha256, long size) {
+
+    /**
+     * Copy a stream into a new file in one pass; a partly written file is removed on failure
+     */
+    public static StoredFile write(InputStream in, Path target, long maxBytes) throws IOException {
+        MessageDigest digest = newDigest();
+        long size = 0;
+        byte[] chunk = new byte[16 * 1024];
+        try (OutputStream out = Files.newOutputStream(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                size += read;
+                if (size > maxBytes) {
+                    throw new BadRequestException("Image exceeds maximum size of " + maxBytes / (1024 * 1024) + "MB");
+                }
+                digest.update(chunk, 0, read);
+                out.write(chunk, 0, read);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(target);
+            throw e;
+        }
+        return new StoredFile(target, HexFormat.of().formatHex(digest.digest()), size);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
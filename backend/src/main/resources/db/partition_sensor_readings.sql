@@ -0,0 +1,70 @@
+-- ============================================
+-- 📦 MIGRATION: PARTITION sensor_readings BY MONTH
+-- ============================================
+-- Converts an existing (unpartitioned) sensor_readings table into
+-- monthly range partitions on recorded_at.
+--
+-- Run once, with the backend stopped:
+--   psql -U postgres -d crop_insurance_db -f src/main/resources/db/partition_sensor_readings.sql
+--
+-- The old table is kept as sensor_readings_legacy until you drop it.
+-- After startup, SensorReadingPartitionManager keeps creating future
+-- months and applies the retention policy.
+-- ============================================
+
+BEGIN;
+
+ALTER TABLE sensor_readings RENAME TO sensor_readings_legacy;
+ALTER TABLE sensor_readings_legacy RENAME CONSTRAINT sensor_readings_pkey TO sensor_readings_legacy_pkey;
+ALTER INDEX IF EXISTS idx_sensor_readings_sensor RENAME TO idx_sensor_readings_legacy_sensor;
+ALTER INDEX IF EXISTS idx_sensor_readings_sensor_time RENAME TO idx_sensor_readings_legacy_sensor_time;
+ALTER INDEX IF EXISTS idx_sensor_readings_dedup RENAME TO idx_sensor_readings_legacy_dedup;
+-- Tables created before readings were numbered
+ALTER TABLE sensor_readings_legacy ADD COLUMN IF NOT EXISTS seq BIGINT;
+
+CREATE TABLE sensor_readings (
+    id UUID NOT NULL DEFAULT gen_random_uuid(),
+    sensor_id UUID NOT NULL REFERENCES sensors(id),
+    soil_moisture DECIMAL(5, 2),
+    humidity DECIMAL(5, 2),
+    temperature DECIMAL(5, 2),
+    rainfall DECIMAL(5, 2),
+    recorded_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    seq BIGINT,
+    PRIMARY KEY (id, recorded_at)
+) PARTITION BY RANGE (recorded_at);
+
+CREATE TABLE sensor_readings_default PARTITION OF sensor_readings DEFAULT;
+
+CREATE INDEX idx_sensor_readings_sensor_time ON sensor_readings(sensor_id, recorded_at DESC);
+CREATE UNIQUE INDEX idx_sensor_readings_dedup ON sensor_readings(sensor_id, recorded_at, seq);
+
+-- One partition per month present in the legacy data (same naming as the partition manager)
+DO $$
+DECLARE
+    month_start DATE;
+BEGIN
+    FOR month_start IN
+        SELECT DISTINCT date_trunc('month', COALESCE(recorded_at, CURRENT_TIMESTAMP))::date
+        FROM sensor_readings_legacy
+    LOOP
+        EXECUTE format(
+            'CREATE TABLE IF NOT EXISTS %I PARTITION OF sensor_readings FOR VALUES FROM (%L) TO (%L)',
+            'sensor_readings_' || to_char(month_start, '"y"YYYY"m"MM'),
+            month_start,
+            (month_start + INTERVAL '1 month')::date);
+    END LOOP;
+END $$;
+
+INSERT INTO sensor_readings (id, sensor_id, soil_moisture, humidity, temperature, rainfall, recorded_at, seq)
+SELECT id, sensor_id, soil_moisture, humidity, temperature, rainfall, COALESCE(recorded_at, CURRENT_TIMESTAMP), seq
+FROM sensor_readings_legacy;
+
+COMMIT;
+
+ANALYZE sensor_readings;
+
+-- Once the migrated data has been verified:
+-- DROP TABLE sensor_readings_legacy;
+
+SELECT 'sensor_readings partitioned successfully!' as status;
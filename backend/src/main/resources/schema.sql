@@ -113,19 +113,95 @@ CREATE TABLE IF NOT EXISTS sensors (
     id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
     unique_code VARCHAR(20) UNIQUE NOT NULL,
     is_active BOOLEAN DEFAULT TRUE,
+    ingest_key VARCHAR(64),
+    sensor_class VARCHAR(30),
     last_reading_at TIMESTAMP,
-    installed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    installed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
--- Sensor Readings
+-- Sensor code caches on every node reload sensors changed since their last refresh
+ALTER TABLE sensors ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP;
+
+-- Sensor Readings (monthly range partitions on recorded_at)
+-- Monthly partitions and retention are managed by SensorReadingPartitionManager.
+-- Existing unpartitioned tables: run db/partition_sensor_readings.sql once.
 CREATE TABLE IF NOT EXISTS sensor_readings (
-    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    id UUID NOT NULL DEFAULT gen_random_uuid(),
     sensor_id UUID NOT NULL REFERENCES sensors(id),
     soil_moisture DECIMAL(5, 2),
     humidity DECIMAL(5, 2),
     temperature DECIMAL(5, 2),
     rainfall DECIMAL(5, 2),
-    recorded_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    recorded_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    seq BIGINT,
+    PRIMARY KEY (id, recorded_at)
+) PARTITION BY RANGE (recorded_at);
+
+-- Device sequence numbers (idempotent ingestion) on tables created before the column existed
+ALTER TABLE sensor_readings ADD COLUMN IF NOT EXISTS seq BIGINT;
+
+-- Catch-all partition for rows outside the managed months
+DO 'BEGIN
+    IF EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = ''sensor_readings''::regclass) THEN
+        CREATE TABLE IF NOT EXISTS sensor_readings_default PARTITION OF sensor_readings DEFAULT;
+    END IF;
+END';
+
+-- Hourly and daily rollups of sensor readings (maintained incrementally)
+CREATE TABLE IF NOT EXISTS sensor_reading_rollups (
+    sensor_id UUID NOT NULL REFERENCES sensors(id),
+    bucket VARCHAR(10) NOT NULL,  -- HOUR or DAY
+    bucket_start TIMESTAMP NOT NULL,
+    reading_count INTEGER NOT NULL,
+    soil_moisture_min DECIMAL(5, 2),
+    soil_moisture_max DECIMAL(5, 2),
+    soil_moisture_sum DECIMAL(14, 2),
+    humidity_min DECIMAL(5, 2),
+    humidity_max DECIMAL(5, 2),
+    humidity_sum DECIMAL(14, 2),
+    temperature_min DECIMAL(5, 2),
+    temperature_max DECIMAL(5, 2),
+    temperature_sum DECIMAL(14, 2),
+    rainfall_count INTEGER NOT NULL DEFAULT 0,
+    rainfall_min DECIMAL(5, 2),
+    rainfall_max DECIMAL(5, 2),
+    rainfall_sum DECIMAL(14, 2),
+    PRIMARY KEY (sensor_id, bucket, bucket_start)
+);
+
+-- Compressed cold storage: one block per sensor and day (see SensorBlockCodec)
+CREATE TABLE IF NOT EXISTS sensor_reading_blocks (
+    sensor_id UUID NOT NULL REFERENCES sensors(id),
+    block_start TIMESTAMP NOT NULL,
+    block_end TIMESTAMP NOT NULL,
+    reading_count INTEGER NOT NULL,
+    data BYTEA NOT NULL,
+    PRIMARY KEY (sensor_id, block_start)
+);
+
+-- Blocks past the reading retention (sensor.partitions.retention-months) when retention-action is DETACH
+CREATE TABLE IF NOT EXISTS sensor_reading_blocks_archive (
+    sensor_id UUID NOT NULL,
+    block_start TIMESTAMP NOT NULL,
+    block_end TIMESTAMP NOT NULL,
+    reading_count INTEGER NOT NULL,
+    data BYTEA NOT NULL,
+    archived_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (sensor_id, block_start)
+);
+
+-- Anomalies flagged by the streaming detector
+CREATE TABLE IF NOT EXISTS sensor_alerts (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    sensor_id UUID NOT NULL REFERENCES sensors(id),
+    type VARCHAR(30) NOT NULL,
+    metric VARCHAR(20),
+    value DECIMAL(7, 2),
+    expected DECIMAL(7, 2),
+    message TEXT NOT NULL,
+    detected_at TIMESTAMP NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
 -- ============================================
@@ -197,11 +273,31 @@ CREATE TABLE IF NOT EXISTS claim_images (
     id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
     claim_id UUID NOT NULL REFERENCES claims(id),
     image_path VARCHAR(255) NOT NULL,
+    sha256 VARCHAR(64),
+    size_bytes BIGINT,
+    reused BOOLEAN DEFAULT FALSE,
     latitude DECIMAL(10, 8) NOT NULL,
     longitude DECIMAL(11, 8) NOT NULL,
     captured_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
+-- Digest and size recorded while the image is written (tables created before the columns existed)
+ALTER TABLE claim_images ADD COLUMN IF NOT EXISTS sha256 VARCHAR(64);
+ALTER TABLE claim_images ADD COLUMN IF NOT EXISTS size_bytes BIGINT;
+ALTER TABLE claim_images ADD COLUMN IF NOT EXISTS reused BOOLEAN DEFAULT FALSE;
+
+-- Find every claim that filed the same photo
+CREATE INDEX IF NOT EXISTS idx_claim_images_sha256 ON claim_images(sha256);
+
+-- Claim Image Blobs (content-addressed store, uploads/claims/blobs/ab/cd/<sha256>; ref_count = claim_images rows)
+CREATE TABLE IF NOT EXISTS claim_image_blobs (
+    sha256 VARCHAR(64) PRIMARY KEY,
+    size_bytes BIGINT NOT NULL,
+    ref_count INTEGER NOT NULL DEFAULT 0,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    last_referenced_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
 -- AI Assessments
 CREATE TABLE IF NOT EXISTS ai_assessments (
     id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
@@ -212,6 +308,29 @@ CREATE TABLE IF NOT EXISTS ai_assessments (
     assessed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
+-- Claim Assessment Jobs (durable work queue; workers lease rows with FOR UPDATE SKIP LOCKED)
+CREATE TABLE IF NOT EXISTS claim_assessment_jobs (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    claim_id UUID UNIQUE NOT NULL REFERENCES claims(id),
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INT NOT NULL DEFAULT 0,
+    retry_base INT NOT NULL DEFAULT 0,
+    run_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    locked_by VARCHAR(100),
+    lease_until TIMESTAMP,
+    last_error TEXT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- attempts is the lease fencing token and never goes back; an admin retry raises retry_base instead
+ALTER TABLE claim_assessment_jobs ADD COLUMN IF NOT EXISTS retry_base INT NOT NULL DEFAULT 0;
+
+-- Claims filed before the job table existed (or left PROCESSING by a crash) get a job
+INSERT INTO claim_assessment_jobs (claim_id)
+SELECT id FROM claims WHERE status = 'PROCESSING'
+ON CONFLICT (claim_id) DO NOTHING;
+
 -- ============================================
 -- NOTIFICATIONS
 -- ============================================
@@ -236,8 +355,15 @@ CREATE INDEX IF NOT EXISTS idx_insurance_farmer ON insurance_policies(farmer_id)
 CREATE INDEX IF NOT EXISTS idx_insurance_status ON insurance_policies(status);
 CREATE INDEX IF NOT EXISTS idx_claims_farmer ON claims(farmer_id);
 CREATE INDEX IF NOT EXISTS idx_claims_status ON claims(status);
+CREATE INDEX IF NOT EXISTS idx_sensors_updated_at ON sensors(updated_at);
+CREATE INDEX IF NOT EXISTS idx_claim_jobs_due ON claim_assessment_jobs(run_at) WHERE status = 'PENDING';
+CREATE INDEX IF NOT EXISTS idx_claim_jobs_lease ON claim_assessment_jobs(lease_until) WHERE status = 'RUNNING';
 CREATE INDEX IF NOT EXISTS idx_notifications_farmer ON notifications(farmer_id);
-CREATE INDEX IF NOT EXISTS idx_sensor_readings_sensor ON sensor_readings(sensor_id);
+CREATE INDEX IF NOT EXISTS idx_sensor_readings_sensor_time ON sensor_readings(sensor_id, recorded_at DESC);
+-- Backstop for retried readings: numbered readings are inserted with ON CONFLICT DO NOTHING
+CREATE UNIQUE INDEX IF NOT EXISTS idx_sensor_readings_dedup ON sensor_readings(sensor_id, recorded_at, seq);
+CREATE INDEX IF NOT EXISTS idx_sensor_reading_blocks_start ON sensor_reading_blocks(block_start);
+CREATE INDEX IF NOT EXISTS idx_sensor_alerts_sensor_time ON sensor_alerts(sensor_id, detected_at DESC);
 CREATE INDEX IF NOT EXISTS idx_khasra_village ON khasra_registry(village_id);
 
 -- Success message
@@ -0,0 +1,113 @@
+package com.cropinsurance.ingest;
+
+import com.cropinsurance.entity.Sensor;
+import com.cropinsurance.entity.SensorReading;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SensorBlockCodecTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 7, 1, 0, 0);
+
+    private final Sensor sensor = Sensor.builder().id(UUID.randomUUID()).build();
+
+    @Test
+    void keepsValuesTimesAndSequences() {
+        List<SensorReading> readings = List.of(
+                reading(DAY.plusMinutes(1), "42.50", null, "-5.75", "0.00", 100L),
+                reading(DAY.plusMinutes(2), "42.25", "61.00", "-5.50", null, 101L),
+                reading(DAY.plusMinutes(3).plusNanos(123_000), "0.01", "61.00", "40.00", "12.40", 7L),
+                reading(DAY.plusMinutes(4), "999.99", "-999.99", "0.00", "0.00", null));
+
+        List<SensorReading> decoded = SensorBlockCodec.decode(SensorBlockCodec.encode(readings), sensor);
+
+        assertThat(decoded).hasSize(readings.size());
+        for (int i = 0; i < readings.size(); i++) {
+            SensorReading expected = readings.get(i);
+            SensorReading actual = decoded.get(i);
+            assertThat(actual.getRecordedAt()).isEqualTo(expected.getRecordedAt());
+            assertThat(actual.getSoilMoisture()).isEqualTo(expected.getSoilMoisture());
+            assertThat(actual.getHumidity()).isEqualTo(expected.getHumidity());
+            assertThat(actual.getTemperature()).isEqualTo(expected.getTemperature());
+            assertThat(actual.getRainfall()).isEqualTo(expected.getRainfall());
+            assertThat(actual.getSequence()).isEqualTo(expected.getSequence());
+        }
+    }
+
+    @Test
+    void givesNumberedReadingsTheirIngestId() {
+        LocalDateTime time = DAY.plusHours(6);
+        List<SensorReading> decoded = SensorBlockCodec.decode(SensorBlockCodec.encode(List.of(
+                reading(time, "1.00", "1.00", "1.00", null, 41L),
+                reading(time, "2.00", "2.00", "2.00", null, 42L))), sensor);
+
+        assertThat(decoded).extracting(SensorReading::getId).containsExactly(
+                SensorSample.idFor(sensor.getId(), time, 41L),
+                SensorSample.idFor(sensor.getId(), time, 42L));
+    }
+
+    @Test
+    void keepsReadingsSharingATimestampApart() {
+        LocalDateTime now = DAY.plusHours(9);
+        List<SensorReading> readings = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            readings.add(reading(now, i + ".00", "50.00", "20.00", null, null));
+        }
+        readings.add(reading(now, "9.00", "50.00", "20.00", null, 3L));
+
+        List<SensorReading> decoded = SensorBlockCodec.decode(SensorBlockCodec.encode(readings), sensor);
+
+        Set<UUID> ids = new HashSet<>();
+        decoded.forEach(reading -> ids.add(reading.getId()));
+        assertThat(ids).hasSize(readings.size());
+        assertThat(decoded).extracting(SensorReading::getSoilMoisture)
+                .containsExactly(new BigDecimal("0.00"), new BigDecimal("1.00"), new BigDecimal("2.00"),
+                        new BigDecimal("3.00"), new BigDecimal("4.00"), new BigDecimal("9.00"));
+    }
+
+    @Test
+    void keepsIdsStableWhenABlockIsRecompacted() {
+        LocalDateTime now = DAY.plusHours(9);
+        List<SensorReading> first = SensorBlockCodec.decode(SensorBlockCodec.encode(List.of(
+                reading(now, "1.00", "50.00", "20.00", null, null),
+                reading(now, "2.00", "50.00", "20.00", null, null))), sensor);
+
+        // The compactor appends newly compacted readings after the decoded block
+        List<SensorReading> merged = new ArrayList<>(first);
+        merged.add(reading(now, "3.00", "50.00", "20.00", null, null));
+        merged.add(reading(now.minusMinutes(5), "4.00", "50.00", "20.00", null, null));
+        List<SensorReading> second = SensorBlockCodec.decode(SensorBlockCodec.encode(merged), sensor);
+
+        assertThat(second).hasSize(4);
+        assertThat(second.subList(1, 3)).extracting(SensorReading::getId)
+                .containsExactly(first.get(0).getId(), first.get(1).getId());
+        assertThat(second.get(3).getId()).isNotIn(first.get(0).getId(), first.get(1).getId());
+    }
+
+    private SensorReading reading(LocalDateTime recordedAt, String soilMoisture, String humidity, String temperature,
+            String rainfall, Long sequence) {
+        return SensorReading.builder()
+                .id(UUID.randomUUID())
+                .sensor(sensor)
+                .soilMoisture(decimal(soilMoisture))
+                .humidity(decimal(humidity))
+                .temperature(decimal(temperature))
+                .rainfall(decimal(rainfall))
+                .recordedAt(recordedAt)
+                .sequence(sequence)
+                .build();
+    }
+
+    private static BigDecimal decimal(String value) {
+        return value != null ? new BigDecimal(value) : null;
+    }
+}
@@ -0,0 +1,84 @@
+package com.cropinsurance.ingest;
+
+import com.cropinsurance.dto.request.SensorReadingRequest;
+import com.cropinsurance.ingest.SensorFrameDecoder.SensorFrame;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding a binary frame against parsing the same readings as the JSON batch body.
+ * Run with -prof gc to see the allocation per call next to the time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SensorFrameDecoderBenchmark {
+
+    private static final TypeReference<List<SensorReadingRequest>> BATCH = new TypeReference<>() {
+    };
+
+    @Param({"1", "100"})
+    private int readings;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private byte[] frame;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        SplittableRandom random = new SplittableRandom(42);
+        long[] recordedAt = new long[readings];
+        short[] values = new short[readings * SensorFrame.METRICS];
+        List<SensorReadingRequest> requests = new ArrayList<>(readings);
+        for (int i = 0; i < readings; i++) {
+            recordedAt[i] = 1_700_000_000L + i * 60L;
+            for (int metric = 0; metric < SensorFrame.METRICS; metric++) {
+                values[i * SensorFrame.METRICS + metric] = (short) random.nextInt(0, 10_000);
+            }
+            requests.add(SensorReadingRequest.builder()
+                    .sensorCode("SN-0001")
+                    .soilMoisture(BigDecimal.valueOf(values[i * SensorFrame.METRICS], 2))
+                    .humidity(BigDecimal.valueOf(values[i * SensorFrame.METRICS + 1], 2))
+                    .temperature(BigDecimal.valueOf(values[i * SensorFrame.METRICS + 2], 2))
+                    .rainfall(BigDecimal.valueOf(values[i * SensorFrame.METRICS + 3], 2))
+                    .recordedAt(Instant.ofEpochSecond(recordedAt[i]))
+                    .sequence(1000L + i)
+                    .build());
+        }
+        frame = SensorFrameDecoderTest.encode(SensorFrameDecoder.VERSION_SEQUENCED, "SN-0001", 1000, recordedAt, values);
+        json = objectMapper.writeValueAsBytes(requests);
+    }
+
+    @Benchmark
+    public SensorFrame decodeFrame() {
+        return SensorFrameDecoder.decode(frame);
+    }
+
+    @Benchmark
+    public List<SensorReadingRequest> parseJson() throws IOException {
+        return objectMapper.readValue(json, BATCH);
+    }
+}
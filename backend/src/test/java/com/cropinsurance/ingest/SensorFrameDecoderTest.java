@@ -0,0 +1,185 @@
+package com.cropinsurance.ingest;
+
+import com.cropinsurance.exception.BadRequestException;
+import com.cropinsurance.ingest.SensorFrameDecoder.SensorFrame;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SensorFrameDecoderTest {
+
+    private static final short MISSING = SensorFrameDecoder.MISSING_VALUE;
+
+    @Test
+    void decodesWhatWasEncoded() {
+        long[] recordedAt = {1_700_000_000L, 1_700_000_060L, 0xFFFF_FFFFL};
+        short[] values = {
+                4250, 6100, 2735, 0,
+                -1, Short.MAX_VALUE, -32767, 12,
+                0, 1, -2735, 32000
+        };
+
+        SensorFrame frame = SensorFrameDecoder.decode(encode(SensorFrameDecoder.VERSION, "SN-0001", 0, recordedAt, values));
+
+        assertThat(frame.sensorCode()).isEqualTo("SN-0001");
+        assertThat(frame.count()).isEqualTo(3);
+        assertThat(frame.firstSequence()).isEqualTo(SensorSample.NO_SEQUENCE);
+        assertThat(frame.sequence(2)).isEqualTo(SensorSample.NO_SEQUENCE);
+        assertThat(frame.recordedAtEpochSeconds()).containsExactly(recordedAt);
+        assertThat(frame.values()).containsExactly(values);
+        assertThat(frame.value(1, 2)).isEqualTo((short) -32767);
+    }
+
+    @Test
+    void numbersReadingsOfSequencedFrames() {
+        long first = 0xFFFF_FFF0L; // u32 on the wire, must not turn negative
+        SensorFrame frame = SensorFrameDecoder.decode(encode(SensorFrameDecoder.VERSION_SEQUENCED, "SN-0001", first,
+                new long[]{1_700_000_000L, 1_700_000_060L}, new short[8]));
+
+        assertThat(frame.firstSequence()).isEqualTo(first);
+        assertThat(frame.sequence(0)).isEqualTo(first);
+        assertThat(frame.sequence(1)).isEqualTo(first + 1);
+    }
+
+    @Test
+    void keepsMissingValuesApart() {
+        SensorFrame frame = SensorFrameDecoder.decode(encode(SensorFrameDecoder.VERSION, "SN-0001", 0,
+                new long[]{1_700_000_000L}, new short[]{MISSING, -32767, 0, MISSING}));
+
+        assertThat(SensorFrameDecoder.toCenti(frame.value(0, 0))).isEqualTo(SensorSample.MISSING);
+        assertThat(SensorFrameDecoder.toCenti(frame.value(0, 1))).isEqualTo(-32767);
+        assertThat(SensorFrameDecoder.toCenti(frame.value(0, 2))).isZero();
+        assertThat(SensorFrameDecoder.toCenti(frame.value(0, 3))).isEqualTo(SensorSample.MISSING);
+    }
+
+    @Test
+    void acceptsServerTimeOnlyInUnnumberedFrames() {
+        SensorFrame frame = SensorFrameDecoder.decode(encode(SensorFrameDecoder.VERSION, "SN-0001", 0,
+                new long[]{0}, new short[4]));
+        assertThat(frame.recordedAtEpochSeconds()).containsExactly(0L);
+
+        assertInvalid(encode(SensorFrameDecoder.VERSION_SEQUENCED, "SN-0001", 7, new long[]{0}, new short[4]),
+                "numbered reading 0 has no timestamp");
+    }
+
+    @Test
+    void rejectsEveryTruncation() {
+        for (int version : new int[]{SensorFrameDecoder.VERSION, SensorFrameDecoder.VERSION_SEQUENCED}) {
+            byte[] frame = encode(version, "SN-0001", 1, new long[]{1_700_000_000L, 1_700_000_060L}, new short[8]);
+            for (int length = 0; length < frame.length; length++) {
+                byte[] truncated = Arrays.copyOf(frame, length);
+                assertThatThrownBy(() -> SensorFrameDecoder.decode(truncated))
+                        .as("version %d cut to %d of %d bytes", version, length, frame.length)
+                        .isInstanceOf(BadRequestException.class);
+            }
+        }
+    }
+
+    @Test
+    void rejectsTrailingBytes() {
+        byte[] frame = encode(SensorFrameDecoder.VERSION, "SN-0001", 0, new long[]{1_700_000_000L}, new short[4]);
+        assertInvalid(Arrays.copyOf(frame, frame.length + 1), "expected 12 reading bytes but got 13");
+    }
+
+    @Test
+    void rejectsMissingOrForeignHeaders() {
+        byte[] frame = encode(SensorFrameDecoder.VERSION, "SN-0001", 0, new long[]{1_700_000_000L}, new short[4]);
+
+        assertThatThrownBy(() -> SensorFrameDecoder.decode((byte[]) null))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("empty body");
+
+        byte[] badMagic = frame.clone();
+        badMagic[0] = '{';
+        assertInvalid(badMagic, "bad magic");
+
+        byte[] badVersion = frame.clone();
+        badVersion[2] = 3;
+        assertInvalid(badVersion, "unsupported version 3");
+    }
+
+    @Test
+    void boundsSensorCodeLength() {
+        String longest = "S".repeat(64);
+        SensorFrame frame = SensorFrameDecoder.decode(encode(SensorFrameDecoder.VERSION, longest, 0,
+                new long[]{1_700_000_000L}, new short[4]));
+        assertThat(frame.sensorCode()).isEqualTo(longest);
+
+        assertInvalid(encode(SensorFrameDecoder.VERSION, "", 0, new long[]{1_700_000_000L}, new short[4]),
+                "bad sensor code length");
+        assertInvalid(encode(SensorFrameDecoder.VERSION, longest + "S", 0, new long[]{1_700_000_000L}, new short[4]),
+                "bad sensor code length");
+    }
+
+    @Test
+    void boundsReadingCount() {
+        assertInvalid(encode(SensorFrameDecoder.VERSION, "SN-0001", 0, new long[0], new short[0]), "no readings");
+
+        int max = 0xFFFF;
+        long[] recordedAt = new long[max];
+        Arrays.fill(recordedAt, 1_700_000_000L);
+        short[] values = new short[max * SensorFrame.METRICS];
+        values[values.length - 1] = 4242;
+        SensorFrame frame = SensorFrameDecoder.decode(encode(SensorFrameDecoder.VERSION, "SN-0001", 0, recordedAt, values));
+
+        assertThat(frame.count()).isEqualTo(max);
+        assertThat(frame.value(max - 1, 3)).isEqualTo((short) 4242);
+    }
+
+    @Test
+    void decodesOnlyTheBufferWindow() {
+        byte[] frame = encode(SensorFrameDecoder.VERSION, "SN-0001", 0, new long[]{1_700_000_000L}, new short[4]);
+        ByteBuffer buffer = ByteBuffer.allocate(frame.length + 6);
+        buffer.position(3);
+        buffer.put(frame);
+        buffer.put(new byte[]{1, 2, 3});
+        buffer.position(3).limit(3 + frame.length);
+
+        SensorFrame decoded = SensorFrameDecoder.decode(buffer);
+
+        assertThat(decoded.sensorCode()).isEqualTo("SN-0001");
+        assertThat(buffer.position()).isEqualTo(3);
+    }
+
+    private static void assertInvalid(byte[] frame, String reason) {
+        assertThatThrownBy(() -> SensorFrameDecoder.decode(frame))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessage("Invalid sensor frame: " + reason);
+    }
+
+    /**
+     * Frame as a device writes it; the reading count is taken from recordedAt
+     */
+    static byte[] encode(int version, String code, long firstSequence, long[] recordedAt, short[] values) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            byte[] codeBytes = code.getBytes(StandardCharsets.US_ASCII);
+            out.writeShort(SensorFrameDecoder.MAGIC);
+            out.writeByte(version);
+            out.writeByte(codeBytes.length);
+            out.write(codeBytes);
+            out.writeShort(recordedAt.length);
+            if (version == SensorFrameDecoder.VERSION_SEQUENCED) {
+                out.writeInt((int) firstSequence);
+            }
+            for (int i = 0; i < recordedAt.length; i++) {
+                out.writeInt((int) recordedAt[i]);
+                for (int metric = 0; metric < SensorFrame.METRICS; metric++) {
+                    out.writeShort(values[i * SensorFrame.METRICS + metric]);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,73 @@
+package com.cropinsurance.ingest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SensorRateLimiterTest {
+
+    private final SensorRateLimiter limiter = new SensorRateLimiter();
+    private final SensorRef sensor = new SensorRef(UUID.randomUUID(), "SN-0001", true, null, null);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(limiter, "enabled", true);
+        ReflectionTestUtils.setField(limiter, "sensorClasses", "default=0.2/30,weather-station=2/300");
+        ReflectionTestUtils.setField(limiter, "gatewayRate", 500.0);
+        ReflectionTestUtils.setField(limiter, "gatewayBurst", 5000);
+        ReflectionTestUtils.setField(limiter, "lateBacklogHours", 24.0);
+        limiter.init();
+    }
+
+    @Test
+    void refusesReadingsBeyondTheBurst() {
+        assertThat(limiter.tryAcquireSensor(sensor, 30)).isTrue();
+        assertThat(limiter.tryAcquireSensor(sensor, 1)).isFalse();
+    }
+
+    @Test
+    void chargesAFrameLargerThanTheBurstInFull() {
+        assertThat(limiter.tryAcquireSensor(sensor, 1000)).isTrue();
+
+        // 1000 readings at 0.2/s is over 80 minutes of allowance: nothing more gets through
+        assertThat(limiter.tryAcquireSensor(sensor, 1)).isFalse();
+        assertThat(limiter.tryAcquireSensor(sensor, 1000)).isFalse();
+    }
+
+    @Test
+    void admitsOversizedChargesOnlyIntoAFullBucket() {
+        assertThat(limiter.tryAcquireSensor(sensor, 1)).isTrue();
+        assertThat(limiter.tryAcquireSensor(sensor, 31)).isFalse();
+    }
+
+    @Test
+    void givesReleasedTokensBack() {
+        assertThat(limiter.tryAcquireSensor(sensor, 30)).isTrue();
+        limiter.releaseSensor(sensor, 10);
+
+        assertThat(limiter.tryAcquireSensor(sensor, 10)).isTrue();
+        assertThat(limiter.tryAcquireSensor(sensor, 1)).isFalse();
+    }
+
+    @Test
+    void sizesTheLateAllowanceFromTheClassRate() {
+        SensorRef station = new SensorRef(UUID.randomUUID(), "WS-0001", true, null, "weather-station");
+
+        // A day at 0.2/s and at 2/s
+        assertThat(limiter.tryAcquireLate(sensor, 17_280)).isTrue();
+        assertThat(limiter.tryAcquireLate(sensor, 1)).isFalse();
+        assertThat(limiter.tryAcquireLate(station, 172_800)).isTrue();
+        assertThat(limiter.tryAcquireLate(station, 1)).isFalse();
+    }
+
+    @Test
+    void keepsBucketsPerSensor() {
+        SensorRef other = new SensorRef(UUID.randomUUID(), "SN-0002", true, null, null);
+        assertThat(limiter.tryAcquireSensor(sensor, 1000)).isTrue();
+        assertThat(limiter.tryAcquireSensor(other, 30)).isTrue();
+    }
+}
@@ -0,0 +1,157 @@
+package com.cropinsurance.ingest;
+
+import com.cropinsurance.dto.request.SensorReadingRequest;
+import com.cropinsurance.entity.SensorReading;
+import com.cropinsurance.ingest.SensorFrameDecoder.SensorFrame;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocation per reading on the ingest path with BigDecimal values (as before SensorSample)
+ * against fixed-point samples. Run with -prof gc; gc.alloc.rate.norm is bytes per reading.
+ *
+ * Each reading is taken from a binary frame or a JSON request into the internal representation
+ * and then read the way the ingest consumers read it: the rollup partial and the recent-readings
+ * ring each as centi-units, the anomaly detector as doubles. The reading or sample itself escapes,
+ * as it does when queued for the writer. Ids are fixed so that only the value representation
+ * differs; the JDBC bind is not part of it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SensorSampleBenchmark {
+
+    private static final int READINGS = 100;
+
+    private final SensorRef sensor = new SensorRef(UUID.randomUUID(), "SN-0001", true, null, null);
+    private final UUID id = UUID.randomUUID();
+    private final LocalDateTime recordedAt = LocalDateTime.of(2024, 7, 1, 6, 30);
+
+    private SensorFrame frame;
+    private SensorReadingRequest[] requests;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        short[] values = new short[READINGS * SensorFrame.METRICS];
+        requests = new SensorReadingRequest[READINGS];
+        for (int i = 0; i < READINGS; i++) {
+            for (int metric = 0; metric < SensorFrame.METRICS; metric++) {
+                values[i * SensorFrame.METRICS + metric] = (short) random.nextInt(-4_000, 10_000);
+            }
+            // Requests arrive with BigDecimals either way: Jackson creates them at the API boundary
+            requests[i] = SensorReadingRequest.builder()
+                    .sensorCode(sensor.uniqueCode())
+                    .soilMoisture(BigDecimal.valueOf(values[i * SensorFrame.METRICS], 2))
+                    .humidity(BigDecimal.valueOf(values[i * SensorFrame.METRICS + 1], 2))
+                    .temperature(BigDecimal.valueOf(values[i * SensorFrame.METRICS + 2], 2))
+                    .rainfall(BigDecimal.valueOf(values[i * SensorFrame.METRICS + 3], 2))
+                    .build();
+        }
+        frame = new SensorFrame(sensor.uniqueCode(), READINGS, SensorSample.NO_SEQUENCE, new long[READINGS], values);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(READINGS)
+    public void frameAsBigDecimal(Blackhole blackhole) {
+        for (int i = 0; i < READINGS; i++) {
+            SensorReading reading = SensorReading.builder()
+                    .id(id)
+                    .sensor(sensor.toSensor())
+                    .soilMoisture(SensorSample.toDecimal(SensorFrameDecoder.toCenti(frame.value(i, 0))))
+                    .humidity(SensorSample.toDecimal(SensorFrameDecoder.toCenti(frame.value(i, 1))))
+                    .temperature(SensorSample.toDecimal(SensorFrameDecoder.toCenti(frame.value(i, 2))))
+                    .rainfall(SensorSample.toDecimal(SensorFrameDecoder.toCenti(frame.value(i, 3))))
+                    .recordedAt(recordedAt)
+                    .build();
+            consume(reading, blackhole);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(READINGS)
+    public void frameAsSample(Blackhole blackhole) {
+        for (int i = 0; i < READINGS; i++) {
+            SensorSample sample = new SensorSample(id, sensor.id(), recordedAt,
+                    SensorFrameDecoder.toCenti(frame.value(i, 0)),
+                    SensorFrameDecoder.toCenti(frame.value(i, 1)),
+                    SensorFrameDecoder.toCenti(frame.value(i, 2)),
+                    SensorFrameDecoder.toCenti(frame.value(i, 3)));
+            consume(sample, blackhole);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(READINGS)
+    public void requestAsBigDecimal(Blackhole blackhole) {
+        for (SensorReadingRequest request : requests) {
+            SensorReading reading = SensorReading.builder()
+                    .id(id)
+                    .sensor(sensor.toSensor())
+                    .soilMoisture(request.getSoilMoisture())
+                    .humidity(request.getHumidity())
+                    .temperature(request.getTemperature())
+                    .rainfall(request.getRainfall())
+                    .recordedAt(recordedAt)
+                    .build();
+            consume(reading, blackhole);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(READINGS)
+    public void requestAsSample(Blackhole blackhole) {
+        for (SensorReadingRequest request : requests) {
+            SensorSample sample = new SensorSample(id, sensor.id(), recordedAt,
+                    SensorSample.toCenti(request.getSoilMoisture()),
+                    SensorSample.toCenti(request.getHumidity()),
+                    SensorSample.toCenti(request.getTemperature()),
+                    SensorSample.toCenti(request.getRainfall()));
+            consume(sample, blackhole);
+        }
+    }
+
+    private static void consume(SensorReading reading, Blackhole blackhole) {
+        blackhole.consume(reading);
+        for (int view = 0; view < 2; view++) {
+            blackhole.consume(SensorSample.toCenti(reading.getSoilMoisture()));
+            blackhole.consume(SensorSample.toCenti(reading.getHumidity()));
+            blackhole.consume(SensorSample.toCenti(reading.getTemperature()));
+            blackhole.consume(SensorSample.toCenti(reading.getRainfall()));
+        }
+        blackhole.consume(reading.getSoilMoisture().doubleValue());
+        blackhole.consume(reading.getHumidity().doubleValue());
+        blackhole.consume(reading.getTemperature().doubleValue());
+    }
+
+    private static void consume(SensorSample sample, Blackhole blackhole) {
+        blackhole.consume(sample);
+        for (int view = 0; view < 2; view++) {
+            for (int metric = 0; metric < SensorFrame.METRICS; metric++) {
+                blackhole.consume(sample.value(metric));
+            }
+        }
+        for (int metric = 0; metric < 3; metric++) {
+            blackhole.consume(sample.value(metric) / 100.0);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.cropinsurance.ingest;
+
+import com.cropinsurance.entity.Sensor;
+import com.cropinsurance.entity.SensorReading;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SensorSampleTest {
+
+    @ParameterizedTest
+    @CsvSource({
+            "0, 0",
+            "0.004, 0",
+            "0.005, 1",
+            "12.345, 1235",
+            "12.344, 1234",
+            "27.3, 2730",
+            "-0.004, 0",
+            "-0.005, -1",
+            "-12.345, -1235",
+            "-40.125, -4013",
+            "999.99, 99999",
+            "999.994, 99999",
+            "-999.99, -99999",
+            "-999.994, -99999"
+    })
+    void roundsHalfUpToHundredths(String value, int centi) {
+        assertThat(SensorSample.toCenti(new BigDecimal(value))).isEqualTo(centi);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"999.995", "-999.995", "1000", "-1000", "123456789012", "1E+10"})
+    void rejectsValuesOutsideDecimalFiveTwo(String value) {
+        assertThatThrownBy(() -> SensorSample.toCenti(new BigDecimal(value)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("out of range");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"0", "0.01", "-0.01", "23.5", "-17.25", "-273.15", "100", "999.99", "-999.99",
+            "12.345", "-40.125", "999.994"})
+    void storesWhatTheColumnWouldStore(String value) {
+        BigDecimal decimal = new BigDecimal(value);
+        BigDecimal column = decimal.setScale(2, RoundingMode.HALF_UP);
+
+        BigDecimal stored = SensorSample.toDecimal(SensorSample.toCenti(decimal));
+
+        assertThat(stored).isEqualTo(column);
+        assertThat(SensorSample.toCenti(stored)).isEqualTo(SensorSample.toCenti(decimal));
+    }
+
+    @Test
+    void mapsNullToMissing() {
+        assertThat(SensorSample.toCenti(null)).isEqualTo(SensorSample.MISSING);
+        assertThat(SensorSample.toDecimal(SensorSample.MISSING)).isNull();
+    }
+
+    @Test
+    void convertsReadingsBothWays() {
+        Sensor sensor = Sensor.builder().id(UUID.randomUUID()).build();
+        SensorReading reading = SensorReading.builder()
+                .id(UUID.randomUUID())
+                .sensor(sensor)
+                .soilMoisture(new BigDecimal("42.50"))
+                .humidity(null)
+                .temperature(new BigDecimal("-5.75"))
+                .rainfall(new BigDecimal("0.00"))
+                .recordedAt(LocalDateTime.of(2024, 1, 15, 6, 30))
+                .sequence(17L)
+                .build();
+
+        SensorSample sample = SensorSample.of(reading);
+        SensorReading back = sample.toReading(sensor);
+
+        assertThat(sample.soilMoisture()).isEqualTo(4250);
+        assertThat(sample.humidity()).isEqualTo(SensorSample.MISSING);
+        assertThat(sample.temperature()).isEqualTo(-575);
+        assertThat(sample.sequence()).isEqualTo(17L);
+        assertThat(back.getSoilMoisture()).isEqualTo(reading.getSoilMoisture());
+        assertThat(back.getHumidity()).isNull();
+        assertThat(back.getTemperature()).isEqualTo(reading.getTemperature());
+        assertThat(back.getRainfall()).isEqualTo(reading.getRainfall());
+        assertThat(back.getRecordedAt()).isEqualTo(reading.getRecordedAt());
+        assertThat(back.getSequence()).isEqualTo(17L);
+    }
+}
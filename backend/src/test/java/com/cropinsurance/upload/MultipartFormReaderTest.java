@@ -0,0 +1,318 @@
+package com.cropinsurance.upload;
+
+import com.cropinsurance.exception.BadRequestException;
+import com.cropinsurance.upload.MultipartFormReader.Part;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MultipartFormReaderTest {
+
+    private static final String BOUNDARY = "----FormBoundary7MA4YWxkTrZu0gW";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Test
+    void readsFieldsAndFiles() throws IOException {
+        byte[] photo = bytes(5000);
+        byte[] body = form(
+                field("claimId", "42"),
+                file("images", "field.jpg", "image/jpeg", photo),
+                field("note", "Hail on 12 July"));
+
+        List<ReadPart> parts = readAll(new ByteArrayInputStream(body), 8192);
+
+        assertThat(parts).hasSize(3);
+        assertThat(parts.get(0).name()).isEqualTo("claimId");
+        assertThat(parts.get(0).filename()).isNull();
+        assertThat(parts.get(0).contentType()).isNull();
+        assertThat(parts.get(0).body()).asString(StandardCharsets.UTF_8).isEqualTo("42");
+        assertThat(parts.get(1).name()).isEqualTo("images");
+        assertThat(parts.get(1).filename()).isEqualTo("field.jpg");
+        assertThat(parts.get(1).contentType()).isEqualTo("image/jpeg");
+        assertThat(parts.get(1).body()).isEqualTo(photo);
+        assertThat(parts.get(2).body()).asString(StandardCharsets.UTF_8).isEqualTo("Hail on 12 July");
+    }
+
+    @Test
+    void splitsTheBoundaryAtEveryReadOffset() throws IOException {
+        byte[] photo = bytes(300);
+        byte[] body = form(field("claimId", "42"), file("images", "a.jpg", "image/jpeg", photo), field("note", ""));
+
+        for (int chunk = 1; chunk <= BOUNDARY.length() + 8; chunk++) {
+            List<ReadPart> parts = readAll(trickle(body, chunk), 7);
+
+            assertThat(parts).as("reads of %d bytes", chunk).hasSize(3);
+            assertThat(parts.get(0).body()).as("reads of %d bytes", chunk).isEqualTo("42".getBytes(StandardCharsets.UTF_8));
+            assertThat(parts.get(1).body()).as("reads of %d bytes", chunk).isEqualTo(photo);
+            assertThat(parts.get(2).body()).as("reads of %d bytes", chunk).isEmpty();
+        }
+    }
+
+    @Test
+    void splitsTheBoundaryAtEveryBufferOffset() throws IOException {
+        // Part sizes around the buffer size put the delimiter across the end of the buffer at every offset
+        int delimiter = BOUNDARY.length() + 4;
+        for (int size = BUFFER_SIZE - 200; size <= BUFFER_SIZE + delimiter; size++) {
+            byte[] photo = bytes(size);
+            byte[] body = form(file("images", "a.jpg", "image/jpeg", photo), field("claimId", "42"));
+
+            List<ReadPart> parts = readAll(new ByteArrayInputStream(body), 4096);
+
+            assertThat(parts).as("part of %d bytes", size).hasSize(2);
+            assertThat(parts.get(0).body()).as("part of %d bytes", size).isEqualTo(photo);
+            assertThat(parts.get(1).body()).as("part of %d bytes", size).isEqualTo("42".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void keepsNearMissesOfTheDelimiterInTheBody() throws IOException {
+        String content = "--" + BOUNDARY + "\r\n\r\n--" + BOUNDARY.substring(0, BOUNDARY.length() - 1) + "\r\n-\r";
+        byte[] body = form(field("note", content), field("claimId", "42"));
+
+        for (int chunk : new int[]{1, 3, 64, body.length}) {
+            List<ReadPart> parts = readAll(trickle(body, chunk), 5);
+
+            assertThat(parts.get(0).body()).asString(StandardCharsets.UTF_8).isEqualTo(content);
+            assertThat(parts.get(1).body()).asString(StandardCharsets.UTF_8).isEqualTo("42");
+        }
+    }
+
+    @Test
+    void readsEmptyParts() throws IOException {
+        byte[] body = form(field("note", ""), file("images", "empty.jpg", "image/jpeg", new byte[0]), field("claimId", "42"));
+
+        List<ReadPart> parts = readAll(new ByteArrayInputStream(body), 16);
+
+        assertThat(parts).extracting(ReadPart::name).containsExactly("note", "images", "claimId");
+        assertThat(parts.get(0).body()).isEmpty();
+        assertThat(parts.get(1).filename()).isEqualTo("empty.jpg");
+        assertThat(parts.get(1).body()).isEmpty();
+        assertThat(parts.get(2).body()).asString(StandardCharsets.UTF_8).isEqualTo("42");
+    }
+
+    @Test
+    void readsAFormWithoutParts() throws IOException {
+        byte[] body = ("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.ISO_8859_1);
+
+        assertThat(readAll(new ByteArrayInputStream(body), 16)).isEmpty();
+    }
+
+    @Test
+    void skipsWhatTheCallerDidNotRead() throws IOException {
+        byte[] body = form(file("images", "a.jpg", "image/jpeg", bytes(200_000)), field("claimId", "42"));
+        MultipartFormReader reader = new MultipartFormReader(new ByteArrayInputStream(body), BOUNDARY, Long.MAX_VALUE);
+
+        Part photo = reader.next();
+        assertThat(photo.body().read(new byte[10])).isEqualTo(10);
+        Part claimId = reader.next();
+
+        assertThat(claimId.name()).isEqualTo("claimId");
+        assertThat(claimId.body().readAllBytes()).asString(StandardCharsets.UTF_8).isEqualTo("42");
+        assertThat(reader.next()).isNull();
+        assertThat(reader.next()).isNull();
+    }
+
+    @Test
+    void ignoresPreambleAndEpilogue() throws IOException {
+        byte[] form = form(field("claimId", "42"));
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.writeBytes("This is a multi-part message.\r\n".getBytes(StandardCharsets.ISO_8859_1));
+        body.writeBytes(form);
+        body.writeBytes("\r\ntrailing epilogue".getBytes(StandardCharsets.ISO_8859_1));
+
+        List<ReadPart> parts = readAll(new ByteArrayInputStream(body.toByteArray()), 16);
+
+        assertThat(parts).hasSize(1);
+        assertThat(parts.get(0).body()).asString(StandardCharsets.UTF_8).isEqualTo("42");
+    }
+
+    @Test
+    void readsQuotedAndEscapedParameters() throws IOException {
+        String disposition = "form-data; NAME=\"images\"; filename=\"a \\\"quoted\\\" name; with = signs.jpg\"";
+        byte[] body = form(part(disposition, "image/jpeg", new byte[]{1, 2, 3}));
+
+        List<ReadPart> parts = readAll(new ByteArrayInputStream(body), 16);
+
+        assertThat(parts.get(0).name()).isEqualTo("images");
+        assertThat(parts.get(0).filename()).isEqualTo("a \"quoted\" name; with = signs.jpg");
+    }
+
+    @Test
+    void readsUtf8FileNames() throws IOException {
+        byte[] body = form(file("images", "खेत फोटो.jpg", "image/jpeg", new byte[]{1}));
+
+        assertThat(readAll(new ByteArrayInputStream(body), 16).get(0).filename()).isEqualTo("खेत फोटो.jpg");
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "form-data; name=images; filename=a.jpg | name | images",
+            "form-data; name=images; filename=a.jpg | filename | a.jpg",
+            "form-data; name=\"a;b\" | name | a;b",
+            "form-data; name=\"a\\\\b\" | name | a\\b",
+            "form-data; filename=\"\" | filename | ''",
+            "form-data;name = images ; filename=a.jpg | name | images",
+            "form-data; filename=a.jpg | name | ",
+            "form-data; xname=images | name | "
+    })
+    void parsesHeaderParameters(String header, String name, String expected) {
+        assertThat(MultipartFormReader.parameter(header, name)).isEqualTo(expected);
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "multipart/form-data; boundary=abc | abc",
+            "Multipart/Form-Data; charset=UTF-8; BOUNDARY=\"abc def\" | abc def",
+            "multipart/form-data; boundary=\"a\\\"b\" | a\"b"
+    })
+    void findsTheBoundary(String contentType, String boundary) {
+        assertThat(MultipartFormReader.boundaryOf(contentType)).isEqualTo(boundary);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"application/json", "multipart/form-data", "multipart/form-data; boundary=",
+            "multipart/mixed; boundary=abc"})
+    void refusesContentTypesWithoutAUsableBoundary(String contentType) {
+        assertThat(MultipartFormReader.boundaryOf(contentType)).isNull();
+        assertThat(MultipartFormReader.boundaryOf(null)).isNull();
+        assertThat(MultipartFormReader.boundaryOf("multipart/form-data; boundary=" + "b".repeat(71))).isNull();
+    }
+
+    @Test
+    void rejectsEveryTruncation() {
+        byte[] body = form(field("claimId", "42"), file("images", "a.jpg", "image/jpeg", bytes(100)));
+        // The closing boundary ends the form; what follows it is epilogue
+        int end = body.length - 2;
+
+        for (int length = 0; length < end; length++) {
+            byte[] truncated = Arrays.copyOf(body, length);
+            assertThatThrownBy(() -> readAll(new ByteArrayInputStream(truncated), 16))
+                    .as("cut to %d of %d bytes", length, end)
+                    .isInstanceOf(BadRequestException.class)
+                    .hasMessage("Unexpected end of multipart body");
+        }
+    }
+
+    @Test
+    void rejectsPartsWithoutDisposition() {
+        byte[] body = form(("Content-Type: text/plain\r\n\r\n42").getBytes(StandardCharsets.UTF_8));
+
+        assertThatThrownBy(() -> readAll(new ByteArrayInputStream(body), 16))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessage("Multipart part without Content-Disposition");
+    }
+
+    @Test
+    void rejectsOversizedHeaders() {
+        byte[] body = form(part("form-data; name=\"" + "n".repeat(9000) + "\"", null, new byte[0]));
+
+        assertThatThrownBy(() -> readAll(new ByteArrayInputStream(body), 16))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessage("Multipart part headers are too large");
+    }
+
+    @Test
+    void enforcesTheSizeLimitWhileReading() {
+        byte[] body = form(file("images", "a.jpg", "image/jpeg", bytes(3 * 1024 * 1024)));
+
+        assertThatThrownBy(() -> {
+            MultipartFormReader reader = new MultipartFormReader(new ByteArrayInputStream(body), BOUNDARY, 2 * 1024 * 1024);
+            reader.next().body().transferTo(OutputStream.nullOutputStream());
+        })
+                .isInstanceOf(BadRequestException.class)
+                .hasMessage("Upload exceeds maximum size of 2MB");
+    }
+
+    private record ReadPart(String name, String filename, String contentType, byte[] body) {
+    }
+
+    /**
+     * Read every part, pulling each body through reads of at most readSize bytes
+     */
+    private static List<ReadPart> readAll(InputStream in, int readSize) throws IOException {
+        MultipartFormReader reader = new MultipartFormReader(in, BOUNDARY, Long.MAX_VALUE);
+        List<ReadPart> parts = new ArrayList<>();
+        byte[] chunk = new byte[readSize];
+        Part part;
+        while ((part = reader.next()) != null) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            int n;
+            while ((n = part.body().read(chunk, 0, chunk.length)) >= 0) {
+                body.write(chunk, 0, n);
+            }
+            assertThat(part.body().read()).isEqualTo(-1);
+            parts.add(new ReadPart(part.name(), part.filename(), part.contentType(), body.toByteArray()));
+        }
+        return parts;
+    }
+
+    /**
+     * Stream handing out at most chunk bytes per read, like a slow client
+     */
+    private static InputStream trickle(byte[] bytes, int chunk) {
+        return new ByteArrayInputStream(bytes) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, chunk));
+            }
+        };
+    }
+
+    /**
+     * Body as a browser sends it: every part after a boundary line, then the closing boundary
+     */
+    private static byte[] form(byte[]... parts) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            body.writeBytes(("--" + BOUNDARY + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+            body.writeBytes(part);
+            body.writeBytes("\r\n".getBytes(StandardCharsets.ISO_8859_1));
+        }
+        body.writeBytes(("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.ISO_8859_1));
+        return body.toByteArray();
+    }
+
+    private static byte[] field(String name, String value) {
+        return part("form-data; name=\"" + name + "\"", null, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] file(String name, String filename, String contentType, byte[] content) {
+        return part("form-data; name=\"" + name + "\"; filename=\"" + filename + "\"", contentType, content);
+    }
+
+    private static byte[] part(String disposition, String contentType, byte[] content) {
+        ByteArrayOutputStream part = new ByteArrayOutputStream();
+        part.writeBytes(("Content-Disposition: " + disposition + "\r\n").getBytes(StandardCharsets.UTF_8));
+        if (contentType != null) {
+            part.writeBytes(("Content-Type: " + contentType + "\r\n").getBytes(StandardCharsets.UTF_8));
+        }
+        part.writeBytes("\r\n".getBytes(StandardCharsets.UTF_8));
+        part.writeBytes(content);
+        return part.toByteArray();
+    }
+
+    /**
+     * Deterministic binary content; steps of 31 never spell CRLF followed by dashes
+     */
+    private static byte[] bytes(int size) {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            bytes[i] = (byte) (i * 31);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,332 @@
+package com.cropinsurance.loadgen;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load Generator - Drives sensor ingest with replayed history or synthetic diurnal readings.
+ *
+ * Open loop: every request has a scheduled send time and latency is measured from that time,
+ * not from when a worker got around to sending it, so a backend that falls behind shows up
+ * as growing latency instead of a quietly lower request rate. Service time (send to response)
+ * is reported next to it. At most --concurrency requests are in flight; the rest wait their
+ * turn and the wait counts against latency.
+ *
+ * Exits with 2 when --max-p99-ms or --max-error-rate is exceeded, so a run can gate a build.
+ * Arguments that are not load generator options are passed to Spring (--target=service).
+ * With --target=mqtt every sensor is a client of its own, so --concurrency should be in the
+ * order of --sensors for thousands of simulated sensors to publish at once.
+ */
+public final class LoadGenerator {
+
+    private static final Set<String> OPTIONS = Set.of("mode", "target", "file", "sensors", "rate", "duration",
+            "speed", "start-hour", "seed", "code-prefix", "batch-size", "concurrency", "url", "token", "timeout",
+            "durable", "broker", "ingest-key", "warmup", "report-interval", "max-p99-ms", "max-error-rate");
+
+    private final ReadingSource source;
+    private final ReadingTarget target;
+    private final String description;
+    private final long maxNanos;
+    private final int batchSize;
+    private final int concurrency;
+    private final long warmupNanos;
+    private final long reportIntervalSeconds;
+    private final double maxP99Millis;
+    private final double maxErrorRate;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LatencyHistogram serviceTime = new LatencyHistogram();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final Map<String, LongAdder> failures = new ConcurrentHashMap<>();
+
+    private long start;
+    private long lastReportSent;
+
+    private LoadGenerator(Map<String, String> options, List<String> springArgs) throws Exception {
+        String mode = options.getOrDefault("mode", "synthetic");
+        String targetName = options.getOrDefault("target", "rest");
+        double speed = Double.parseDouble(options.getOrDefault("speed", "1"));
+        long duration = seconds(options.getOrDefault("duration", "synthetic".equals(mode) ? "60s" : "0"));
+        if (speed <= 0) {
+            throw new IllegalArgumentException("--speed must be positive");
+        }
+
+        switch (mode) {
+            case "synthetic" -> {
+                int sensors = Integer.parseInt(options.getOrDefault("sensors", "100"));
+                double rate = Double.parseDouble(options.getOrDefault("rate", "100"));
+                if (sensors <= 0 || rate <= 0 || duration <= 0) {
+                    throw new IllegalArgumentException("--sensors, --rate and --duration must be positive");
+                }
+                source = new SyntheticSource(options.getOrDefault("code-prefix", "LOAD-"), sensors, rate, duration,
+                        speed, Double.parseDouble(options.getOrDefault("start-hour", "6")),
+                        Long.parseLong(options.getOrDefault("seed", "42")));
+                description = String.format("synthetic, %d sensors, %.1f readings/s for %ds, simulated time x%s",
+                        sensors, rate, duration, options.getOrDefault("speed", "1"));
+            }
+            case "replay" -> {
+                String file = options.get("file");
+                if (file == null) {
+                    throw new IllegalArgumentException("--mode=replay needs --file");
+                }
+                source = new ReplaySource(Path.of(file), speed);
+                description = String.format("replay of %s at x%s", file, options.getOrDefault("speed", "1"));
+            }
+            default -> throw new IllegalArgumentException("Unknown --mode " + mode);
+        }
+        maxNanos = TimeUnit.SECONDS.toNanos(duration);
+
+        batchSize = Integer.parseInt(options.getOrDefault("batch-size", "1"));
+        concurrency = Integer.parseInt(options.getOrDefault("concurrency", "32"));
+        warmupNanos = TimeUnit.SECONDS.toNanos(seconds(options.getOrDefault("warmup", "0")));
+        reportIntervalSeconds = seconds(options.getOrDefault("report-interval", "5s"));
+        maxP99Millis = Double.parseDouble(options.getOrDefault("max-p99-ms", "0"));
+        maxErrorRate = Double.parseDouble(options.getOrDefault("max-error-rate", "1"));
+        if (batchSize <= 0 || concurrency <= 0 || reportIntervalSeconds <= 0) {
+            throw new IllegalArgumentException("--batch-size, --concurrency and --report-interval must be positive");
+        }
+
+        target = switch (targetName) {
+            case "rest" -> new RestTarget(options.getOrDefault("url", "http://localhost:8080"), options.get("token"),
+                    Duration.ofSeconds(seconds(options.getOrDefault("timeout", "30s"))));
+            case "service" -> new ServiceTarget(springArgs.toArray(String[]::new),
+                    Boolean.parseBoolean(options.getOrDefault("durable", "false")));
+            case "mqtt" -> new MqttTarget(options.getOrDefault("broker", "localhost:1883"), options.get("ingest-key"),
+                    Duration.ofSeconds(seconds(options.getOrDefault("timeout", "30s"))));
+            default -> throw new IllegalArgumentException("Unknown --target " + targetName);
+        };
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        List<String> springArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals("--help") || arg.equals("-h")) {
+                usage();
+                return;
+            }
+            int equals = arg.indexOf('=');
+            String key = arg.startsWith("--") ? arg.substring(2, equals < 0 ? arg.length() : equals) : null;
+            if (key != null && OPTIONS.contains(key)) {
+                options.put(key, equals < 0 ? "true" : arg.substring(equals + 1));
+            } else {
+                springArgs.add(arg);
+            }
+        }
+
+        LoadGenerator generator;
+        try {
+            generator = new LoadGenerator(options, springArgs);
+        } catch (IllegalArgumentException e) {
+            System.err.println("❌ " + e.getMessage());
+            usage();
+            System.exit(1);
+            return;
+        }
+        int status;
+        try {
+            status = generator.run();
+        } finally {
+            generator.source.close();
+            generator.target.close();
+        }
+        System.exit(status);
+    }
+
+    private int run() throws Exception {
+        System.out.printf("🚀 Load test: %s, batches of %d, %d in flight%n", description, batchSize, concurrency);
+
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "loadgen-report");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Semaphore inFlight = new Semaphore(concurrency);
+        start = System.nanoTime();
+        reporter.scheduleAtFixedRate(this::progress, reportIntervalSeconds, reportIntervalSeconds, TimeUnit.SECONDS);
+
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Reading> batch = new ArrayList<>(batchSize);
+            Reading reading;
+            while ((reading = source.next()) != null) {
+                if (maxNanos > 0 && reading.dueNanos() >= maxNanos) {
+                    break;
+                }
+                batch.add(reading);
+                if (batch.size() == batchSize) {
+                    dispatch(workers, inFlight, batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                dispatch(workers, inFlight, batch);
+            }
+        }
+        reporter.shutdownNow();
+        return report(System.nanoTime() - start);
+    }
+
+    /**
+     * Wait until the batch is due (its last reading's time), then hand it to a worker
+     */
+    private void dispatch(ExecutorService workers, Semaphore inFlight, List<Reading> batch) {
+        long offset = batch.get(batch.size() - 1).dueNanos();
+        long due = start + offset;
+        long wait;
+        while ((wait = due - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(wait);
+        }
+        inFlight.acquireUninterruptibly();
+        boolean measured = offset >= warmupNanos;
+        workers.execute(() -> {
+            try {
+                send(batch, due, measured);
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    private void send(List<Reading> batch, long due, boolean measured) {
+        long sentAt = System.nanoTime();
+        try {
+            int refused = target.send(batch);
+            long done = System.nanoTime();
+            accepted.add(batch.size() - refused);
+            rejected.add(refused);
+            if (measured) {
+                latency.record((done - due) / 1_000);
+                serviceTime.record((done - sentAt) / 1_000);
+            }
+        } catch (ReadingTarget.TargetException e) {
+            LongAdder count = failures.computeIfAbsent(e.kind(), kind -> {
+                System.err.printf("⚠️ First %s failure: %s%n", kind, e.getMessage());
+                return new LongAdder();
+            });
+            count.add(batch.size());
+        }
+        requests.increment();
+        sent.add(batch.size());
+    }
+
+    private void progress() {
+        long elapsed = System.nanoTime() - start;
+        long total = sent.sum();
+        System.out.printf("[%6.1fs] sent %d (%.0f/s), accepted %d, rejected %d, failed %d, p99 %.1f ms%n",
+                elapsed / 1e9, total, (total - lastReportSent) / (double) reportIntervalSeconds,
+                accepted.sum(), rejected.sum(), failed(), latency.percentile(99) / 1000.0);
+        lastReportSent = total;
+    }
+
+    private int report(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        long total = sent.sum();
+        long errors = rejected.sum() + failed();
+        double errorRate = total == 0 ? 0 : errors / (double) total;
+
+        System.out.println();
+        System.out.println("📊 Load test report");
+        System.out.printf("  Elapsed        %.1f s%n", seconds);
+        System.out.printf("  Readings       %d sent, %d accepted, %d rejected, %d failed%n",
+                total, accepted.sum(), rejected.sum(), failed());
+        System.out.printf("  Throughput     %.1f readings/s accepted, %.1f requests/s%n",
+                accepted.sum() / seconds, requests.sum() / seconds);
+        if (source instanceof ReplaySource replay && replay.skipped() > 0) {
+            System.out.printf("  Skipped        %d export rows with missing values%n", replay.skipped());
+        }
+        printLatency("  Latency  ", latency);
+        printLatency("  Service  ", serviceTime);
+        if (!failures.isEmpty()) {
+            Map<String, Long> byKind = new TreeMap<>();
+            failures.forEach((kind, count) -> byKind.put(kind, count.sum()));
+            System.out.println("  Failures       " + byKind);
+        }
+
+        int status = 0;
+        if (maxP99Millis > 0 && latency.percentile(99) / 1000.0 > maxP99Millis) {
+            System.out.printf("❌ p99 latency above %.1f ms%n", maxP99Millis);
+            status = 2;
+        }
+        if (errorRate > maxErrorRate) {
+            System.out.printf("❌ Error rate %.4f above %.4f%n", errorRate, maxErrorRate);
+            status = 2;
+        }
+        return status;
+    }
+
+    private static void printLatency(String label, LatencyHistogram histogram) {
+        System.out.printf("%s      p50 %.2f  p90 %.2f  p99 %.2f  p99.9 %.2f  max %.2f ms (%d requests)%n", label,
+                histogram.percentile(50) / 1000.0, histogram.percentile(90) / 1000.0,
+                histogram.percentile(99) / 1000.0, histogram.percentile(99.9) / 1000.0,
+                histogram.max() / 1000.0, histogram.count());
+    }
+
+    private long failed() {
+        long total = 0;
+        for (LongAdder count : failures.values()) {
+            total += count.sum();
+        }
+        return total;
+    }
+
+    /**
+     * Parse 90, 90s, 15m or 2h as seconds
+     */
+    private static long seconds(String value) {
+        String trimmed = value.trim().toLowerCase();
+        char unit = trimmed.isEmpty() ? 's' : trimmed.charAt(trimmed.length() - 1);
+        long multiplier = switch (unit) {
+            case 'm' -> 60;
+            case 'h' -> 3600;
+            default -> 1;
+        };
+        String number = Character.isDigit(unit) ? trimmed : trimmed.substring(0, trimmed.length() - 1);
+        return Long.parseLong(number) * multiplier;
+    }
+
+    private static void usage() {
+        System.out.println("""
+                Usage: java -jar crop-insurance-loadgen.jar [options] [spring arguments]
+
+                  --mode=synthetic|replay     synthetic diurnal readings (default) or a CSV export
+                  --target=rest|service|mqtt  REST API (default), SensorService in-process or the MQTT listener
+                  --file=readings.csv         replay: export of sensor_readings (see README)
+                  --sensors=100               synthetic: sensors LOAD-0001.. to report as
+                  --rate=100                  synthetic: readings per second over all sensors
+                  --duration=60s              run length (replay: default whole file)
+                  --speed=1                   replay speed-up, or simulated time speed for synthetic
+                  --start-hour=6              synthetic: simulated hour of day at the start
+                  --seed=42                   synthetic: random seed
+                  --code-prefix=LOAD-         synthetic: sensor code prefix
+                  --batch-size=1              readings per request (>1 uses the batch endpoint)
+                  --concurrency=32            maximum requests in flight
+                  --url=http://localhost:8080 rest: backend base URL
+                  --token=JWT                 rest: bearer token (patwari login)
+                  --timeout=30s               rest, mqtt: request / PUBACK timeout
+                  --durable                   service: batches wait for commit
+                  --broker=localhost:1883     mqtt: listener address (one connection per sensor)
+                  --ingest-key=BASE64         mqtt: password of every sensor (see README)
+                  --warmup=0s                 leave the first part of the run out of the latency figures
+                  --report-interval=5s        progress line interval
+                  --max-p99-ms=0              exit 2 when p99 latency is above this (0 = off)
+                  --max-error-rate=1          exit 2 when rejected + failed / sent is above this
+                """);
+    }
+}
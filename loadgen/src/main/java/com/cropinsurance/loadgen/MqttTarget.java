@@ -0,0 +1,257 @@
+package com.cropinsurance.loadgen;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Mqtt Target - Publishes readings at QoS 1 to sensors/{code}/readings, one MQTT client per sensor.
+ *
+ * Every simulated sensor opens its own connection on its first reading (username = sensor code,
+ * password = --ingest-key), so --sensors=5000 puts five thousand clients on the listener. A reading
+ * is done when its PUBACK arrives, which the listener sends only after the commit. A reading the
+ * listener refuses gets no PUBACK and its connection is closed: it counts as a failure and the
+ * sensor reconnects with its next reading. Like the REST target, the client is written by hand
+ * (MQTT 3.1.1, CONNECT / PUBLISH / PUBACK / DISCONNECT only) to stay cheap next to the server.
+ */
+final class MqttTarget implements ReadingTarget {
+
+    private static final int CONNACK = 2;
+    private static final int PUBACK = 4;
+
+    private final InetSocketAddress broker;
+    private final String ingestKey;
+    private final Duration timeout;
+    private final Map<String, Client> clients = new ConcurrentHashMap<>();
+
+    MqttTarget(String broker, String ingestKey, Duration timeout) {
+        int colon = broker.lastIndexOf(':');
+        this.broker = colon < 0
+                ? new InetSocketAddress(broker, 1883)
+                : new InetSocketAddress(broker.substring(0, colon), Integer.parseInt(broker.substring(colon + 1)));
+        this.ingestKey = ingestKey;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public int send(List<Reading> readings) throws TargetException {
+        List<CompletableFuture<Void>> acks = new ArrayList<>(readings.size());
+        for (Reading reading : readings) {
+            Client client = clients.computeIfAbsent(reading.sensorCode(), Client::new);
+            acks.add(client.publish(payload(reading)));
+        }
+        long deadline = System.nanoTime() + timeout.toNanos();
+        for (CompletableFuture<Void> ack : acks) {
+            try {
+                ack.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw new TargetException(cause.getClass().getSimpleName(), cause.getMessage());
+            } catch (TimeoutException e) {
+                throw new TargetException("Timeout", "no PUBACK within " + timeout.toSeconds() + "s");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TargetException("Interrupted", e.getMessage());
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public void close() {
+        clients.values().forEach(Client::disconnect);
+    }
+
+    private static byte[] payload(Reading reading) {
+        StringBuilder json = new StringBuilder(96)
+                .append("{\"soilMoisture\":").append(reading.soilMoisture())
+                .append(",\"humidity\":").append(reading.humidity())
+                .append(",\"temperature\":").append(reading.temperature());
+        if (!Double.isNaN(reading.rainfall())) {
+            json.append(",\"rainfall\":").append(reading.rainfall());
+        }
+        return json.append('}').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * One sensor's connection; publishes are written under the client's lock and a virtual
+     * reader thread completes them as PUBACKs arrive
+     */
+    private final class Client {
+
+        private final String code;
+        private final byte[] topic;
+        private final Map<Integer, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+
+        private Socket socket;
+        private OutputStream out;
+        private int nextPacketId;
+
+        private Client(String code) {
+            this.code = code;
+            this.topic = ("sensors/" + code + "/readings").getBytes(StandardCharsets.UTF_8);
+        }
+
+        synchronized CompletableFuture<Void> publish(byte[] payload) {
+            CompletableFuture<Void> ack = new CompletableFuture<>();
+            try {
+                if (socket == null) {
+                    connect();
+                }
+                nextPacketId = nextPacketId % 0xFFFF + 1;
+                inFlight.put(nextPacketId, ack);
+                int length = 2 + topic.length + 2 + payload.length;
+                out.write(0x32); // PUBLISH, QoS 1
+                writeLength(length);
+                writeString(topic);
+                out.write(nextPacketId >>> 8);
+                out.write(nextPacketId);
+                out.write(payload);
+                out.flush();
+            } catch (IOException e) {
+                ack.completeExceptionally(e);
+                drop(socket, e);
+            }
+            return ack;
+        }
+
+        synchronized void disconnect() {
+            if (socket == null) {
+                return;
+            }
+            try {
+                out.write(new byte[]{(byte) 0xE0, 0});
+                out.flush();
+            } catch (IOException ignored) {
+                // Closing anyway
+            }
+            drop(socket, new EOFException("disconnected"));
+        }
+
+        // Caller holds the client's lock
+        private void connect() throws IOException {
+            Socket connecting = new Socket();
+            try {
+                connecting.setTcpNoDelay(true);
+                connecting.connect(broker, (int) Math.min(timeout.toMillis(), 5000));
+                connecting.setSoTimeout((int) timeout.toMillis());
+                socket = connecting;
+                out = new BufferedOutputStream(connecting.getOutputStream(), 512);
+
+                byte[] clientId = code.getBytes(StandardCharsets.UTF_8);
+                byte[] password = ingestKey != null ? ingestKey.getBytes(StandardCharsets.UTF_8) : null;
+                int flags = 0x82 | (password != null ? 0x40 : 0); // Username, clean session
+                int length = 10 + 2 + clientId.length + 2 + clientId.length + (password != null ? 2 + password.length : 0);
+                out.write(0x10);
+                writeLength(length);
+                writeString("MQTT".getBytes(StandardCharsets.US_ASCII));
+                out.write(4); // Protocol level 3.1.1
+                out.write(flags);
+                out.write(0); // Keep alive off: the load generator may pause longer than any interval
+                out.write(0);
+                writeString(clientId);
+                writeString(clientId);
+                if (password != null) {
+                    writeString(password);
+                }
+                out.flush();
+
+                DataInputStream in = new DataInputStream(connecting.getInputStream());
+                int header = in.readUnsignedByte();
+                int remaining = in.readUnsignedByte();
+                if (header >>> 4 != CONNACK || remaining != 2) {
+                    throw new IOException("expected CONNACK");
+                }
+                in.readUnsignedByte();
+                int returnCode = in.readUnsignedByte();
+                if (returnCode != 0) {
+                    throw new IOException("CONNACK refused with return code " + returnCode);
+                }
+                connecting.setSoTimeout(0);
+                Thread.ofVirtual().name("mqtt-" + code).start(() -> readAcks(connecting, in));
+            } catch (IOException e) {
+                socket = null;
+                connecting.close();
+                throw e;
+            }
+        }
+
+        private void readAcks(Socket connection, DataInputStream in) {
+            try {
+                while (true) {
+                    int header = in.readUnsignedByte();
+                    int length = readLength(in);
+                    if (header >>> 4 == PUBACK && length == 2) {
+                        CompletableFuture<Void> ack = inFlight.remove(in.readUnsignedShort());
+                        if (ack != null) {
+                            ack.complete(null);
+                        }
+                    } else {
+                        in.skipNBytes(length);
+                    }
+                }
+            } catch (IOException e) {
+                synchronized (this) {
+                    drop(connection, e instanceof EOFException
+                            ? new EOFException("connection closed before PUBACK")
+                            : e);
+                }
+            }
+        }
+
+        // Caller holds the client's lock; fails what is still waiting for a PUBACK
+        private void drop(Socket connection, IOException cause) {
+            if (connection == null || connection != socket) {
+                return;
+            }
+            socket = null;
+            try {
+                connection.close();
+            } catch (IOException ignored) {
+                // Already gone
+            }
+            inFlight.values().forEach(ack -> ack.completeExceptionally(cause));
+            inFlight.clear();
+        }
+
+        private void writeLength(int length) throws IOException {
+            do {
+                int digit = length & 0x7F;
+                length >>>= 7;
+                out.write(length > 0 ? digit | 0x80 : digit);
+            } while (length > 0);
+        }
+
+        private void writeString(byte[] value) throws IOException {
+            out.write(value.length >>> 8);
+            out.write(value.length);
+            out.write(value);
+        }
+
+        private static int readLength(DataInputStream in) throws IOException {
+            int length = 0;
+            for (int shift = 0; shift < 28; shift += 7) {
+                int digit = in.readUnsignedByte();
+                length |= (digit & 0x7F) << shift;
+                if ((digit & 0x80) == 0) {
+                    return length;
+                }
+            }
+            throw new IOException("malformed remaining length");
+        }
+    }
+}
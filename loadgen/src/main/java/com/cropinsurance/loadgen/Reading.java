@@ -0,0 +1,15 @@
+package com.cropinsurance.loadgen;
+
+/**
+ * Reading - One reading to send, due at an offset (nanos) from the start of the run
+ */
+record Reading(long dueNanos, String sensorCode, double soilMoisture, double humidity,
+               double temperature, double rainfall) {
+
+    /**
+     * Values are sent with two decimals, like DECIMAL(5, 2) in sensor_readings
+     */
+    static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
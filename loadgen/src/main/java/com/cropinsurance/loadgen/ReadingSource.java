@@ -0,0 +1,19 @@
+package com.cropinsurance.loadgen;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reading Source - Readings to send, in due order
+ */
+interface ReadingSource extends Closeable {
+
+    /**
+     * Next reading, or null when the source is exhausted
+     */
+    Reading next() throws IOException;
+
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,35 @@
+package com.cropinsurance.loadgen;
+
+import java.util.List;
+
+/**
+ * Reading Target - Where readings are sent: the REST API or SensorService in-process
+ */
+interface ReadingTarget extends AutoCloseable {
+
+    /**
+     * Send readings as one request (one reading, or a batch); returns how many were rejected
+     */
+    int send(List<Reading> readings) throws TargetException;
+
+    @Override
+    default void close() {
+    }
+
+    /**
+     * Failed request; kind groups failures in the report (HTTP status, exception name)
+     */
+    final class TargetException extends Exception {
+
+        private final String kind;
+
+        TargetException(String kind, String message) {
+            super(message);
+            this.kind = kind;
+        }
+
+        String kind() {
+            return kind;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.cropinsurance.loadgen;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Replay Source - Exported sensor_readings history, played back at --speed times real time.
+ *
+ * Expects the CSV written by the \copy in loadgen/README.md:
+ * unique_code,recorded_at,soil_moisture,humidity,temperature,rainfall, ordered by recorded_at.
+ * The gaps between recorded times are kept (divided by the speed); a row older than the one
+ * before it is sent straight away. Rows missing a required value are skipped, as the API
+ * would reject them.
+ */
+final class ReplaySource implements ReadingSource {
+
+    private final BufferedReader reader;
+    private final double speed;
+
+    private LocalDateTime first;
+    private long lastDue;
+    private long lineNumber;
+    private long skipped;
+
+    ReplaySource(Path file, double speed) throws IOException {
+        this.reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        this.speed = speed;
+    }
+
+    @Override
+    public Reading next() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank() || (lineNumber == 1 && line.startsWith("unique_code"))) {
+                continue;
+            }
+            String[] fields = line.split(",", -1);
+            if (fields.length < 6 || fields[2].isEmpty() || fields[3].isEmpty() || fields[4].isEmpty()) {
+                skipped++;
+                continue;
+            }
+            LocalDateTime recordedAt;
+            try {
+                recordedAt = LocalDateTime.parse(fields[1].trim().replace(' ', 'T'));
+            } catch (RuntimeException e) {
+                throw new IOException("Line " + lineNumber + ": invalid recorded_at '" + fields[1] + "'", e);
+            }
+            if (first == null) {
+                first = recordedAt;
+            }
+            long due = (long) (Duration.between(first, recordedAt).toNanos() / speed);
+            lastDue = Math.max(lastDue, due);
+
+            return new Reading(lastDue, fields[0].trim(),
+                    Double.parseDouble(fields[2]), Double.parseDouble(fields[3]), Double.parseDouble(fields[4]),
+                    fields[5].isEmpty() ? Double.NaN : Double.parseDouble(fields[5]));
+        }
+        return null;
+    }
+
+    long skipped() {
+        return skipped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
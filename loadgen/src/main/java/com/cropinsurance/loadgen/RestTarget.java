@@ -0,0 +1,97 @@
+package com.cropinsurance.loadgen;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Rest Target - POST /api/sensors/reading, or /api/sensors/readings/batch for batches.
+ *
+ * JSON is written by hand to keep the client cheap next to the server under test. Items of a
+ * batch the backend rejects (unknown sensor, rate limited) come back with success=false and
+ * are counted as rejected.
+ */
+final class RestTarget implements ReadingTarget {
+
+    private static final String REJECTED = "\"success\":false";
+
+    private final HttpClient client;
+    private final URI single;
+    private final URI batch;
+    private final String token;
+    private final Duration timeout;
+
+    RestTarget(String baseUrl, String token, Duration timeout) {
+        String base = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.single = URI.create(base + "/api/sensors/reading");
+        this.batch = URI.create(base + "/api/sensors/readings/batch");
+        this.token = token;
+        this.timeout = timeout;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    @Override
+    public int send(List<Reading> readings) throws TargetException {
+        StringBuilder json = new StringBuilder(readings.size() * 128);
+        if (readings.size() == 1) {
+            appendReading(json, readings.get(0));
+        } else {
+            json.append('[');
+            for (int i = 0; i < readings.size(); i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                appendReading(json, readings.get(i));
+            }
+            json.append(']');
+        }
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(readings.size() == 1 ? single : batch)
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json.toString()));
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+
+        HttpResponse<String> response;
+        try {
+            response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            throw new TargetException(e.getClass().getSimpleName(), e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TargetException("Interrupted", e.getMessage());
+        }
+        if (response.statusCode() != 200) {
+            throw new TargetException("HTTP " + response.statusCode(), response.body());
+        }
+        return readings.size() == 1 ? 0 : count(response.body(), REJECTED);
+    }
+
+    private static void appendReading(StringBuilder json, Reading reading) {
+        json.append("{\"sensorCode\":\"").append(reading.sensorCode())
+                .append("\",\"soilMoisture\":").append(reading.soilMoisture())
+                .append(",\"humidity\":").append(reading.humidity())
+                .append(",\"temperature\":").append(reading.temperature());
+        if (!Double.isNaN(reading.rainfall())) {
+            json.append(",\"rainfall\":").append(reading.rainfall());
+        }
+        json.append('}');
+    }
+
+    private static int count(String body, String token) {
+        int count = 0;
+        for (int at = body.indexOf(token); at >= 0; at = body.indexOf(token, at + token.length())) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,76 @@
+package com.cropinsurance.loadgen;
+
+import com.cropinsurance.CropInsuranceApplication;
+import com.cropinsurance.dto.request.SensorReadingRequest;
+import com.cropinsurance.dto.response.SensorReadingResult;
+import com.cropinsurance.exception.TooManyRequestsException;
+import com.cropinsurance.service.SensorService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Service Target - Calls SensorService in-process, skipping HTTP, security and JSON.
+ *
+ * Boots the whole backend context (same application.properties, overridable with --spring.*
+ * and other Spring arguments) on a random port, so it can run next to a live backend.
+ * No source address is passed, so only the per-sensor rate limits apply. With --durable,
+ * batches return only once committed even when the write-behind buffer is on.
+ */
+final class ServiceTarget implements ReadingTarget {
+
+    private final ConfigurableApplicationContext context;
+    private final SensorService sensorService;
+    private final boolean durable;
+
+    ServiceTarget(String[] springArgs, boolean durable) {
+        this.context = new SpringApplicationBuilder(CropInsuranceApplication.class)
+                .properties("server.port=0")
+                .run(springArgs);
+        this.sensorService = context.getBean(SensorService.class);
+        this.durable = durable;
+    }
+
+    @Override
+    public int send(List<Reading> readings) throws TargetException {
+        try {
+            if (readings.size() == 1) {
+                sensorService.recordReading(toRequest(readings.get(0)), null);
+                return 0;
+            }
+            List<SensorReadingRequest> requests = new ArrayList<>(readings.size());
+            for (Reading reading : readings) {
+                requests.add(toRequest(reading));
+            }
+            int rejected = 0;
+            for (SensorReadingResult result : sensorService.recordReadings(requests, durable, null)) {
+                if (!result.isSuccess()) {
+                    rejected++;
+                }
+            }
+            return rejected;
+        } catch (TooManyRequestsException e) {
+            throw new TargetException("HTTP 429", e.getMessage());
+        } catch (RuntimeException e) {
+            throw new TargetException(e.getClass().getSimpleName(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+
+    private static SensorReadingRequest toRequest(Reading reading) {
+        return SensorReadingRequest.builder()
+                .sensorCode(reading.sensorCode())
+                .soilMoisture(BigDecimal.valueOf(reading.soilMoisture()))
+                .humidity(BigDecimal.valueOf(reading.humidity()))
+                .temperature(BigDecimal.valueOf(reading.temperature()))
+                .rainfall(Double.isNaN(reading.rainfall()) ? null : BigDecimal.valueOf(reading.rainfall()))
+                .build();
+    }
+}
@@ -0,0 +1,94 @@
+package com.cropinsurance.loadgen;
+
+import java.util.SplittableRandom;
+
+/**
+ * Synthetic Source - Diurnal readings for a fleet of LOAD- sensors.
+ *
+ * Readings are spread evenly over the run at the requested aggregate rate, round robin over
+ * the sensors. Each sensor gets its own climate: temperature follows a daily sine peaking
+ * around 14:00, humidity moves against temperature, and soil moisture dries out with heat
+ * until a rain event (a few per simulated month) tops it up. Simulated time runs at --speed
+ * times real time, so --speed=1440 shows a full day every minute.
+ */
+final class SyntheticSource implements ReadingSource {
+
+    private static final double RAIN_PER_HOUR = 0.004;
+
+    private final String[] codes;
+    private final long intervalNanos;
+    private final long total;
+    private final double speed;
+    private final double startHour;
+
+    private final double[] baseTemperature;
+    private final double[] amplitude;
+    private final double[] moisture;
+    private final double[] lastHour;
+    private final SplittableRandom random;
+
+    private long emitted;
+
+    SyntheticSource(String codePrefix, int sensors, double ratePerSecond, long durationSeconds,
+                    double speed, double startHour, long seed) {
+        this.intervalNanos = (long) (1_000_000_000L / ratePerSecond);
+        this.total = (long) (ratePerSecond * durationSeconds);
+        this.speed = speed;
+        this.startHour = startHour;
+        this.random = new SplittableRandom(seed);
+
+        codes = new String[sensors];
+        baseTemperature = new double[sensors];
+        amplitude = new double[sensors];
+        moisture = new double[sensors];
+        lastHour = new double[sensors];
+        for (int i = 0; i < sensors; i++) {
+            codes[i] = codePrefix + String.format("%04d", i + 1);
+            baseTemperature[i] = 22 + random.nextDouble() * 10;
+            amplitude[i] = 4 + random.nextDouble() * 5;
+            moisture[i] = 25 + random.nextDouble() * 20;
+            lastHour[i] = startHour;
+        }
+    }
+
+    @Override
+    public Reading next() {
+        if (emitted >= total) {
+            return null;
+        }
+        long due = emitted * intervalNanos;
+        int sensor = (int) (emitted % codes.length);
+        emitted++;
+
+        double hour = startHour + due / 3_600_000_000_000.0 * speed;
+        double elapsed = Math.max(0, hour - lastHour[sensor]);
+        lastHour[sensor] = hour;
+
+        double daily = Math.sin(2 * Math.PI * (hour - 8) / 24);
+        double temperature = baseTemperature[sensor] + amplitude[sensor] * daily + noise(0.3);
+        double humidity = clamp(62 - 28 * daily * amplitude[sensor] / 9 + noise(2), 10, 100);
+
+        double rainfall = 0;
+        if (elapsed > 0 && random.nextDouble() < 1 - Math.pow(1 - RAIN_PER_HOUR, elapsed)) {
+            rainfall = 2 + random.nextDouble() * 30;
+            moisture[sensor] += rainfall * 0.6;
+            humidity = clamp(humidity + 20, 10, 100);
+        }
+        // Evapotranspiration: faster when hot, only while the sun is up
+        double sun = Math.max(0, daily);
+        moisture[sensor] -= elapsed * (0.02 + 0.12 * sun * Math.max(0, temperature) / 30);
+        moisture[sensor] = clamp(moisture[sensor], 5, 60);
+
+        return new Reading(due, codes[sensor],
+                Reading.round(moisture[sensor] + noise(0.2)), Reading.round(humidity),
+                Reading.round(temperature), Reading.round(rainfall));
+    }
+
+    private double noise(double scale) {
+        return (random.nextDouble() * 2 - 1) * scale;
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}